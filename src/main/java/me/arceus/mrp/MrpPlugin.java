@@ -1,14 +1,26 @@
 package me.arceus.mrp;
 
+import me.arceus.mrp.cache.ResponseCache;
+import me.arceus.mrp.cache.SemanticCache;
 import me.arceus.mrp.command.MrpCommandExecutor;
+import me.arceus.mrp.concurrent.ExecutionBackend;
 import me.arceus.mrp.config.ConfigService;
+import me.arceus.mrp.config.TokenizerSettings;
 import me.arceus.mrp.conversation.ConversationChatService;
 import me.arceus.mrp.conversation.ConversationSessionManager;
 import me.arceus.mrp.conversation.ConversationStorage;
 import me.arceus.mrp.provider.ProviderRegistry;
+import me.arceus.mrp.provider.TokenEstimator;
 import me.arceus.mrp.prompt.PromptService;
 import me.arceus.mrp.logging.ConversationLogger;
+import me.arceus.mrp.logging.DebugTracer;
+import me.arceus.mrp.memory.MemoryStore;
+import me.arceus.mrp.metrics.MetricsRegistry;
+import me.arceus.mrp.tokenizer.HeuristicTokenizer;
+import me.arceus.mrp.tokenizer.Tokenizer;
+import me.arceus.mrp.tokenizer.Tokenizers;
 import me.arceus.mrp.villager.VillagerRegistry;
+import me.arceus.mrp.listener.SessionPrefetchListener;
 import me.arceus.mrp.listener.VillagerInteractListener;
 import me.arceus.mrp.listener.VillagerProtectionListener;
 import me.arceus.mrp.ui.ConversationUiService;
@@ -24,30 +36,46 @@ import java.util.Objects;
 public class MrpPlugin extends JavaPlugin {
 
     private ConfigService configService;
+    private MetricsRegistry metrics;
     private ProviderRegistry providerRegistry;
     private VillagerRegistry villagerRegistry;
     private ConversationSessionManager sessionManager;
+    private ExecutionBackend executionBackend;
     private ConversationStorage conversationStorage;
     private PromptService promptService;
     private ConversationLogger conversationLogger;
+    private DebugTracer debugTracer;
     private ConversationChatService conversationChatService;
     private ConversationUiService conversationUiService;
+    private ResponseCache responseCache;
+    private SemanticCache semanticCache;
+    private MemoryStore memoryStore;
+    private volatile Tokenizer tokenizer = HeuristicTokenizer.INSTANCE;
+    private TokenizerSettings tokenizerSettings;
 
     @Override
     public void onEnable() {
         this.saveDefaultConfig();
 
         this.configService = new ConfigService(this);
+        configService.reload();
+        this.metrics = new MetricsRegistry();
+        this.executionBackend = ExecutionBackend.create(
+            configService.getExecutionSettings().isVirtualThreads(), getLogger());
         this.providerRegistry = new ProviderRegistry(this);
+        this.responseCache = new ResponseCache(this);
+        this.semanticCache = new SemanticCache(this);
         this.villagerRegistry = new VillagerRegistry(this);
         this.conversationStorage = new ConversationStorage(this);
+        this.memoryStore = new MemoryStore(this);
         this.sessionManager = new ConversationSessionManager(this, conversationStorage);
         this.promptService = new PromptService(this);
         this.conversationLogger = new ConversationLogger(this);
+        this.debugTracer = new DebugTracer(this);
         this.conversationChatService = new ConversationChatService(this);
         this.conversationUiService = new ConversationUiService(this, conversationChatService);
 
-        reloadSettings(true);
+        applySettings();
         villagerRegistry.loadVillagers();
         refreshNpcProtections();
 
@@ -57,6 +85,7 @@ public class MrpPlugin extends JavaPlugin {
         getServer().getPluginManager().registerEvents(conversationUiService, this);
         getServer().getPluginManager().registerEvents(new VillagerInteractListener(this), this);
         getServer().getPluginManager().registerEvents(new VillagerProtectionListener(this), this);
+        getServer().getPluginManager().registerEvents(new SessionPrefetchListener(this), this);
 
         getLogger().info("MRP Villager Roleplay 已启用");
     }
@@ -70,12 +99,21 @@ public class MrpPlugin extends JavaPlugin {
         if (villagerRegistry != null) {
             villagerRegistry.saveVillagers();
         }
+        if (memoryStore != null) {
+            memoryStore.shutdown();
+        }
         if (providerRegistry != null) {
             providerRegistry.shutdown();
         }
+        if (responseCache != null) {
+            responseCache.shutdown();
+        }
         if (conversationLogger != null) {
             conversationLogger.shutdown();
         }
+        if (debugTracer != null) {
+            debugTracer.shutdown();
+        }
         if (conversationStorage != null) {
             conversationStorage.shutdown();
         }
@@ -86,6 +124,10 @@ public class MrpPlugin extends JavaPlugin {
         return configService;
     }
 
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
     public ProviderRegistry getProviderRegistry() {
         return providerRegistry;
     }
@@ -106,6 +148,10 @@ public class MrpPlugin extends JavaPlugin {
         return conversationLogger;
     }
 
+    public DebugTracer getDebugTracer() {
+        return debugTracer;
+    }
+
     public ConversationStorage getConversationStorage() {
         return conversationStorage;
     }
@@ -118,6 +164,22 @@ public class MrpPlugin extends JavaPlugin {
         return conversationUiService;
     }
 
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public SemanticCache getSemanticCache() {
+        return semanticCache;
+    }
+
+    public MemoryStore getMemoryStore() {
+        return memoryStore;
+    }
+
+    public Tokenizer getTokenizer() {
+        return tokenizer;
+    }
+
     public void applyNpcProtection(Villager villager) {
         if (villager == null) {
             return;
@@ -164,6 +226,29 @@ public class MrpPlugin extends JavaPlugin {
             super.reloadConfig();
         }
         configService.reload();
+        applySettings();
+    }
+
+    public ExecutionBackend getExecutionBackend() {
+        return executionBackend;
+    }
+
+    private void applySettings() {
+        TokenizerSettings latestTokenizer = configService.getTokenizerSettings();
+        if (!latestTokenizer.equals(tokenizerSettings)) {
+            // 词表较大，只在设置变化时重新加载
+            tokenizerSettings = latestTokenizer;
+            tokenizer = Tokenizers.create(latestTokenizer, getDataFolder().toPath(), getLogger());
+            TokenEstimator.use(tokenizer);
+        }
         providerRegistry.initialize(configService.getProviderSettings());
+        responseCache.reloadSettings();
+        semanticCache.reloadSettings();
+        memoryStore.reloadSettings();
+        conversationLogger.reloadSettings();
+        debugTracer.reloadSettings();
+        sessionManager.reloadSettings();
+        // 全局模板可能已变化，重新检查各村民的占位符
+        promptService.validateAll();
     }
 }
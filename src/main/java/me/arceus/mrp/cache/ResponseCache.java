@@ -0,0 +1,218 @@
+package me.arceus.mrp.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import me.arceus.mrp.MrpPlugin;
+import me.arceus.mrp.config.CacheSettings;
+import me.arceus.mrp.provider.ProviderRequest;
+import me.arceus.mrp.villager.VillagerProfile;
+import me.arceus.mrp.villager.VillagerPromptOverride;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exact-match cache of model replies, keyed by the {@link ProviderRequest#canonicalKey()} of
+ * a player-neutral rendering of the request (the player's name replaced by {@code {user}} in
+ * every message), so identical questions hit across players; stored replies are neutralized
+ * the same way and the reader's name is put back on a hit. Hits and misses count only
+ * lookups with such keys, i.e. requests that may use the cache. Only
+ * villagers whose prompt override sets {@code responseCache} take part, and only for
+ * requests at or below the configured temperature. Entries expire after the TTL and the
+ * least recently used ones are evicted beyond the size limit. The cache is written to
+ * disk on shutdown and read back on start so repeated questions stay warm across restarts.
+ */
+public class ResponseCache {
+
+    private static final Gson GSON = new Gson();
+
+    private final MrpPlugin plugin;
+    private final Path file;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private CacheSettings settings = CacheSettings.disabled();
+    private boolean loaded;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public ResponseCache(MrpPlugin plugin) {
+        this.plugin = plugin;
+        this.file = plugin.getDataFolder().toPath().resolve("cache").resolve("responses.json");
+    }
+
+    public synchronized void reloadSettings() {
+        CacheSettings latest = plugin.getConfigService().getCacheSettings();
+        if (latest != null) {
+            settings = latest;
+        }
+        if (!settings.isResponseCacheEnabled()) {
+            entries.clear();
+            return;
+        }
+        if (!loaded && settings.isPersist()) {
+            loaded = true;
+            load();
+        }
+        evictOverflow();
+    }
+
+    /**
+     * Whether replies to this request may be served from, and stored in, the cache.
+     */
+    public synchronized boolean isCacheable(VillagerProfile profile, ProviderRequest request) {
+        if (!settings.isResponseCacheEnabled() || profile == null || request == null) {
+            return false;
+        }
+        VillagerPromptOverride override = profile.getPromptOverride();
+        return override != null
+            && override.isResponseCacheEnabled()
+            && request.getTemperature() <= settings.getMaxTemperature();
+    }
+
+    public synchronized String get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (isExpired(entry, System.currentTimeMillis())) {
+            entries.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.content;
+    }
+
+    public synchronized void put(String key, String content) {
+        if (!settings.isResponseCacheEnabled() || content == null || content.isBlank()) {
+            return;
+        }
+        entries.put(key, new Entry(content, System.currentTimeMillis()));
+        evictOverflow();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized ResponseCacheStats getStats() {
+        return new ResponseCacheStats(entries.size(), settings.getMaxEntries(), hits, misses, evictions, expirations);
+    }
+
+    public void shutdown() {
+        List<StoredEntry> snapshot;
+        synchronized (this) {
+            if (!settings.isResponseCacheEnabled() || !settings.isPersist()) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            snapshot = new ArrayList<>(entries.size());
+            // 按最近使用顺序写出，重新加载后淘汰顺序保持不变
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                if (!isExpired(entry.getValue(), now)) {
+                    snapshot.add(new StoredEntry(entry.getKey(), entry.getValue().content, entry.getValue().createdAt));
+                }
+            }
+        }
+        save(snapshot);
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > settings.getMaxEntries() && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return settings.getTtlMillis() > 0L && now - entry.createdAt >= settings.getTtlMillis();
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            StoredEntry[] stored = GSON.fromJson(reader, StoredEntry[].class);
+            if (stored == null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            for (StoredEntry entry : stored) {
+                if (entry == null || entry.key == null || entry.content == null) {
+                    continue;
+                }
+                Entry restored = new Entry(entry.content, entry.createdAt);
+                if (!isExpired(restored, now)) {
+                    entries.put(entry.key, restored);
+                }
+            }
+            plugin.getLogger().info("已加载 " + entries.size() + " 条回复缓存");
+        } catch (IOException | JsonParseException e) {
+            plugin.getLogger().warning("读取回复缓存失败: " + e.getMessage());
+        }
+    }
+
+    private void save(List<StoredEntry> snapshot) {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                GSON.toJson(snapshot, writer);
+            }
+            try {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("保存回复缓存失败: " + e.getMessage());
+        }
+    }
+
+    private static final class Entry {
+
+        final String content;
+        final long createdAt;
+
+        Entry(String content, long createdAt) {
+            this.content = content;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private static final class StoredEntry {
+
+        String key;
+        String content;
+        long createdAt;
+
+        // Gson 需要无参构造函数
+        StoredEntry() {
+        }
+
+        StoredEntry(String key, String content, long createdAt) {
+            this.key = key;
+            this.content = content;
+            this.createdAt = createdAt;
+        }
+    }
+}
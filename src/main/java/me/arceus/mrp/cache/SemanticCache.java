@@ -0,0 +1,188 @@
+package me.arceus.mrp.cache;
+
+import me.arceus.mrp.MrpPlugin;
+import me.arceus.mrp.config.CacheSettings;
+import me.arceus.mrp.provider.EmbeddingProvider;
+import me.arceus.mrp.villager.VillagerProfile;
+import me.arceus.mrp.villager.VillagerPromptOverride;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Second cache tier that reuses a villager's earlier reply when a new question is worded
+ * differently but means the same. The player's last line is embedded through the
+ * configured provider's embeddings endpoint and looked up in a per-villager index;
+ * only entries with the same context fingerprint (model, player-neutral system prompt
+ * and the villager's previous line) are eligible, and the similarity must reach the
+ * threshold set in the villager's prompt override. Embedding failures count as misses.
+ */
+public class SemanticCache {
+
+    private final MrpPlugin plugin;
+    private final Map<UUID, SemanticIndex> indexes = new HashMap<>();
+    private CacheSettings settings = CacheSettings.disabled();
+    private long hits;
+    private long misses;
+    private long embedFailures;
+    private long evictions;
+
+    public SemanticCache(MrpPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public synchronized void reloadSettings() {
+        CacheSettings latest = plugin.getConfigService().getCacheSettings();
+        if (latest != null) {
+            settings = latest;
+        }
+        // 容量或向量来源可能已变化，旧索引直接丢弃
+        indexes.values().forEach(index -> evictions += index.getEvictions());
+        indexes.clear();
+    }
+
+    public synchronized boolean isEnabledFor(VillagerProfile profile) {
+        if (!settings.isSemanticEnabled() || profile == null) {
+            return false;
+        }
+        VillagerPromptOverride override = profile.getPromptOverride();
+        return override != null && override.isSemanticCacheEnabled();
+    }
+
+    /**
+     * Hash of everything besides the player's question that shapes the reply.
+     */
+    public static String fingerprint(String model, String neutralSystemPrompt, String previousReply) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+        for (String part : new String[]{model, neutralSystemPrompt, previousReply}) {
+            digest.update((part != null ? part : "").getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Embeds {@code question} and searches the villager's index. Always completes normally;
+     * when the embedding is unavailable the result is a miss that cannot be stored.
+     */
+    public CompletableFuture<Lookup> lookup(VillagerProfile profile, String fingerprint, String question) {
+        CacheSettings current;
+        synchronized (this) {
+            current = settings;
+        }
+        EmbeddingProvider embedder = plugin.getProviderRegistry().getEmbeddingProvider(current.getSemanticProvider());
+        if (embedder == null) {
+            synchronized (this) {
+                embedFailures++;
+                misses++;
+            }
+            return CompletableFuture.completedFuture(new Lookup(profile.getVillagerId(), fingerprint, null, null));
+        }
+
+        double threshold = profile.getPromptOverride().getSemanticCacheThreshold();
+        CompletableFuture<float[]> embedding;
+        try {
+            embedding = embedder.embed(question);
+        } catch (RuntimeException e) {
+            embedding = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<float[]> timed = embedding.orTimeout(current.getEmbedTimeoutMillis(), TimeUnit.MILLISECONDS);
+        CompletableFuture<float[]> source = embedding;
+        return timed.handle((vector, error) -> {
+            if (error != null) {
+                // 超时后取消向量请求，释放连接名额
+                source.cancel(true);
+                synchronized (this) {
+                    embedFailures++;
+                    misses++;
+                }
+                plugin.getLogger().fine("语义缓存向量化失败: " + error.getMessage());
+                return new Lookup(profile.getVillagerId(), fingerprint, null, null);
+            }
+            return search(profile.getVillagerId(), fingerprint, vector, threshold);
+        });
+    }
+
+    /**
+     * Remembers the reply produced after a missed lookup.
+     */
+    public synchronized void store(Lookup lookup, String reply) {
+        if (!settings.isSemanticEnabled() || lookup == null || lookup.vector == null
+            || reply == null || reply.isBlank()) {
+            return;
+        }
+        indexes.computeIfAbsent(lookup.villagerId, id -> new SemanticIndex(settings.getSemanticMaxEntries()))
+            .add(lookup.fingerprint, lookup.vector, reply, System.currentTimeMillis());
+    }
+
+    public synchronized void invalidateVillager(UUID villagerId) {
+        SemanticIndex removed = indexes.remove(villagerId);
+        if (removed != null) {
+            evictions += removed.getEvictions();
+        }
+    }
+
+    public synchronized SemanticCacheStats getStats() {
+        int entries = 0;
+        long totalEvictions = evictions;
+        for (SemanticIndex index : indexes.values()) {
+            entries += index.size();
+            totalEvictions += index.getEvictions();
+        }
+        return new SemanticCacheStats(indexes.size(), entries, hits, misses, embedFailures, totalEvictions);
+    }
+
+    private synchronized Lookup search(UUID villagerId, String fingerprint, float[] vector, double threshold) {
+        SemanticIndex index = indexes.get(villagerId);
+        SemanticIndex.Entry match = index != null
+            ? index.nearest(fingerprint, vector, threshold, System.currentTimeMillis(), settings.getSemanticTtlMillis())
+            : null;
+        if (match != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return new Lookup(villagerId, fingerprint, vector, match != null ? match.reply : null);
+    }
+
+    /**
+     * Outcome of a lookup; carries the query embedding so a miss can be stored without embedding again.
+     */
+    public static final class Lookup {
+
+        private final UUID villagerId;
+        private final String fingerprint;
+        private final float[] vector;
+        private final String reply;
+
+        Lookup(UUID villagerId, String fingerprint, float[] vector, String reply) {
+            this.villagerId = villagerId;
+            this.fingerprint = fingerprint;
+            this.vector = vector;
+            this.reply = reply;
+        }
+
+        public boolean isHit() {
+            return reply != null;
+        }
+
+        public String getReply() {
+            return reply;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package me.arceus.mrp.cache;
+
+/**
+ * Point-in-time counters of the semantic reply cache.
+ */
+public class SemanticCacheStats {
+
+    private final int villagers;
+    private final int entries;
+    private final long hits;
+    private final long misses;
+    private final long embedFailures;
+    private final long evictions;
+
+    public SemanticCacheStats(int villagers, int entries, long hits, long misses, long embedFailures, long evictions) {
+        this.villagers = villagers;
+        this.entries = entries;
+        this.hits = hits;
+        this.misses = misses;
+        this.embedFailures = embedFailures;
+        this.evictions = evictions;
+    }
+
+    public int getVillagers() {
+        return villagers;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Lookups without a close enough entry, including those whose embedding failed.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEmbedFailures() {
+        return embedFailures;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0D : hits / (double) lookups;
+    }
+}
@@ -0,0 +1,214 @@
+package me.arceus.mrp.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Approximate nearest-neighbour index of one villager's cached replies. Vectors are
+ * bucketed by random-hyperplane signatures in several tables, so a lookup only scores
+ * entries that share a bucket with the query in at least one table. Small indexes are
+ * scanned exactly instead. Not thread-safe; guarded by {@link SemanticCache}.
+ */
+class SemanticIndex {
+
+    private static final int TABLES = 6;
+    private static final int BITS = 8;
+    private static final int EXACT_SCAN_LIMIT = 64;
+    private static final long SEED = 0x6D72704C5348L;
+
+    private final int capacity;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final List<Map<Integer, List<Entry>>> tables = new ArrayList<>(TABLES);
+    private float[][][] planes;
+    private int dimension;
+    private long nextId;
+    private long evictions;
+
+    SemanticIndex(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        for (int i = 0; i < TABLES; i++) {
+            tables.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Best entry with the same fingerprint whose similarity reaches the threshold, or {@code null}.
+     */
+    Entry nearest(String fingerprint, float[] vector, double threshold, long now, long ttlMillis) {
+        float[] query = normalize(vector);
+        if (query == null || query.length != dimension) {
+            return null;
+        }
+        Iterable<Entry> candidates = entries.size() <= EXACT_SCAN_LIMIT ? new ArrayList<>(entries.values()) : candidates(query);
+        Entry best = null;
+        double bestScore = threshold;
+        List<Entry> expired = new ArrayList<>();
+        for (Entry entry : candidates) {
+            if (ttlMillis > 0L && now - entry.createdAt >= ttlMillis) {
+                expired.add(entry);
+                continue;
+            }
+            if (!entry.fingerprint.equals(fingerprint)) {
+                continue;
+            }
+            double score = dot(query, entry.vector);
+            if (score >= bestScore) {
+                bestScore = score;
+                best = entry;
+            }
+        }
+        expired.forEach(this::remove);
+        if (best != null) {
+            // 刷新访问顺序，常被命中的条目不会先被淘汰
+            entries.get(best.id);
+        }
+        return best;
+    }
+
+    void add(String fingerprint, float[] vector, String reply, long now) {
+        float[] unit = normalize(vector);
+        if (unit == null) {
+            return;
+        }
+        if (unit.length != dimension) {
+            // 向量模型更换后维度不同，旧条目无法比较，整体重建
+            clear();
+            dimension = unit.length;
+            planes = buildPlanes(dimension);
+        }
+        Entry entry = new Entry(nextId++, fingerprint, unit, reply, now, signatures(unit));
+        entries.put(entry.id, entry);
+        for (int t = 0; t < TABLES; t++) {
+            tables.get(t).computeIfAbsent(entry.signatures[t], key -> new ArrayList<>()).add(entry);
+        }
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > capacity && eldest.hasNext()) {
+            Entry victim = eldest.next();
+            eldest.remove();
+            unlink(victim);
+            evictions++;
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long getEvictions() {
+        return evictions;
+    }
+
+    void clear() {
+        entries.clear();
+        tables.forEach(Map::clear);
+    }
+
+    private List<Entry> candidates(float[] query) {
+        int[] signatures = signatures(query);
+        Map<Long, Entry> unique = new LinkedHashMap<>();
+        for (int t = 0; t < TABLES; t++) {
+            List<Entry> bucket = tables.get(t).get(signatures[t]);
+            if (bucket != null) {
+                bucket.forEach(entry -> unique.putIfAbsent(entry.id, entry));
+            }
+        }
+        return new ArrayList<>(unique.values());
+    }
+
+    private void remove(Entry entry) {
+        if (entries.remove(entry.id) != null) {
+            unlink(entry);
+        }
+    }
+
+    private void unlink(Entry entry) {
+        for (int t = 0; t < TABLES; t++) {
+            List<Entry> bucket = tables.get(t).get(entry.signatures[t]);
+            if (bucket != null) {
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    tables.get(t).remove(entry.signatures[t]);
+                }
+            }
+        }
+    }
+
+    private int[] signatures(float[] unit) {
+        int[] signatures = new int[TABLES];
+        for (int t = 0; t < TABLES; t++) {
+            int signature = 0;
+            for (int b = 0; b < BITS; b++) {
+                if (dot(unit, planes[t][b]) >= 0D) {
+                    signature |= 1 << b;
+                }
+            }
+            signatures[t] = signature;
+        }
+        return signatures;
+    }
+
+    private static float[][][] buildPlanes(int dimension) {
+        // 固定种子，同一维度下每次生成的超平面一致
+        Random random = new Random(SEED ^ dimension);
+        float[][][] planes = new float[TABLES][BITS][dimension];
+        for (int t = 0; t < TABLES; t++) {
+            for (int b = 0; b < BITS; b++) {
+                for (int d = 0; d < dimension; d++) {
+                    planes[t][b][d] = (float) random.nextGaussian();
+                }
+            }
+        }
+        return planes;
+    }
+
+    private static float[] normalize(float[] vector) {
+        if (vector == null || vector.length == 0) {
+            return null;
+        }
+        double norm = 0D;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm <= 0D) {
+            return null;
+        }
+        float scale = (float) (1D / Math.sqrt(norm));
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = vector[i] * scale;
+        }
+        return unit;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0D;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    static final class Entry {
+
+        final long id;
+        final String fingerprint;
+        final float[] vector;
+        final String reply;
+        final long createdAt;
+        final int[] signatures;
+
+        Entry(long id, String fingerprint, float[] vector, String reply, long createdAt, int[] signatures) {
+            this.id = id;
+            this.fingerprint = fingerprint;
+            this.vector = vector;
+            this.reply = reply;
+            this.createdAt = createdAt;
+            this.signatures = signatures;
+        }
+    }
+}
@@ -1,9 +1,37 @@
 package me.arceus.mrp.command;
 
 import me.arceus.mrp.MrpPlugin;
+import me.arceus.mrp.cache.ResponseCacheStats;
+import me.arceus.mrp.cache.SemanticCacheStats;
 import me.arceus.mrp.conversation.ConversationChatService;
 import me.arceus.mrp.conversation.ConversationSessionManager;
 import me.arceus.mrp.config.ConversationDisplayMode;
+import me.arceus.mrp.config.StorageSettings;
+import me.arceus.mrp.conversation.PromptUsage;
+import me.arceus.mrp.conversation.RequestQueueStats;
+import me.arceus.mrp.conversation.SessionCacheStats;
+import me.arceus.mrp.conversation.StorageWriteStats;
+import me.arceus.mrp.conversation.SummaryStats;
+import me.arceus.mrp.logging.ConversationLogQuery;
+import me.arceus.mrp.logging.DebugStats;
+import me.arceus.mrp.logging.DebugTracer;
+import me.arceus.mrp.logging.LogAggregate;
+import me.arceus.mrp.logging.LogSearchHit;
+import me.arceus.mrp.logging.LoggingStats;
+import me.arceus.mrp.memory.MemoryStats;
+import me.arceus.mrp.metrics.HistogramSnapshot;
+import me.arceus.mrp.metrics.MetricsRegistry;
+import me.arceus.mrp.metrics.MetricsSnapshot;
+import me.arceus.mrp.prompt.PromptCacheStats;
+import me.arceus.mrp.provider.CircuitBreaker;
+import me.arceus.mrp.provider.CircuitBreakerStats;
+import me.arceus.mrp.provider.LLMProvider;
+import me.arceus.mrp.provider.OpenAiProvider;
+import me.arceus.mrp.provider.ProviderRegistry;
+import me.arceus.mrp.provider.ProviderRouter;
+import me.arceus.mrp.provider.ProviderTransport;
+import me.arceus.mrp.provider.RateLimitStats;
+import me.arceus.mrp.provider.RateLimitedProvider;
 import me.arceus.mrp.villager.VillagerProfile;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -21,6 +49,7 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
 
 public class MrpCommandExecutor implements CommandExecutor {
@@ -57,6 +86,14 @@ public class MrpCommandExecutor implements CommandExecutor {
                 return handleEnd(sender);
             case "character":
                 return handleCharacter(sender, subArgs);
+            case "status":
+                return handleStatus(sender);
+            case "logs":
+                return handleLogs(sender, subArgs);
+            case "debug":
+                return handleDebug(sender, subArgs);
+            case "stats":
+                return handleStats(sender, subArgs);
             case "help":
             default:
                 return handleHelp(sender, label);
@@ -140,11 +177,6 @@ public class MrpCommandExecutor implements CommandExecutor {
             return true;
         }
 
-        if (chatService.isProcessing(player.getUniqueId())) {
-            sender.sendMessage("村民正在思考，请稍候再试。");
-            return true;
-        }
-
         String playerInput = String.join(" ", args);
         chatService.sendPlayerMessage(player, profile, playerInput);
 
@@ -282,6 +314,438 @@ public class MrpCommandExecutor implements CommandExecutor {
         return true;
     }
 
+    private boolean handleStatus(CommandSender sender) {
+        if (!requireAdmin(sender)) {
+            return true;
+        }
+        sender.sendMessage("MRP 运行状态：");
+        sender.sendMessage("执行后端: " + plugin.getExecutionBackend().describe());
+
+        StorageSettings storageSettings = plugin.getConfigService().getStorageSettings();
+        StorageWriteStats writeStats = plugin.getConversationStorage().getWriteStats();
+        sender.sendMessage("存储: 模式=" + storageSettings.getMode().name().toLowerCase(Locale.ROOT)
+            + " 写后缓冲=" + (storageSettings.isWriteBehind() ? "开启" : "关闭"));
+        sender.sendMessage(" - 待写会话 " + writeStats.getQueueDepth()
+            + "，已提交更新 " + writeStats.getSubmittedUpdates()
+            + "，合并 " + writeStats.getCoalescedUpdates()
+            + "，批次 " + writeStats.getBatches());
+        sender.sendMessage(" - 刷盘耗时 最近 " + formatMillis(writeStats.getLastFlushMillis())
+            + " / 平均 " + formatMillis(writeStats.getAverageFlushMillis())
+            + " / 最大 " + formatMillis(writeStats.getMaxFlushMillis()));
+
+        SessionCacheStats cacheStats = plugin.getSessionManager().getCacheStats();
+        sender.sendMessage("会话缓存: " + cacheStats.getSize() + "/" + cacheStats.getCapacity()
+            + "，命中 " + cacheStats.getHits()
+            + "，未命中 " + cacheStats.getMisses()
+            + "，命中率 " + String.format(Locale.ROOT, "%.1f%%", cacheStats.getHitRatio() * 100D)
+            + "，淘汰 " + cacheStats.getEvictions());
+        sender.sendMessage(" - 预加载: 请求 " + cacheStats.getPrefetchRequested()
+            + "，完成 " + cacheStats.getPrefetchLoaded()
+            + "，待用 " + cacheStats.getPrefetchReady()
+            + "，过期 " + cacheStats.getPrefetchExpired());
+        sender.sendMessage(" - 冷加载命中预加载 " + cacheStats.getPrefetchHits()
+            + "，主线程同步加载 " + cacheStats.getPrefetchMisses()
+            + "，命中率 " + String.format(Locale.ROOT, "%.1f%%", cacheStats.getPrefetchHitRatio() * 100D));
+
+        ResponseCacheStats responseStats = plugin.getResponseCache().getStats();
+        sender.sendMessage("回复缓存: " + responseStats.getSize() + "/" + responseStats.getCapacity()
+            + "，命中 " + responseStats.getHits()
+            + "，未命中 " + responseStats.getMisses()
+            + "，命中率 " + String.format(Locale.ROOT, "%.1f%%", responseStats.getHitRatio() * 100D)
+            + "，淘汰 " + responseStats.getEvictions()
+            + "，过期 " + responseStats.getExpirations());
+        SemanticCacheStats semanticStats = plugin.getSemanticCache().getStats();
+        sender.sendMessage("语义缓存: 村民 " + semanticStats.getVillagers()
+            + "，条目 " + semanticStats.getEntries()
+            + "，命中 " + semanticStats.getHits()
+            + "，未命中 " + semanticStats.getMisses()
+            + "，命中率 " + String.format(Locale.ROOT, "%.1f%%", semanticStats.getHitRatio() * 100D)
+            + "，向量化失败 " + semanticStats.getEmbedFailures()
+            + "，淘汰 " + semanticStats.getEvictions());
+        sender.sendMessage("Token 计数: " + plugin.getTokenizer().describe());
+        PromptUsage usage = plugin.getConversationChatService().getPromptUsage();
+        sender.sendMessage("上游提示缓存: 请求 " + usage.getRequests()
+            + "，输入 " + usage.getPromptTokens() + " token"
+            + "，缓存命中 " + usage.getCachedTokens() + " token"
+            + "（" + String.format(Locale.ROOT, "%.1f%%", usage.getCachedRatio() * 100D) + "）");
+        for (PromptUsage villagerUsage : plugin.getConversationChatService().getTopPromptUsage(5)) {
+            sender.sendMessage("  - " + villagerUsage.getVillagerName()
+                + ": 请求 " + villagerUsage.getRequests()
+                + "，输入 " + villagerUsage.getPromptTokens()
+                + "，缓存 " + String.format(Locale.ROOT, "%.1f%%", villagerUsage.getCachedRatio() * 100D));
+        }
+        PromptCacheStats promptStats = plugin.getPromptService().getCacheStats();
+        sender.sendMessage("系统提示缓存: 条目 " + promptStats.getEntries()
+            + "，命中 " + promptStats.getHits()
+            + "，未命中 " + promptStats.getMisses()
+            + "，命中率 " + String.format(Locale.ROOT, "%.1f%%", promptStats.getHitRatio() * 100D));
+        SummaryStats summaryStats = plugin.getSessionManager().getSummaryStats();
+        sender.sendMessage("对话摘要: 进行中 " + summaryStats.getRunning()
+            + "，完成 " + summaryStats.getCompleted()
+            + "，失败 " + summaryStats.getFailed()
+            + "，丢弃 " + summaryStats.getDiscarded());
+        MemoryStats memoryStats = plugin.getMemoryStore().getStats();
+        sender.sendMessage("长期记忆: 已加载分片 " + memoryStats.getLoadedShards() + "/" + memoryStats.getMaxLoadedShards()
+            + "，分片内消息 " + memoryStats.getLoadedDocuments()
+            + "，新增索引 " + memoryStats.getIndexed()
+            + "，检索 " + memoryStats.getRecalls()
+            + "，召回 " + memoryStats.getRecalled()
+            + "，延后读取 " + memoryStats.getDeferred()
+            + "，失败 " + memoryStats.getFailures());
+        LoggingStats loggingStats = plugin.getConversationLogger().getStats();
+        sender.sendMessage("对话日志: 缓冲 " + loggingStats.getQueueDepth() + "/" + loggingStats.getCapacity()
+            + "，打开文件 " + loggingStats.getOpenFiles()
+            + "，已写 " + loggingStats.getWritten()
+            + "，批次 " + loggingStats.getBatches()
+            + "，刷盘 " + loggingStats.getFlushes()
+            + "，滚动 " + loggingStats.getRotations()
+            + "，压缩 " + loggingStats.getCompressed()
+            + "，失败 " + loggingStats.getFailures());
+        sender.sendMessage(" - 缓冲区满: 等待 " + loggingStats.getBlocked()
+            + "，丢弃最旧 " + loggingStats.getDroppedOldest()
+            + "，采样丢弃 " + loggingStats.getDroppedSampled());
+
+        RequestQueueStats queueStats = plugin.getConversationChatService().getQueueStats();
+        sender.sendMessage("对话队列: 进行中 " + queueStats.getActiveTurns() + "/" + queueStats.getMaxActiveTurns()
+            + "，等待玩家 " + queueStats.getWaitingPlayers()
+            + "，排队消息 " + queueStats.getQueuedMessages());
+        sender.sendMessage(" - 已发送轮次 " + queueStats.getDispatchedTurns()
+            + "，合并消息 " + queueStats.getCoalescedMessages()
+            + "，因队列已满拒绝 " + queueStats.getRejectedMessages());
+
+        ProviderRegistry providerRegistry = plugin.getProviderRegistry();
+        ProviderTransport transport = providerRegistry.getTransport();
+        sender.sendMessage("Provider 连接: 协议=" + (transport.isHttp2Enabled() ? "HTTP/2 优先" : "HTTP/1.1")
+            + "，共享连接池 " + transport.getClientCount());
+        for (LLMProvider provider : providerRegistry.getProviders().values()) {
+            LLMProvider target = provider instanceof RateLimitedProvider limited ? limited.getDelegate() : provider;
+            if (target instanceof OpenAiProvider openAi) {
+                sender.sendMessage(" - " + provider.getName() + ": 进行中 " + openAi.getActiveRequests()
+                    + "/" + openAi.getMaxConcurrentRequests() + "，排队 " + openAi.getQueuedRequests());
+            }
+            if (provider instanceof RateLimitedProvider limited) {
+                RateLimitStats stats = limited.getStats();
+                sender.sendMessage("   每分钟额度: 请求余量 " + formatBudget(stats.getAvailableRequests(), stats.getRequestsPerMinute())
+                    + "，token 余量 " + formatBudget(stats.getAvailableTokens(), stats.getTokensPerMinute()));
+                sender.sendMessage("   放行 " + stats.getAdmitted()
+                    + "（其中等待 " + stats.getDelayed() + "，平均 " + formatMillis(stats.getAverageWaitMillis()) + "）"
+                    + "，本地限流 " + stats.getThrottled()
+                    + "，上游 429 " + stats.getUpstreamRateLimited()
+                    + "，降级回复 " + stats.getDegraded());
+            }
+        }
+
+        ProviderRouter router = providerRegistry.getRouter();
+        List<String> chain = router.getFailoverChain();
+        sender.sendMessage("故障转移: 备用链 " + (chain.isEmpty() ? "(未配置)" : String.join(" -> ", chain))
+            + "，请求 " + router.getRoutedRequests()
+            + "，转移 " + router.getFailovers()
+            + "，全部失败 " + router.getExhausted());
+        if (router.isCoalescingEnabled()) {
+            sender.sendMessage("相同请求合并: 进行中 " + router.getInFlightCalls()
+                + "，共享上游结果 " + router.getCoalescedRequests());
+        }
+        if (router.isHedgingEnabled()) {
+            long hedgedRequests = router.getHedgedRequests();
+            sender.sendMessage("请求对冲: 已对冲 " + hedgedRequests
+                + "，备用胜出 " + router.getHedgeWins()
+                + (hedgedRequests > 0 ? String.format(Locale.ROOT, " (%.0f%%)", router.getHedgeWins() * 100D / hedgedRequests) : "")
+                + "，超出预算跳过 " + router.getHedgesOverBudget());
+        }
+        for (Map.Entry<String, CircuitBreakerStats> entry : router.getBreakerStats().entrySet()) {
+            CircuitBreakerStats breaker = entry.getValue();
+            sender.sendMessage(" - " + entry.getKey() + ": " + formatBreakerState(breaker.getState())
+                + "，失败率 " + String.format(Locale.ROOT, "%.0f%%", breaker.getFailureRate() * 100D)
+                + "，延迟 p50/p95/p99 " + formatLatency(breaker.getP50Millis())
+                + "/" + formatLatency(breaker.getP95Millis())
+                + "/" + formatLatency(breaker.getP99Millis())
+                + "，熔断 " + breaker.getOpenTransitions() + " 次，跳过 " + breaker.getRejected());
+        }
+        return true;
+    }
+
+    private boolean handleLogs(CommandSender sender, String[] args) {
+        if (!requireAdmin(sender)) {
+            return true;
+        }
+        ConversationLogQuery query = plugin.getConversationLogger().getQuery();
+        String action = args.length > 0 ? args[0].toLowerCase(Locale.ROOT) : "summary";
+        switch (action) {
+            case "summary": {
+                int days = parseLogDays(sender, args, 1);
+                if (days > 0) {
+                    query.summary(days).whenComplete((total, error) -> deliverLogResult(sender, error, () ->
+                        sender.sendMessage("最近 " + days + " 天对话日志: 消息 " + total.getRecords()
+                            + "，回复 " + total.getReplies()
+                            + "（模型生成 " + total.getModelCalls() + "）"
+                            + "，输入 " + total.getPromptTokens() + " token"
+                            + "，输出 " + total.getCompletionTokens() + " token"
+                            + "，平均排队 " + formatMillis(total.getAverageQueueMillis())
+                            + "，平均上游耗时 " + formatMillis(total.getAverageLatencyMillis()))));
+                }
+                return true;
+            }
+            case "top": {
+                if (args.length < 2) {
+                    sender.sendMessage("用法: /mrp logs top <villagers|players> [天数] [tokens|messages|latency]");
+                    return true;
+                }
+                ConversationLogQuery.Dimension dimension = switch (args[1].toLowerCase(Locale.ROOT)) {
+                    case "villagers", "villager", "村民" -> ConversationLogQuery.Dimension.VILLAGER;
+                    case "players", "player", "玩家" -> ConversationLogQuery.Dimension.PLAYER;
+                    default -> null;
+                };
+                if (dimension == null) {
+                    sender.sendMessage("排名对象应为 villagers 或 players。");
+                    return true;
+                }
+                int days = parseLogDays(sender, args, 2);
+                if (days <= 0) {
+                    return true;
+                }
+                ConversationLogQuery.Metric metric;
+                try {
+                    metric = args.length > 3
+                        ? ConversationLogQuery.Metric.valueOf(args[3].toUpperCase(Locale.ROOT))
+                        : ConversationLogQuery.Metric.TOKENS;
+                } catch (IllegalArgumentException e) {
+                    sender.sendMessage("排名依据应为 tokens、messages 或 latency。");
+                    return true;
+                }
+                String subject = dimension == ConversationLogQuery.Dimension.VILLAGER ? "村民" : "玩家";
+                query.top(dimension, metric, days, 10).whenComplete((top, error) -> deliverLogResult(sender, error, () -> {
+                    if (top.isEmpty()) {
+                        sender.sendMessage("最近 " + days + " 天没有对话日志。");
+                        return;
+                    }
+                    sender.sendMessage("最近 " + days + " 天按 " + metric.name().toLowerCase(Locale.ROOT)
+                        + " 排名前 " + top.size() + " 的" + subject + ":");
+                    for (int i = 0; i < top.size(); i++) {
+                        LogAggregate entry = top.get(i);
+                        sender.sendMessage(" " + (i + 1) + ". " + entry.getName()
+                            + ": token " + entry.getTotalTokens()
+                            + "（输入 " + entry.getPromptTokens() + " / 输出 " + entry.getCompletionTokens() + "）"
+                            + "，消息 " + entry.getRecords()
+                            + "，平均上游耗时 " + formatMillis(entry.getAverageLatencyMillis()));
+                    }
+                }));
+                return true;
+            }
+            case "search": {
+                if (args.length < 2) {
+                    sender.sendMessage("用法: /mrp logs search <关键字> [天数]");
+                    return true;
+                }
+                int days = parseLogDays(sender, args, 2);
+                if (days <= 0) {
+                    return true;
+                }
+                query.search(args[1], days, 10).whenComplete((hits, error) -> deliverLogResult(sender, error, () -> {
+                    sender.sendMessage("最近 " + days + " 天匹配 \"" + args[1] + "\" 的记录 " + hits.size() + " 条:");
+                    for (LogSearchHit hit : hits) {
+                        String message = hit.getMessage() != null ? hit.getMessage().replace('\n', ' ') : "";
+                        if (message.length() > 60) {
+                            message = message.substring(0, 60) + "...";
+                        }
+                        String time = hit.getTime() != null ? hit.getTime().replace('T', ' ') : "";
+                        sender.sendMessage(" [" + (time.length() > 19 ? time.substring(0, 19) : time) + "] " + hit.getVillager()
+                            + " / " + hit.getPlayer() + " " + hit.getRole() + ": " + message);
+                    }
+                }));
+                return true;
+            }
+            default:
+                sender.sendMessage("用法: /mrp logs [summary [天数]|top <villagers|players> [天数] [tokens|messages|latency]|search <关键字> [天数]]");
+                return true;
+        }
+    }
+
+    private boolean handleStats(CommandSender sender, String[] args) {
+        if (!requireAdmin(sender)) {
+            return true;
+        }
+        MetricsRegistry metrics = plugin.getMetrics();
+        if (args.length > 0 && args[0].equalsIgnoreCase("reset")) {
+            metrics.reset();
+            sender.sendMessage("性能统计已清零。");
+            return true;
+        }
+        String prefix = args.length > 0 ? args[0].toLowerCase(Locale.ROOT) : null;
+        MetricsSnapshot snapshot = metrics.snapshot(prefix);
+        double minutes = (System.currentTimeMillis() - snapshot.getSinceMillis()) / 60_000D;
+        sender.sendMessage("性能统计（最近 " + String.format(Locale.ROOT, "%.1f", minutes) + " 分钟"
+            + (prefix != null ? "，前缀 " + prefix : "") + "）:");
+        boolean empty = true;
+        for (HistogramSnapshot histogram : snapshot.getHistograms()) {
+            if (histogram.getCount() == 0L) {
+                continue;
+            }
+            empty = false;
+            sender.sendMessage(" - " + histogram.getName() + ": " + histogram.getCount() + " 次"
+                + "，p50/p95/p99 " + String.format(Locale.ROOT, "%.1f/%.1f/%.1fms",
+                    histogram.getP50Millis(), histogram.getP95Millis(), histogram.getP99Millis())
+                + "，平均 " + formatMillis(histogram.getMeanMillis())
+                + "，最大 " + formatMillis(histogram.getMaxMillis()));
+        }
+        if (empty) {
+            sender.sendMessage(" - 暂无耗时记录");
+        }
+        Map<String, Long> counters = snapshot.getCounters();
+        if (!counters.isEmpty()) {
+            sender.sendMessage("计数:");
+            counters.forEach((name, value) -> sender.sendMessage(" - " + name + ": " + value));
+        }
+        Map<String, Long> gauges = snapshot.getGauges();
+        if (!gauges.isEmpty()) {
+            sender.sendMessage("当前值:");
+            gauges.forEach((name, value) -> sender.sendMessage(" - " + name + ": " + value));
+        }
+        return true;
+    }
+
+    private boolean handleDebug(CommandSender sender, String[] args) {
+        if (!requireAdmin(sender)) {
+            return true;
+        }
+        DebugTracer tracer = plugin.getDebugTracer();
+        String action = args.length > 0 ? args[0].toLowerCase(Locale.ROOT) : "status";
+        switch (action) {
+            case "status":
+                break;
+            case "on": {
+                if (args.length > 1) {
+                    double rate = parseRate(sender, args[1]);
+                    if (rate < 0D) {
+                        return true;
+                    }
+                    tracer.setDefaultRate(rate);
+                }
+                tracer.setEnabled(true);
+                break;
+            }
+            case "off":
+                tracer.setEnabled(false);
+                break;
+            case "villager": {
+                if (args.length < 3) {
+                    sender.sendMessage("用法: /mrp debug villager <名称|ID|UUID> <比例>");
+                    return true;
+                }
+                VillagerProfile profile = resolveVillager(sender, args[1], false);
+                double rate = profile != null ? parseRate(sender, args[2]) : -1D;
+                if (rate < 0D) {
+                    return true;
+                }
+                tracer.setVillagerRate(profile.getVillagerId().toString(), rate);
+                sender.sendMessage("村民 " + formatVillagerLabel(profile) + " 的追踪比例已设为 " + formatRate(rate));
+                break;
+            }
+            case "player": {
+                if (args.length < 3) {
+                    sender.sendMessage("用法: /mrp debug player <名称> <比例>");
+                    return true;
+                }
+                double rate = parseRate(sender, args[2]);
+                if (rate < 0D) {
+                    return true;
+                }
+                // 在线玩家按 UUID 记录，改名后依然生效
+                Player target = Bukkit.getPlayerExact(args[1]);
+                tracer.setPlayerRate(target != null ? target.getUniqueId().toString() : args[1], rate);
+                sender.sendMessage("玩家 " + args[1] + " 的追踪比例已设为 " + formatRate(rate));
+                break;
+            }
+            case "full": {
+                if (args.length < 2 || !args[1].equalsIgnoreCase("on") && !args[1].equalsIgnoreCase("off")) {
+                    sender.sendMessage("用法: /mrp debug full <on|off>");
+                    return true;
+                }
+                tracer.setFullPayloads(args[1].equalsIgnoreCase("on"));
+                break;
+            }
+            case "reset":
+                tracer.reloadSettings();
+                sender.sendMessage("调试追踪已恢复为配置文件中的设置。");
+                break;
+            default:
+                sender.sendMessage("用法: /mrp debug [status|on [比例]|off|villager <名称|ID|UUID> <比例>|player <名称> <比例>|full <on|off>|reset]");
+                return true;
+        }
+        DebugStats stats = tracer.getStats();
+        sender.sendMessage("调试追踪: " + (stats.isEnabled() ? "开启" : "关闭")
+            + "，默认比例 " + formatRate(stats.getSampleRate())
+            + "，单独设置 村民 " + stats.getVillagerOverrides() + " / 玩家 " + stats.getPlayerOverrides()
+            + "，内容" + (stats.isFullPayloads() ? "不截断" : "截断至 " + stats.getMaxPayloadChars() + " 字符"));
+        sender.sendMessage(" - 已追踪 " + stats.getTraced() + " 轮，输出 " + stats.getEmitted()
+            + " 条，待输出 " + stats.getPending() + "，积压丢弃 " + stats.getDropped());
+        return true;
+    }
+
+    private double parseRate(CommandSender sender, String raw) {
+        try {
+            double rate = Double.parseDouble(raw);
+            if (rate >= 0D && rate <= 1D) {
+                return rate;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        sender.sendMessage("比例应为 0 到 1 之间的数字。");
+        return -1D;
+    }
+
+    private String formatRate(double rate) {
+        return String.format(Locale.ROOT, "%.0f%%", rate * 100D);
+    }
+
+    private int parseLogDays(CommandSender sender, String[] args, int index) {
+        if (args.length <= index) {
+            return 7;
+        }
+        try {
+            int days = Integer.parseInt(args[index]);
+            if (days >= 1 && days <= 90) {
+                return days;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        sender.sendMessage("天数应为 1 到 90 之间的数字。");
+        return -1;
+    }
+
+    private void deliverLogResult(CommandSender sender, Throwable error, Runnable onSuccess) {
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            if (error == null) {
+                onSuccess.run();
+                return;
+            }
+            Throwable cause = error.getCause() != null ? error.getCause() : error;
+            sender.sendMessage("查询对话日志失败: " + cause.getMessage());
+        });
+    }
+
+    private String formatBreakerState(CircuitBreaker.State state) {
+        return switch (state) {
+            case CLOSED -> "正常";
+            case OPEN -> "熔断";
+            case HALF_OPEN -> "试探中";
+        };
+    }
+
+    private String formatLatency(long millis) {
+        return millis < 0L ? "-" : millis + "ms";
+    }
+
+    private String formatBudget(double available, int perMinute) {
+        if (perMinute <= 0) {
+            return "不限";
+        }
+        return String.format(Locale.ROOT, "%.0f", available) + "/" + perMinute;
+    }
+
+    private String formatMillis(double millis) {
+        return String.format(Locale.ROOT, "%.1fms", millis);
+    }
+
     private boolean handleList(CommandSender sender, String[] args) {
         String keyword = args.length > 0 ? String.join(" ", args).toLowerCase(Locale.ROOT) : null;
         List<VillagerProfile> profiles = plugin.getVillagerRegistry().getProfiles().stream()
@@ -495,6 +959,10 @@ public class MrpCommandExecutor implements CommandExecutor {
         sender.sendMessage("/" + label + " list [关键字] - 查看已注册村民列表");
         sender.sendMessage("/" + label + " end - 结束当前村民对话");
         sender.sendMessage("/" + label + " reload - 重载全局配置 (管理员)");
+        sender.sendMessage("/" + label + " status - 查看运行状态 (管理员)");
+        sender.sendMessage("/" + label + " logs [summary|top|search] ... - 查询结构化对话日志 (管理员)");
+        sender.sendMessage("/" + label + " stats [前缀|reset] - 查看各阶段耗时分布与计数 (管理员)");
+        sender.sendMessage("/" + label + " debug [on|off|villager|player|full|reset] ... - 抽样追踪提示与 Provider 请求 (管理员)");
         sender.sendMessage("/" + label + " character reload <名称|ID|UUID> - 重载村民配置 (管理员)");
         sender.sendMessage("/" + label + " character clear [名称|ID|UUID] - 清空与村民的对话历史");
         sender.sendMessage("/" + label + " character tp [名称|ID|UUID] - 将村民传送到你身边");
@@ -0,0 +1,122 @@
+package me.arceus.mrp.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Creates the plugin's background threads. When enabled and the runtime supports them
+ * (JDK 21+), threads are virtual; otherwise daemon platform threads are used. The plugin
+ * is compiled for Java 17, so virtual-thread APIs are looked up reflectively.
+ */
+public final class ExecutionBackend {
+
+    private final boolean virtual;
+    private final Method ofVirtual;
+    private final Method builderName;
+    private final Method builderNameCounter;
+    private final Method builderFactory;
+    private final Method newThreadPerTaskExecutor;
+
+    private ExecutionBackend(Method ofVirtual,
+                             Method builderName,
+                             Method builderNameCounter,
+                             Method builderFactory,
+                             Method newThreadPerTaskExecutor) {
+        this.virtual = ofVirtual != null;
+        this.ofVirtual = ofVirtual;
+        this.builderName = builderName;
+        this.builderNameCounter = builderNameCounter;
+        this.builderFactory = builderFactory;
+        this.newThreadPerTaskExecutor = newThreadPerTaskExecutor;
+    }
+
+    public static ExecutionBackend platform() {
+        return new ExecutionBackend(null, null, null, null, null);
+    }
+
+    /**
+     * Returns a virtual-thread backend when requested and available, the platform backend otherwise.
+     */
+    public static ExecutionBackend create(boolean preferVirtual, Logger logger) {
+        if (!preferVirtual) {
+            return platform();
+        }
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Method name = builderType.getMethod("name", String.class);
+            Method nameCounter = builderType.getMethod("name", String.class, long.class);
+            Method factory = builderType.getMethod("factory");
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            ExecutionBackend backend = new ExecutionBackend(ofVirtual, name, nameCounter, factory, perTask);
+            // JDK 19/20 中虚拟线程属于预览特性，未开启时这里会抛出异常
+            backend.threadFactory("mrp-probe").newThread(() -> { });
+            return backend;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            if (logger != null) {
+                logger.warning("当前 Java 运行时不支持虚拟线程，继续使用平台线程: " + e);
+            }
+            return platform();
+        }
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public String describe() {
+        return virtual ? "虚拟线程" : "平台线程";
+    }
+
+    /**
+     * Factory for long-lived threads that all share the given name.
+     */
+    public ThreadFactory threadFactory(String name) {
+        if (virtual) {
+            return virtualFactory(name, false);
+        }
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public ExecutorService newSingleThreadExecutor(String name) {
+        return Executors.newSingleThreadExecutor(threadFactory(name));
+    }
+
+    /**
+     * Executor for short blocking tasks. Virtual mode starts one thread per task; platform
+     * mode reuses a cached pool of daemon threads.
+     */
+    public ExecutorService newTaskExecutor(String namePrefix) {
+        if (virtual) {
+            try {
+                return (ExecutorService) newThreadPerTaskExecutor.invoke(null, virtualFactory(namePrefix, true));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("无法创建虚拟线程执行器", e);
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, namePrefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private ThreadFactory virtualFactory(String name, boolean numbered) {
+        try {
+            Object builder = ofVirtual.invoke(null);
+            builder = numbered ? builderNameCounter.invoke(builder, name, 1L) : builderName.invoke(builder, name);
+            return (ThreadFactory) builderFactory.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("无法创建虚拟线程工厂", e);
+        }
+    }
+}
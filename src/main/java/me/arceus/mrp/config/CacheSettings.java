@@ -0,0 +1,90 @@
+package me.arceus.mrp.config;
+
+/**
+ * Limits of the reply caches used for villagers that opt in to them.
+ */
+public class CacheSettings {
+
+    private final boolean responseCacheEnabled;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final double maxTemperature;
+    private final boolean persist;
+    private final boolean semanticEnabled;
+    private final String semanticProvider;
+    private final int semanticMaxEntries;
+    private final long semanticTtlMillis;
+    private final long embedTimeoutMillis;
+
+    public CacheSettings(boolean responseCacheEnabled,
+                         int maxEntries,
+                         long ttlMillis,
+                         double maxTemperature,
+                         boolean persist,
+                         boolean semanticEnabled,
+                         String semanticProvider,
+                         int semanticMaxEntries,
+                         long semanticTtlMillis,
+                         long embedTimeoutMillis) {
+        this.responseCacheEnabled = responseCacheEnabled;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.maxTemperature = maxTemperature;
+        this.persist = persist;
+        this.semanticEnabled = semanticEnabled;
+        this.semanticProvider = semanticProvider;
+        this.semanticMaxEntries = semanticMaxEntries;
+        this.semanticTtlMillis = semanticTtlMillis;
+        this.embedTimeoutMillis = embedTimeoutMillis;
+    }
+
+    public static CacheSettings disabled() {
+        return new CacheSettings(false, 0, 0L, 0D, false, false, "", 0, 0L, 0L);
+    }
+
+    public boolean isResponseCacheEnabled() {
+        return responseCacheEnabled;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * Requests sampled above this temperature are never cached, since their replies are meant to vary.
+     */
+    public double getMaxTemperature() {
+        return maxTemperature;
+    }
+
+    public boolean isPersist() {
+        return persist;
+    }
+
+    public boolean isSemanticEnabled() {
+        return semanticEnabled;
+    }
+
+    /**
+     * Provider whose embeddings endpoint is used; blank means the default provider.
+     */
+    public String getSemanticProvider() {
+        return semanticProvider;
+    }
+
+    public int getSemanticMaxEntries() {
+        return semanticMaxEntries;
+    }
+
+    public long getSemanticTtlMillis() {
+        return semanticTtlMillis;
+    }
+
+    public long getEmbedTimeoutMillis() {
+        return embedTimeoutMillis;
+    }
+}
@@ -0,0 +1,59 @@
+package me.arceus.mrp.config;
+
+/**
+ * Thresholds of the per-provider circuit breakers used for failover.
+ */
+public class CircuitBreakerSettings {
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallMillis;
+    private final long openMillis;
+    private final int halfOpenProbes;
+
+    public CircuitBreakerSettings(int windowSize,
+                                  int minimumCalls,
+                                  double failureRateThreshold,
+                                  long slowCallMillis,
+                                  long openMillis,
+                                  int halfOpenProbes) {
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallMillis = slowCallMillis;
+        this.openMillis = openMillis;
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    public static CircuitBreakerSettings defaults() {
+        return new CircuitBreakerSettings(20, 5, 0.5D, 15_000L, 30_000L, 1);
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * Calls slower than this count as failures; zero disables the latency criterion.
+     */
+    public long getSlowCallMillis() {
+        return slowCallMillis;
+    }
+
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    public int getHalfOpenProbes() {
+        return halfOpenProbes;
+    }
+}
@@ -4,7 +4,10 @@ import me.arceus.mrp.MrpPlugin;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.logging.Logger;
 
@@ -14,6 +17,15 @@ public class ConfigService {
     private ProviderSettings providerSettings;
     private ConversationSettings conversationSettings;
     private PromptSettings promptSettings;
+    private StorageSettings storageSettings;
+    private SessionSettings sessionSettings;
+    private ExecutionSettings executionSettings;
+    private CacheSettings cacheSettings;
+    private TokenizerSettings tokenizerSettings;
+    private SummarySettings summarySettings;
+    private MemorySettings memorySettings;
+    private LoggingSettings loggingSettings;
+    private DebugSettings debugSettings;
 
     public ConfigService(MrpPlugin plugin) {
         this.plugin = plugin;
@@ -24,6 +36,15 @@ public class ConfigService {
         this.providerSettings = loadProviders(config);
         this.conversationSettings = loadConversation(config);
         this.promptSettings = loadPrompt(config);
+        this.storageSettings = loadStorage(config);
+        this.sessionSettings = loadSessions(config);
+        this.executionSettings = loadExecution(config);
+        this.cacheSettings = loadCache(config);
+        this.tokenizerSettings = loadTokenizer(config);
+        this.summarySettings = loadSummary(config);
+        this.memorySettings = loadMemory(config);
+        this.loggingSettings = loadLogging(config);
+        this.debugSettings = loadDebug(config);
     }
 
     public ProviderSettings getProviderSettings() {
@@ -38,6 +59,42 @@ public class ConfigService {
         return promptSettings;
     }
 
+    public StorageSettings getStorageSettings() {
+        return storageSettings;
+    }
+
+    public SessionSettings getSessionSettings() {
+        return sessionSettings;
+    }
+
+    public ExecutionSettings getExecutionSettings() {
+        return executionSettings;
+    }
+
+    public CacheSettings getCacheSettings() {
+        return cacheSettings;
+    }
+
+    public TokenizerSettings getTokenizerSettings() {
+        return tokenizerSettings;
+    }
+
+    public SummarySettings getSummarySettings() {
+        return summarySettings;
+    }
+
+    public MemorySettings getMemorySettings() {
+        return memorySettings;
+    }
+
+    public LoggingSettings getLoggingSettings() {
+        return loggingSettings;
+    }
+
+    public DebugSettings getDebugSettings() {
+        return debugSettings;
+    }
+
     private ProviderSettings loadProviders(FileConfiguration config) {
         String defaultProvider = config.getString("providers.default", "openai");
         ConfigurationSection listSection = config.getConfigurationSection("providers.list");
@@ -57,7 +114,12 @@ public class ConfigService {
                 double temperature = section.getDouble("temperature", 0.8D);
                 int maxTokens = section.getInt("max-tokens", 512);
                 int timeoutSeconds = section.getInt("timeout-seconds", 30);
-                ProviderConfig providerConfig = new ProviderConfig(key, type, apiBase, apiKey, model, temperature, maxTokens, timeoutSeconds);
+                int maxConcurrent = Math.max(1, section.getInt("max-concurrent-requests", 16));
+                RateLimitConfig rateLimit = loadRateLimit(section.getConfigurationSection("rate-limit"));
+                String embeddingModel = section.getString("embedding-model", "text-embedding-3-small");
+                int contextTokens = Math.max(0, section.getInt("context-tokens", 8192));
+                ProviderConfig providerConfig = new ProviderConfig(key, type, apiBase, apiKey, model, temperature, maxTokens,
+                    timeoutSeconds, maxConcurrent, rateLimit, embeddingModel, contextTokens);
                 providers.put(key, providerConfig);
             }
         } else {
@@ -69,7 +131,58 @@ public class ConfigService {
             defaultProvider = providers.keySet().iterator().next();
         }
 
-        return new ProviderSettings(defaultProvider, providers);
+        boolean http2 = config.getBoolean("providers.transport.http2", true);
+        int connectTimeout = Math.max(1, config.getInt("providers.transport.connect-timeout-seconds", 10));
+        List<String> failoverChain = new ArrayList<>();
+        for (String name : config.getStringList("providers.failover.chain")) {
+            if (providers.containsKey(name)) {
+                failoverChain.add(name);
+            } else {
+                logger.warning("故障转移链中的 Provider '" + name + "' 未在 providers.list 中定义，已忽略");
+            }
+        }
+        CircuitBreakerSettings breaker = loadCircuitBreaker(config.getConfigurationSection("providers.failover.circuit-breaker"));
+        HedgingSettings hedging = loadHedging(config.getConfigurationSection("providers.hedging"));
+        boolean coalesceIdentical = config.getBoolean("providers.coalesce-identical", true);
+        return new ProviderSettings(defaultProvider, providers, http2, connectTimeout, failoverChain, breaker, hedging,
+            coalesceIdentical);
+    }
+
+    private HedgingSettings loadHedging(ConfigurationSection section) {
+        HedgingSettings defaults = HedgingSettings.disabled();
+        if (section == null) {
+            return defaults;
+        }
+        boolean enabled = section.getBoolean("enabled", defaults.isEnabled());
+        double percentile = Math.min(0.999D, Math.max(0.5D, section.getDouble("percentile", defaults.getDelayPercentile())));
+        long minDelayMillis = Math.max(0L, section.getLong("min-delay-millis", defaults.getMinDelayMillis()));
+        double budgetRatio = Math.min(1D, Math.max(0D, section.getDouble("budget-ratio", defaults.getBudgetRatio())));
+        return new HedgingSettings(enabled, percentile, minDelayMillis, budgetRatio);
+    }
+
+    private CircuitBreakerSettings loadCircuitBreaker(ConfigurationSection section) {
+        CircuitBreakerSettings defaults = CircuitBreakerSettings.defaults();
+        if (section == null) {
+            return defaults;
+        }
+        int windowSize = Math.max(1, section.getInt("window-size", defaults.getWindowSize()));
+        int minimumCalls = Math.max(1, Math.min(windowSize, section.getInt("minimum-calls", defaults.getMinimumCalls())));
+        double failureRate = Math.min(1D, Math.max(0.01D, section.getDouble("failure-rate", defaults.getFailureRateThreshold())));
+        long slowCallMillis = Math.max(0L, section.getLong("slow-call-millis", defaults.getSlowCallMillis()));
+        long openMillis = Math.max(1L, section.getLong("open-seconds", defaults.getOpenMillis() / 1000L)) * 1000L;
+        int probes = Math.max(1, section.getInt("half-open-probes", defaults.getHalfOpenProbes()));
+        return new CircuitBreakerSettings(windowSize, minimumCalls, failureRate, slowCallMillis, openMillis, probes);
+    }
+
+    private RateLimitConfig loadRateLimit(ConfigurationSection section) {
+        if (section == null) {
+            return RateLimitConfig.unlimited();
+        }
+        int requestsPerMinute = Math.max(0, section.getInt("requests-per-minute", 0));
+        int tokensPerMinute = Math.max(0, section.getInt("tokens-per-minute", 0));
+        long timeoutSeconds = Math.max(0L, section.getLong("admission-timeout-seconds", 10L));
+        String fallbackReply = section.getString("fallback-reply", "");
+        return new RateLimitConfig(requestsPerMinute, tokensPerMinute, timeoutSeconds * 1000L, fallbackReply);
     }
 
     private ConversationSettings loadConversation(FileConfiguration config) {
@@ -77,6 +190,12 @@ public class ConfigService {
         int memoryWindow = 8;
         int maxResponseTokens = 512;
         ConversationDisplayMode displayMode = ConversationDisplayMode.INVENTORY;
+        boolean streamingEnabled = false;
+        int streamUpdateIntervalTicks = 4;
+        int streamPreviewLength = 48;
+        int queueDepth = 3;
+        boolean coalesceQueued = true;
+        int maxActiveRequests = 32;
         if (section != null) {
             memoryWindow = section.getInt("memory-window", memoryWindow);
             maxResponseTokens = section.getInt("max-response-tokens", maxResponseTokens);
@@ -86,18 +205,224 @@ public class ConfigService {
             } else {
                 displayMode = ConversationDisplayMode.INVENTORY;
             }
+            ConfigurationSection streaming = section.getConfigurationSection("streaming");
+            if (streaming != null) {
+                streamingEnabled = streaming.getBoolean("enabled", streamingEnabled);
+                streamUpdateIntervalTicks = Math.max(1, streaming.getInt("update-interval-ticks", streamUpdateIntervalTicks));
+                streamPreviewLength = Math.max(8, streaming.getInt("preview-length", streamPreviewLength));
+            }
+            ConfigurationSection queue = section.getConfigurationSection("queue");
+            if (queue != null) {
+                queueDepth = Math.max(0, queue.getInt("max-depth", queueDepth));
+                coalesceQueued = queue.getBoolean("coalesce", coalesceQueued);
+                maxActiveRequests = Math.max(1, queue.getInt("max-active-requests", maxActiveRequests));
+            }
         }
-        return new ConversationSettings(memoryWindow, maxResponseTokens, displayMode);
+        return new ConversationSettings(memoryWindow, maxResponseTokens, displayMode,
+            streamingEnabled, streamUpdateIntervalTicks, streamPreviewLength,
+            queueDepth, coalesceQueued, maxActiveRequests);
     }
 
     private PromptSettings loadPrompt(FileConfiguration config) {
         ConfigurationSection section = config.getConfigurationSection("prompt");
         String template = null;
         java.util.List<String> notes = java.util.Collections.emptyList();
+        PromptLayout layout = PromptLayout.COMBINED;
         if (section != null) {
             template = section.getString("system-template");
             notes = section.getStringList("extra-notes");
+            String rawLayout = section.getString("layout", "combined").toLowerCase(Locale.ROOT);
+            if (rawLayout.equals("prefix")) {
+                layout = PromptLayout.PREFIX;
+            } else if (!rawLayout.equals("combined")) {
+                plugin.getLogger().warning("未知的 prompt.layout '" + rawLayout + "'，使用 combined");
+            }
+        }
+        return new PromptSettings(template, notes, layout);
+    }
+
+    private StorageSettings loadStorage(FileConfiguration config) {
+        ConfigurationSection section = config.getConfigurationSection("storage");
+        StorageMode mode = StorageMode.SNAPSHOT;
+        int compactThreshold = 64;
+        boolean writeBehind = true;
+        long flushIntervalMillis = 200L;
+        boolean fsync = true;
+        if (section != null) {
+            String rawMode = section.getString("mode", "snapshot").toLowerCase();
+            if (rawMode.equals("journal")) {
+                mode = StorageMode.JOURNAL;
+            } else if (!rawMode.equals("snapshot")) {
+                plugin.getLogger().warning("未知的 storage.mode '" + rawMode + "'，使用 snapshot");
+            }
+            compactThreshold = Math.max(1, section.getInt("journal.compact-threshold", compactThreshold));
+            writeBehind = section.getBoolean("write-behind.enabled", writeBehind);
+            flushIntervalMillis = Math.max(0L, section.getLong("write-behind.flush-interval-millis", flushIntervalMillis));
+            fsync = section.getBoolean("write-behind.fsync", fsync);
+        }
+        return new StorageSettings(mode, compactThreshold, writeBehind, flushIntervalMillis, fsync);
+    }
+
+    private SessionSettings loadSessions(FileConfiguration config) {
+        ConfigurationSection section = config.getConfigurationSection("sessions");
+        int maxCached = 500;
+        long idleMinutes = 30L;
+        boolean prefetchEnabled = true;
+        double prefetchRadius = 12D;
+        long scanIntervalTicks = 20L;
+        long prefetchTtlSeconds = 120L;
+        if (section != null) {
+            maxCached = Math.max(1, section.getInt("cache.max-size", maxCached));
+            idleMinutes = Math.max(1L, section.getLong("cache.idle-minutes", idleMinutes));
+            prefetchEnabled = section.getBoolean("prefetch.enabled", prefetchEnabled);
+            prefetchRadius = Math.max(0D, section.getDouble("prefetch.radius", prefetchRadius));
+            scanIntervalTicks = Math.max(1L, section.getLong("prefetch.scan-interval-ticks", scanIntervalTicks));
+            prefetchTtlSeconds = Math.max(1L, section.getLong("prefetch.ttl-seconds", prefetchTtlSeconds));
+        }
+        return new SessionSettings(
+            maxCached,
+            idleMinutes * 60_000L,
+            prefetchEnabled,
+            prefetchRadius,
+            scanIntervalTicks,
+            prefetchTtlSeconds * 1000L
+        );
+    }
+
+    private ExecutionSettings loadExecution(FileConfiguration config) {
+        return new ExecutionSettings(config.getBoolean("execution.virtual-threads", false));
+    }
+
+    private SummarySettings loadSummary(FileConfiguration config) {
+        ConfigurationSection section = config.getConfigurationSection("conversation.summary");
+        SummarySettings defaults = SummarySettings.disabled();
+        if (section == null) {
+            return defaults;
+        }
+        boolean enabled = section.getBoolean("enabled", defaults.isEnabled());
+        String provider = section.getString("provider", defaults.getProvider());
+        String model = section.getString("model", defaults.getModel());
+        int keepRecent = Math.max(2, section.getInt("keep-recent", defaults.getKeepRecent()));
+        int batchMessages = Math.max(2, section.getInt("batch-messages", defaults.getBatchMessages()));
+        int maxTokens = Math.max(32, section.getInt("max-tokens", defaults.getMaxTokens()));
+        return new SummarySettings(enabled, provider != null ? provider.trim() : "",
+            model != null ? model.trim() : "", keepRecent, batchMessages, maxTokens);
+    }
+
+    private MemorySettings loadMemory(FileConfiguration config) {
+        ConfigurationSection section = config.getConfigurationSection("memory");
+        MemorySettings defaults = MemorySettings.disabled();
+        if (section == null) {
+            return defaults;
+        }
+        boolean enabled = section.getBoolean("enabled", defaults.isEnabled());
+        int topK = Math.max(1, section.getInt("top-k", defaults.getTopK()));
+        int maxTokens = Math.max(0, section.getInt("max-tokens", defaults.getMaxTokens()));
+        double minScore = Math.max(0D, section.getDouble("min-score", defaults.getMinScore()));
+        int maxLoadedShards = Math.max(1, section.getInt("max-loaded-shards", defaults.getMaxLoadedShards()));
+        return new MemorySettings(enabled, topK, maxTokens, minScore, maxLoadedShards);
+    }
+
+    private LoggingSettings loadLogging(FileConfiguration config) {
+        ConfigurationSection section = config.getConfigurationSection("logging");
+        LoggingSettings defaults = LoggingSettings.defaults();
+        if (section == null) {
+            return defaults;
+        }
+        long flushIntervalMillis = Math.max(0L, section.getLong("flush-interval-millis", defaults.getFlushIntervalMillis()));
+        int flushBytes = Math.max(0, section.getInt("flush-bytes", defaults.getFlushBytes()));
+        int maxOpenFiles = Math.max(1, section.getInt("max-open-files", defaults.getMaxOpenFiles()));
+        double maxSizeMb = Math.max(0D, section.getDouble("rotate.max-size-mb", defaults.getMaxFileBytes() / (1024D * 1024D)));
+        boolean rotateDaily = section.getBoolean("rotate.daily", defaults.isRotateDaily());
+        boolean compress = section.getBoolean("compress", defaults.isCompress());
+        boolean text = section.getBoolean("text", defaults.isText());
+        boolean jsonl = section.getBoolean("jsonl", defaults.isJsonl());
+        int bufferCapacity = Math.max(64, section.getInt("buffer.capacity", defaults.getBufferCapacity()));
+        String rawPolicy = section.getString("buffer.overflow", "drop-oldest").toLowerCase(Locale.ROOT);
+        LogOverflowPolicy overflowPolicy = LogOverflowPolicy.DROP_OLDEST;
+        if (rawPolicy.equals("block")) {
+            overflowPolicy = LogOverflowPolicy.BLOCK;
+        } else if (rawPolicy.equals("sample")) {
+            overflowPolicy = LogOverflowPolicy.SAMPLE;
+        } else if (!rawPolicy.equals("drop-oldest")) {
+            plugin.getLogger().warning("未知的 logging.buffer.overflow '" + rawPolicy + "'，使用 drop-oldest");
+        }
+        int sampleRate = Math.max(1, section.getInt("buffer.sample-rate", defaults.getSampleRate()));
+        double sampleThreshold = Math.min(1D, Math.max(0D,
+            section.getDouble("buffer.sample-threshold", defaults.getSampleThreshold())));
+        return new LoggingSettings(flushIntervalMillis, flushBytes, maxOpenFiles,
+            (long) (maxSizeMb * 1024D * 1024D), rotateDaily, compress, text, jsonl,
+            bufferCapacity, overflowPolicy, sampleRate, sampleThreshold);
+    }
+
+    private DebugSettings loadDebug(FileConfiguration config) {
+        ConfigurationSection section = config.getConfigurationSection("debug");
+        DebugSettings defaults = DebugSettings.disabled();
+        if (section == null) {
+            return defaults;
+        }
+        boolean enabled = section.getBoolean("enabled", defaults.isEnabled());
+        double sampleRate = clampRate(section.getDouble("sample-rate", defaults.getSampleRate()));
+        int maxPayloadChars = Math.max(64, section.getInt("max-payload-chars", defaults.getMaxPayloadChars()));
+        boolean fullPayloads = section.getBoolean("full-payloads", defaults.isFullPayloads());
+        return new DebugSettings(enabled, sampleRate, loadRates(section.getConfigurationSection("villagers")),
+            loadRates(section.getConfigurationSection("players")), maxPayloadChars, fullPayloads);
+    }
+
+    private Map<String, Double> loadRates(ConfigurationSection section) {
+        Map<String, Double> rates = new HashMap<>();
+        if (section == null) {
+            return rates;
+        }
+        for (String key : section.getKeys(false)) {
+            rates.put(key.toLowerCase(Locale.ROOT), clampRate(section.getDouble(key, 0D)));
+        }
+        return rates;
+    }
+
+    private static double clampRate(double rate) {
+        return Math.min(1D, Math.max(0D, rate));
+    }
+
+    private TokenizerSettings loadTokenizer(FileConfiguration config) {
+        String type = config.getString("tokenizer.type", "heuristic").toLowerCase(Locale.ROOT);
+        if (!type.equals("bpe") && !type.equals("heuristic")) {
+            plugin.getLogger().warning("未知的 tokenizer.type '" + type + "'，使用 heuristic");
+            type = "heuristic";
+        }
+        String bpeFile = config.getString("tokenizer.bpe-file", "tokenizer/cl100k_base.tiktoken");
+        return new TokenizerSettings(type, bpeFile);
+    }
+
+    private CacheSettings loadCache(FileConfiguration config) {
+        ConfigurationSection section = config.getConfigurationSection("cache.responses");
+        boolean enabled = true;
+        int maxEntries = 2000;
+        long ttlMinutes = 360L;
+        double maxTemperature = 0.3D;
+        boolean persist = true;
+        if (section != null) {
+            enabled = section.getBoolean("enabled", enabled);
+            maxEntries = Math.max(1, section.getInt("max-entries", maxEntries));
+            ttlMinutes = Math.max(0L, section.getLong("ttl-minutes", ttlMinutes));
+            maxTemperature = Math.max(0D, section.getDouble("max-temperature", maxTemperature));
+            persist = section.getBoolean("persist", persist);
+        }
+
+        ConfigurationSection semantic = config.getConfigurationSection("cache.semantic");
+        boolean semanticEnabled = true;
+        String semanticProvider = "";
+        int semanticMaxEntries = 500;
+        long semanticTtlMinutes = 360L;
+        long embedTimeoutMillis = 1500L;
+        if (semantic != null) {
+            semanticEnabled = semantic.getBoolean("enabled", semanticEnabled);
+            semanticProvider = semantic.getString("provider", semanticProvider);
+            semanticMaxEntries = Math.max(1, semantic.getInt("max-entries-per-villager", semanticMaxEntries));
+            semanticTtlMinutes = Math.max(0L, semantic.getLong("ttl-minutes", semanticTtlMinutes));
+            embedTimeoutMillis = Math.max(100L, semantic.getLong("embed-timeout-millis", embedTimeoutMillis));
         }
-        return new PromptSettings(template, notes);
+        return new CacheSettings(enabled, maxEntries, ttlMinutes * 60_000L, maxTemperature, persist,
+            semanticEnabled, semanticProvider, semanticMaxEntries, semanticTtlMinutes * 60_000L, embedTimeoutMillis);
     }
 }
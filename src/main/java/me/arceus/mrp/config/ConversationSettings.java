@@ -5,11 +5,31 @@ public class ConversationSettings {
     private final int contextWindow;
     private final int maxResponseTokens;
     private final ConversationDisplayMode displayMode;
+    private final boolean streamingEnabled;
+    private final int streamUpdateIntervalTicks;
+    private final int streamPreviewLength;
+    private final int queueDepth;
+    private final boolean coalesceQueued;
+    private final int maxActiveRequests;
 
-    public ConversationSettings(int contextWindow, int maxResponseTokens, ConversationDisplayMode displayMode) {
+    public ConversationSettings(int contextWindow,
+                                int maxResponseTokens,
+                                ConversationDisplayMode displayMode,
+                                boolean streamingEnabled,
+                                int streamUpdateIntervalTicks,
+                                int streamPreviewLength,
+                                int queueDepth,
+                                boolean coalesceQueued,
+                                int maxActiveRequests) {
         this.contextWindow = contextWindow;
         this.maxResponseTokens = maxResponseTokens;
         this.displayMode = displayMode;
+        this.streamingEnabled = streamingEnabled;
+        this.streamUpdateIntervalTicks = streamUpdateIntervalTicks;
+        this.streamPreviewLength = streamPreviewLength;
+        this.queueDepth = queueDepth;
+        this.coalesceQueued = coalesceQueued;
+        this.maxActiveRequests = maxActiveRequests;
     }
 
     public int getContextWindow() {
@@ -23,4 +43,28 @@ public class ConversationSettings {
     public ConversationDisplayMode getDisplayMode() {
         return displayMode;
     }
+
+    public boolean isStreamingEnabled() {
+        return streamingEnabled;
+    }
+
+    public int getStreamUpdateIntervalTicks() {
+        return streamUpdateIntervalTicks;
+    }
+
+    public int getStreamPreviewLength() {
+        return streamPreviewLength;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public boolean isCoalesceQueued() {
+        return coalesceQueued;
+    }
+
+    public int getMaxActiveRequests() {
+        return maxActiveRequests;
+    }
 }
@@ -0,0 +1,67 @@
+package me.arceus.mrp.config;
+
+import java.util.Map;
+
+/**
+ * Sampling and truncation of the debug tracer that prints prompts and provider payloads.
+ */
+public class DebugSettings {
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final Map<String, Double> villagerRates;
+    private final Map<String, Double> playerRates;
+    private final int maxPayloadChars;
+    private final boolean fullPayloads;
+
+    public DebugSettings(boolean enabled,
+                         double sampleRate,
+                         Map<String, Double> villagerRates,
+                         Map<String, Double> playerRates,
+                         int maxPayloadChars,
+                         boolean fullPayloads) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.villagerRates = Map.copyOf(villagerRates);
+        this.playerRates = Map.copyOf(playerRates);
+        this.maxPayloadChars = maxPayloadChars;
+        this.fullPayloads = fullPayloads;
+    }
+
+    public static DebugSettings disabled() {
+        return new DebugSettings(false, 0D, Map.of(), Map.of(), 1000, false);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Fraction of turns traced when neither the villager nor the player has its own rate.
+     */
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Per-villager rates keyed by lower-case name or UUID.
+     */
+    public Map<String, Double> getVillagerRates() {
+        return villagerRates;
+    }
+
+    /**
+     * Per-player rates keyed by lower-case name or UUID; these win over villager rates.
+     */
+    public Map<String, Double> getPlayerRates() {
+        return playerRates;
+    }
+
+    public int getMaxPayloadChars() {
+        return maxPayloadChars;
+    }
+
+    public boolean isFullPayloads() {
+        return fullPayloads;
+    }
+}
@@ -0,0 +1,14 @@
+package me.arceus.mrp.config;
+
+public class ExecutionSettings {
+
+    private final boolean virtualThreads;
+
+    public ExecutionSettings(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+}
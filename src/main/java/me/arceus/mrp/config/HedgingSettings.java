@@ -0,0 +1,45 @@
+package me.arceus.mrp.config;
+
+/**
+ * When and how often a slow request is duplicated to the next provider in the failover chain.
+ */
+public class HedgingSettings {
+
+    private final boolean enabled;
+    private final double delayPercentile;
+    private final long minDelayMillis;
+    private final double budgetRatio;
+
+    public HedgingSettings(boolean enabled, double delayPercentile, long minDelayMillis, double budgetRatio) {
+        this.enabled = enabled;
+        this.delayPercentile = delayPercentile;
+        this.minDelayMillis = minDelayMillis;
+        this.budgetRatio = budgetRatio;
+    }
+
+    public static HedgingSettings disabled() {
+        return new HedgingSettings(false, 0.95D, 1_000L, 0.1D);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Latency percentile of the primary provider after which the hedge is sent.
+     */
+    public double getDelayPercentile() {
+        return delayPercentile;
+    }
+
+    public long getMinDelayMillis() {
+        return minDelayMillis;
+    }
+
+    /**
+     * Upper bound of hedged requests as a share of all routed requests.
+     */
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+}
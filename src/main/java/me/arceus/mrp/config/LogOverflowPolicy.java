@@ -0,0 +1,22 @@
+package me.arceus.mrp.config;
+
+/**
+ * What the conversation logger does when its ring buffer is full because the disk is
+ * falling behind.
+ */
+public enum LogOverflowPolicy {
+    /**
+     * The caller waits for a free slot, so no line is lost. Conversation lines are logged
+     * from the server thread, so a slow disk stalls ticks; not suitable for production.
+     */
+    BLOCK,
+    /**
+     * The oldest unwritten line is discarded to make room. The default.
+     */
+    DROP_OLDEST,
+    /**
+     * Once the buffer passes the sampling threshold only every n-th line is kept; lines
+     * arriving while it is full are discarded.
+     */
+    SAMPLE
+}
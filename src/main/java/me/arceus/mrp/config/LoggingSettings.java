@@ -0,0 +1,125 @@
+package me.arceus.mrp.config;
+
+/**
+ * Buffering and rotation of the per-villager conversation log files.
+ */
+public class LoggingSettings {
+
+    private final long flushIntervalMillis;
+    private final int flushBytes;
+    private final int maxOpenFiles;
+    private final long maxFileBytes;
+    private final boolean rotateDaily;
+    private final boolean compress;
+    private final boolean text;
+    private final boolean jsonl;
+    private final int bufferCapacity;
+    private final LogOverflowPolicy overflowPolicy;
+    private final int sampleRate;
+    private final double sampleThreshold;
+
+    public LoggingSettings(long flushIntervalMillis,
+                           int flushBytes,
+                           int maxOpenFiles,
+                           long maxFileBytes,
+                           boolean rotateDaily,
+                           boolean compress,
+                           boolean text,
+                           boolean jsonl,
+                           int bufferCapacity,
+                           LogOverflowPolicy overflowPolicy,
+                           int sampleRate,
+                           double sampleThreshold) {
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flushBytes = flushBytes;
+        this.maxOpenFiles = maxOpenFiles;
+        this.maxFileBytes = maxFileBytes;
+        this.rotateDaily = rotateDaily;
+        this.compress = compress;
+        this.text = text;
+        this.jsonl = jsonl;
+        this.bufferCapacity = bufferCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = sampleRate;
+        this.sampleThreshold = sampleThreshold;
+    }
+
+    public static LoggingSettings defaults() {
+        return new LoggingSettings(1000L, 65_536, 64, 10L * 1024L * 1024L, true, true, true, true,
+            8192, LogOverflowPolicy.DROP_OLDEST, 10, 0.75D);
+    }
+
+    /**
+     * Longest time a written line may stay in the writer buffers before it is flushed.
+     */
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    /**
+     * Buffered bytes across all open files that trigger an immediate flush.
+     */
+    public int getFlushBytes() {
+        return flushBytes;
+    }
+
+    public int getMaxOpenFiles() {
+        return maxOpenFiles;
+    }
+
+    /**
+     * Size at which a log file is rotated; {@code 0} disables size-based rotation.
+     */
+    public long getMaxFileBytes() {
+        return maxFileBytes;
+    }
+
+    public boolean isRotateDaily() {
+        return rotateDaily;
+    }
+
+    public boolean isCompress() {
+        return compress;
+    }
+
+    /**
+     * Whether the human-readable per-villager {@code .log} files are written.
+     */
+    public boolean isText() {
+        return text;
+    }
+
+    /**
+     * Whether structured records are written to the daily {@code jsonl/} files queried by
+     * {@code /mrp logs}.
+     */
+    public boolean isJsonl() {
+        return jsonl;
+    }
+
+    /**
+     * Number of preallocated slots in the log ring buffer; rounded up to a power of two.
+     */
+    public int getBufferCapacity() {
+        return bufferCapacity;
+    }
+
+    public LogOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Under {@link LogOverflowPolicy#SAMPLE}, one of this many lines is kept while the buffer
+     * is above {@link #getSampleThreshold()}.
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Buffer fill ratio at which sampling starts.
+     */
+    public double getSampleThreshold() {
+        return sampleThreshold;
+    }
+}
@@ -0,0 +1,54 @@
+package me.arceus.mrp.config;
+
+/**
+ * Limits of the long-term retrieval memory that recalls relevant past turns into the prompt.
+ */
+public class MemorySettings {
+
+    private final boolean enabled;
+    private final int topK;
+    private final int maxTokens;
+    private final double minScore;
+    private final int maxLoadedShards;
+
+    public MemorySettings(boolean enabled, int topK, int maxTokens, double minScore, int maxLoadedShards) {
+        this.enabled = enabled;
+        this.topK = topK;
+        this.maxTokens = maxTokens;
+        this.minScore = minScore;
+        this.maxLoadedShards = maxLoadedShards;
+    }
+
+    public static MemorySettings disabled() {
+        return new MemorySettings(false, 4, 200, 1.5D, 256);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    /**
+     * Token budget for the recalled snippets inside the system prompt.
+     */
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    /**
+     * Minimum BM25 score a past turn needs to be recalled.
+     */
+    public double getMinScore() {
+        return minScore;
+    }
+
+    /**
+     * Number of player/villager index shards kept in memory at once.
+     */
+    public int getMaxLoadedShards() {
+        return maxLoadedShards;
+    }
+}
@@ -0,0 +1,16 @@
+package me.arceus.mrp.config;
+
+/**
+ * How the system prompt is arranged in the request.
+ */
+public enum PromptLayout {
+    /**
+     * One system message rendered with every placeholder filled in.
+     */
+    COMBINED,
+    /**
+     * A per-villager system message that is byte-identical for every player, followed by a
+     * session message binding the player-specific placeholders, so upstream prefix caches hit.
+     */
+    PREFIX
+}
@@ -1,16 +1,28 @@
 package me.arceus.mrp.config;
 
+import me.arceus.mrp.prompt.CompiledTemplate;
+
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class PromptSettings {
 
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
     private final String systemTemplate;
     private final List<String> extraNotes;
+    private final PromptLayout layout;
+    private final CompiledTemplate compiledSystemTemplate;
+    private final List<CompiledTemplate> compiledExtraNotes;
+    private final long version = VERSIONS.incrementAndGet();
 
-    public PromptSettings(String systemTemplate, List<String> extraNotes) {
+    public PromptSettings(String systemTemplate, List<String> extraNotes, PromptLayout layout) {
         this.systemTemplate = systemTemplate;
         this.extraNotes = extraNotes;
+        this.layout = layout;
+        this.compiledSystemTemplate = CompiledTemplate.compile(systemTemplate);
+        this.compiledExtraNotes = extraNotes.stream().map(CompiledTemplate::compile).toList();
     }
 
     public String getSystemTemplate() {
@@ -20,4 +32,23 @@ public class PromptSettings {
     public List<String> getExtraNotes() {
         return Collections.unmodifiableList(extraNotes);
     }
+
+    public PromptLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Distinct for every loaded configuration, so prompts rendered before a reload are not reused.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public CompiledTemplate getCompiledSystemTemplate() {
+        return compiledSystemTemplate;
+    }
+
+    public List<CompiledTemplate> getCompiledExtraNotes() {
+        return compiledExtraNotes;
+    }
 }
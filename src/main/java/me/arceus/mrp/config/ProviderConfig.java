@@ -12,6 +12,10 @@ public class ProviderConfig {
     private final double temperature;
     private final int maxTokens;
     private final int timeoutSeconds;
+    private final int maxConcurrentRequests;
+    private final RateLimitConfig rateLimit;
+    private final String embeddingModel;
+    private final int contextTokens;
 
     public ProviderConfig(String name,
                           String type,
@@ -20,7 +24,11 @@ public class ProviderConfig {
                           String model,
                           double temperature,
                           int maxTokens,
-                          int timeoutSeconds) {
+                          int timeoutSeconds,
+                          int maxConcurrentRequests,
+                          RateLimitConfig rateLimit,
+                          String embeddingModel,
+                          int contextTokens) {
         this.name = name;
         this.type = type;
         this.apiBase = apiBase;
@@ -29,6 +37,10 @@ public class ProviderConfig {
         this.temperature = temperature;
         this.maxTokens = maxTokens;
         this.timeoutSeconds = timeoutSeconds;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.rateLimit = rateLimit != null ? rateLimit : RateLimitConfig.unlimited();
+        this.embeddingModel = embeddingModel;
+        this.contextTokens = contextTokens;
     }
 
     public String getName() {
@@ -63,6 +75,28 @@ public class ProviderConfig {
         return timeoutSeconds;
     }
 
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * Model used for the embeddings endpoint of this provider.
+     */
+    public String getEmbeddingModel() {
+        return embeddingModel;
+    }
+
+    /**
+     * Context window of the model; history is trimmed so prompt and reply fit inside it.
+     */
+    public int getContextTokens() {
+        return contextTokens;
+    }
+
+    public RateLimitConfig getRateLimit() {
+        return rateLimit;
+    }
+
     @Override
     public String toString() {
         return "ProviderConfig{" +
@@ -73,6 +107,7 @@ public class ProviderConfig {
             ", temperature=" + temperature +
             ", maxTokens=" + maxTokens +
             ", timeoutSeconds=" + timeoutSeconds +
+            ", maxConcurrentRequests=" + maxConcurrentRequests +
             '}';
     }
 
@@ -83,6 +118,10 @@ public class ProviderConfig {
         return Double.compare(that.temperature, temperature) == 0
             && maxTokens == that.maxTokens
             && timeoutSeconds == that.timeoutSeconds
+            && maxConcurrentRequests == that.maxConcurrentRequests
+            && Objects.equals(rateLimit, that.rateLimit)
+            && Objects.equals(embeddingModel, that.embeddingModel)
+            && contextTokens == that.contextTokens
             && Objects.equals(name, that.name)
             && Objects.equals(type, that.type)
             && Objects.equals(apiBase, that.apiBase)
@@ -92,6 +131,7 @@ public class ProviderConfig {
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, type, apiBase, apiKey, model, temperature, maxTokens, timeoutSeconds);
+        return Objects.hash(name, type, apiBase, apiKey, model, temperature, maxTokens, timeoutSeconds, maxConcurrentRequests, rateLimit,
+            embeddingModel, contextTokens);
     }
 }
@@ -1,16 +1,36 @@
 package me.arceus.mrp.config;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 public class ProviderSettings {
 
     private final String defaultProvider;
     private final Map<String, ProviderConfig> providers;
+    private final boolean http2Enabled;
+    private final int connectTimeoutSeconds;
+    private final List<String> failoverChain;
+    private final CircuitBreakerSettings circuitBreaker;
+    private final HedgingSettings hedging;
+    private final boolean coalesceIdentical;
 
-    public ProviderSettings(String defaultProvider, Map<String, ProviderConfig> providers) {
+    public ProviderSettings(String defaultProvider,
+                            Map<String, ProviderConfig> providers,
+                            boolean http2Enabled,
+                            int connectTimeoutSeconds,
+                            List<String> failoverChain,
+                            CircuitBreakerSettings circuitBreaker,
+                            HedgingSettings hedging,
+                            boolean coalesceIdentical) {
         this.defaultProvider = defaultProvider;
         this.providers = providers;
+        this.http2Enabled = http2Enabled;
+        this.connectTimeoutSeconds = connectTimeoutSeconds;
+        this.failoverChain = failoverChain != null ? List.copyOf(failoverChain) : List.of();
+        this.circuitBreaker = circuitBreaker != null ? circuitBreaker : CircuitBreakerSettings.defaults();
+        this.hedging = hedging != null ? hedging : HedgingSettings.disabled();
+        this.coalesceIdentical = coalesceIdentical;
     }
 
     public String getDefaultProvider() {
@@ -24,4 +44,34 @@ public class ProviderSettings {
     public ProviderConfig getProvider(String name) {
         return providers.get(name);
     }
+
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    public int getConnectTimeoutSeconds() {
+        return connectTimeoutSeconds;
+    }
+
+    /**
+     * Providers tried, in order, after the preferred one fails or has an open circuit.
+     */
+    public List<String> getFailoverChain() {
+        return failoverChain;
+    }
+
+    public CircuitBreakerSettings getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public HedgingSettings getHedging() {
+        return hedging;
+    }
+
+    /**
+     * Whether identical concurrent requests share a single upstream call.
+     */
+    public boolean isCoalesceIdentical() {
+        return coalesceIdentical;
+    }
 }
@@ -0,0 +1,60 @@
+package me.arceus.mrp.config;
+
+import java.util.Objects;
+
+/**
+ * Per-provider request and token budgets. A budget of zero disables that limit.
+ */
+public class RateLimitConfig {
+
+    private final int requestsPerMinute;
+    private final int tokensPerMinute;
+    private final long admissionTimeoutMillis;
+    private final String fallbackReply;
+
+    public RateLimitConfig(int requestsPerMinute, int tokensPerMinute, long admissionTimeoutMillis, String fallbackReply) {
+        this.requestsPerMinute = requestsPerMinute;
+        this.tokensPerMinute = tokensPerMinute;
+        this.admissionTimeoutMillis = admissionTimeoutMillis;
+        this.fallbackReply = fallbackReply;
+    }
+
+    public static RateLimitConfig unlimited() {
+        return new RateLimitConfig(0, 0, 10_000L, "");
+    }
+
+    public int getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    public int getTokensPerMinute() {
+        return tokensPerMinute;
+    }
+
+    public long getAdmissionTimeoutMillis() {
+        return admissionTimeoutMillis;
+    }
+
+    public String getFallbackReply() {
+        return fallbackReply;
+    }
+
+    public boolean hasFallbackReply() {
+        return fallbackReply != null && !fallbackReply.isBlank();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RateLimitConfig that)) return false;
+        return requestsPerMinute == that.requestsPerMinute
+            && tokensPerMinute == that.tokensPerMinute
+            && admissionTimeoutMillis == that.admissionTimeoutMillis
+            && Objects.equals(fallbackReply, that.fallbackReply);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(requestsPerMinute, tokensPerMinute, admissionTimeoutMillis, fallbackReply);
+    }
+}
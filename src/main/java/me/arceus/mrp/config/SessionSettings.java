@@ -0,0 +1,49 @@
+package me.arceus.mrp.config;
+
+public class SessionSettings {
+
+    private final int maxCachedSessions;
+    private final long idleTtlMillis;
+    private final boolean prefetchEnabled;
+    private final double prefetchRadius;
+    private final long prefetchScanIntervalTicks;
+    private final long prefetchTtlMillis;
+
+    public SessionSettings(int maxCachedSessions,
+                           long idleTtlMillis,
+                           boolean prefetchEnabled,
+                           double prefetchRadius,
+                           long prefetchScanIntervalTicks,
+                           long prefetchTtlMillis) {
+        this.maxCachedSessions = maxCachedSessions;
+        this.idleTtlMillis = idleTtlMillis;
+        this.prefetchEnabled = prefetchEnabled;
+        this.prefetchRadius = prefetchRadius;
+        this.prefetchScanIntervalTicks = prefetchScanIntervalTicks;
+        this.prefetchTtlMillis = prefetchTtlMillis;
+    }
+
+    public int getMaxCachedSessions() {
+        return maxCachedSessions;
+    }
+
+    public long getIdleTtlMillis() {
+        return idleTtlMillis;
+    }
+
+    public boolean isPrefetchEnabled() {
+        return prefetchEnabled;
+    }
+
+    public double getPrefetchRadius() {
+        return prefetchRadius;
+    }
+
+    public long getPrefetchScanIntervalTicks() {
+        return prefetchScanIntervalTicks;
+    }
+
+    public long getPrefetchTtlMillis() {
+        return prefetchTtlMillis;
+    }
+}
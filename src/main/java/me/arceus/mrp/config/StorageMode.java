@@ -0,0 +1,6 @@
+package me.arceus.mrp.config;
+
+public enum StorageMode {
+    SNAPSHOT,
+    JOURNAL
+}
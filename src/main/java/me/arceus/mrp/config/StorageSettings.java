@@ -0,0 +1,42 @@
+package me.arceus.mrp.config;
+
+public class StorageSettings {
+
+    private final StorageMode mode;
+    private final int journalCompactThreshold;
+    private final boolean writeBehind;
+    private final long flushIntervalMillis;
+    private final boolean fsync;
+
+    public StorageSettings(StorageMode mode,
+                           int journalCompactThreshold,
+                           boolean writeBehind,
+                           long flushIntervalMillis,
+                           boolean fsync) {
+        this.mode = mode;
+        this.journalCompactThreshold = journalCompactThreshold;
+        this.writeBehind = writeBehind;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.fsync = fsync;
+    }
+
+    public StorageMode getMode() {
+        return mode;
+    }
+
+    public int getJournalCompactThreshold() {
+        return journalCompactThreshold;
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+}
@@ -0,0 +1,68 @@
+package me.arceus.mrp.config;
+
+/**
+ * Controls the background stage that folds old conversation turns into a running summary.
+ */
+public class SummarySettings {
+
+    private final boolean enabled;
+    private final String provider;
+    private final String model;
+    private final int keepRecent;
+    private final int batchMessages;
+    private final int maxTokens;
+
+    public SummarySettings(boolean enabled,
+                           String provider,
+                           String model,
+                           int keepRecent,
+                           int batchMessages,
+                           int maxTokens) {
+        this.enabled = enabled;
+        this.provider = provider;
+        this.model = model;
+        this.keepRecent = keepRecent;
+        this.batchMessages = batchMessages;
+        this.maxTokens = maxTokens;
+    }
+
+    public static SummarySettings disabled() {
+        return new SummarySettings(false, "", "", 12, 8, 300);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Provider used for summarising; empty means the default provider.
+     */
+    public String getProvider() {
+        return provider;
+    }
+
+    /**
+     * Model override for summarising; empty means the provider's configured model.
+     */
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * Number of latest messages that are always sent verbatim and never folded.
+     */
+    public int getKeepRecent() {
+        return keepRecent;
+    }
+
+    /**
+     * Number of unsummarised messages beyond {@link #getKeepRecent()} that triggers a fold.
+     */
+    public int getBatchMessages() {
+        return batchMessages;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+}
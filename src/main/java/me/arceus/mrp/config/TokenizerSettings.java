@@ -0,0 +1,41 @@
+package me.arceus.mrp.config;
+
+import java.util.Objects;
+
+public class TokenizerSettings {
+
+    private final String type;
+    private final String bpeFile;
+
+    public TokenizerSettings(String type, String bpeFile) {
+        this.type = type;
+        this.bpeFile = bpeFile;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public boolean isBpe() {
+        return "bpe".equals(type);
+    }
+
+    /**
+     * Rank table in tiktoken format, relative to the plugin data folder.
+     */
+    public String getBpeFile() {
+        return bpeFile;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TokenizerSettings that)) return false;
+        return Objects.equals(type, that.type) && Objects.equals(bpeFile, that.bpeFile);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, bpeFile);
+    }
+}
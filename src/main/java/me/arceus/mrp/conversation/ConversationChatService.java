@@ -1,14 +1,27 @@
 package me.arceus.mrp.conversation;
 
 import me.arceus.mrp.MrpPlugin;
+import me.arceus.mrp.cache.ResponseCache;
+import me.arceus.mrp.cache.SemanticCache;
 import me.arceus.mrp.config.ConversationSettings;
+import me.arceus.mrp.config.PromptLayout;
+import me.arceus.mrp.config.PromptSettings;
 import me.arceus.mrp.config.ProviderConfig;
 import me.arceus.mrp.config.ProviderSettings;
+import me.arceus.mrp.logging.DebugTrace;
+import me.arceus.mrp.logging.TurnMetrics;
+import me.arceus.mrp.metrics.LatencyHistogram;
+import me.arceus.mrp.metrics.MetricsRegistry;
 import me.arceus.mrp.provider.LLMProvider;
 import me.arceus.mrp.provider.ProviderMessage;
 import me.arceus.mrp.provider.ProviderRequest;
 import me.arceus.mrp.provider.ProviderResponse;
+import me.arceus.mrp.provider.ProviderRouter;
+import me.arceus.mrp.provider.ProviderThrottledException;
+import me.arceus.mrp.provider.ProviderUnavailableException;
+import me.arceus.mrp.provider.TokenEstimator;
 import me.arceus.mrp.prompt.PromptService;
+import me.arceus.mrp.prompt.SystemPromptParts;
 import me.arceus.mrp.villager.VillagerProfile;
 import me.arceus.mrp.villager.VillagerPromptOverride;
 import me.arceus.mrp.villager.VillagerRewardOption;
@@ -20,56 +33,105 @@ import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 /**
  * Handles end-to-end chat flow between a player and a villager profile,
  * including prompt construction, provider invocation, logging, and
- * guarding against concurrent requests per player.
+ * queueing input that arrives while a reply is still pending.
  */
 public class ConversationChatService {
 
     private final MrpPlugin plugin;
     private final ConversationSessionManager sessionManager;
     private final PromptService promptService;
-    private final Set<UUID> pendingPlayers = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final ConversationRequestQueue requestQueue;
+    private final PromptUsageTracker promptUsage = new PromptUsageTracker();
+    private final LatencyHistogram queueWait;
+    private final LatencyHistogram promptBuild;
+    private final LatencyHistogram providerLatency;
+    private final LatencyHistogram callbackWait;
+    private final LatencyHistogram callbackRun;
+    private final LatencyHistogram turnLatency;
     private static final List<String> DEFAULT_SUCCESS_TRIGGERS = List.of("SUCCESS");
+    private static final String USER_PLACEHOLDER = "{user}";
 
     public ConversationChatService(MrpPlugin plugin) {
         this.plugin = plugin;
         this.sessionManager = plugin.getSessionManager();
         this.promptService = plugin.getPromptService();
+        this.requestQueue = new ConversationRequestQueue(this::processTurn);
+        MetricsRegistry metrics = plugin.getMetrics();
+        this.queueWait = metrics.histogram("chat.queue-wait");
+        this.promptBuild = metrics.histogram("chat.prompt-build");
+        this.providerLatency = metrics.histogram("chat.provider");
+        this.callbackWait = metrics.histogram("chat.callback-wait");
+        this.callbackRun = metrics.histogram("chat.callback");
+        this.turnLatency = metrics.histogram("chat.turn");
+        metrics.gauge("chat.active-turns", requestQueue::getActive);
+        metrics.gauge("chat.queued-messages", requestQueue::getQueuedMessages);
     }
 
+    /**
+     * Whether the player has a reply pending or input waiting in the queue.
+     */
     public boolean isProcessing(UUID playerId) {
-        return pendingPlayers.contains(playerId);
+        return requestQueue.isBusy(playerId);
     }
 
+    public RequestQueueStats getQueueStats() {
+        ConversationSettings settings = plugin.getConfigService().getConversationSettings();
+        int maxActive = settings != null ? settings.getMaxActiveRequests() : 32;
+        return new RequestQueueStats(requestQueue.getActive(), maxActive, requestQueue.getWaitingPlayers(),
+            requestQueue.getQueuedMessages(), requestQueue.getDispatchedTurns(),
+            requestQueue.getCoalescedMessages(), requestQueue.getRejectedMessages());
+    }
+
+    /**
+     * Queues the player's input and sends it once the previous reply has arrived and a
+     * global slot is free. When queued lines are merged into one turn, only the last
+     * line's future receives the reply; the others complete with {@code null}.
+     */
     public CompletableFuture<String> sendPlayerMessage(Player player, VillagerProfile profile, String playerInput) {
-        UUID playerId = player.getUniqueId();
         CompletableFuture<String> result = new CompletableFuture<>();
 
-        if (!pendingPlayers.add(playerId)) {
-            player.sendMessage("村民正在思考，请稍候再试。");
-            result.completeExceptionally(new IllegalStateException("conversation in progress"));
-            return result;
-        }
-
         if (profile == null) {
-            pendingPlayers.remove(playerId);
             player.sendMessage("找不到该村民的资料");
             result.completeExceptionally(new IllegalStateException("villager profile missing"));
             return result;
         }
 
+        ConversationSettings settings = plugin.getConfigService().getConversationSettings();
+        int maxDepth = settings != null ? settings.getQueueDepth() : 3;
+        boolean coalesce = settings == null || settings.isCoalesceQueued();
+        int maxActive = settings != null ? settings.getMaxActiveRequests() : 32;
+
+        ConversationRequestQueue.Admission admission = requestQueue.submit(player, profile, playerInput,
+            maxDepth, coalesce, maxActive, result);
+        if (admission == ConversationRequestQueue.Admission.REJECTED) {
+            player.sendMessage(maxDepth > 0
+                ? "村民正在思考，排队的消息已达上限（" + maxDepth + " 条），请稍候再试。"
+                : "村民正在思考，请稍候再试。");
+            result.completeExceptionally(new IllegalStateException("conversation queue full"));
+        } else if (admission == ConversationRequestQueue.Admission.QUEUED && !result.isDone()) {
+            player.sendMessage(ChatColor.GRAY + "已排队（" + requestQueue.getQueuedCount(player.getUniqueId())
+                + "/" + Math.max(maxDepth, 1) + "），村民回复后将继续发送: " + ChatColor.RESET + playerInput);
+        }
+        return result;
+    }
+
+    private CompletableFuture<String> processTurn(Player player, VillagerProfile profile, String playerInput, long queuedMillis) {
+        UUID playerId = player.getUniqueId();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        long turnStart = System.nanoTime();
+        queueWait.recordMillis(queuedMillis);
+
         String providerOverride = profile.getProviderOverride();
         LLMProvider provider = null;
         if (providerOverride != null && !providerOverride.isBlank()) {
@@ -82,7 +144,6 @@ public class ConversationChatService {
             provider = plugin.getProviderRegistry().getDefaultProvider();
         }
         if (provider == null) {
-            pendingPlayers.remove(playerId);
             player.sendMessage("当前未配置可用的 Provider");
             result.completeExceptionally(new IllegalStateException("provider not configured"));
             return result;
@@ -103,82 +164,363 @@ public class ConversationChatService {
 
         player.sendMessage(ChatColor.GRAY + "你: " + ChatColor.RESET + playerInput);
 
-        String systemPrompt = promptService.buildSystemPrompt(profile, session, player.getName());
-
-        List<ProviderMessage> messages = new ArrayList<>();
-        messages.add(new ProviderMessage(ProviderMessage.Role.SYSTEM, systemPrompt));
-        messages.addAll(sessionManager.buildPromptMessages(session));
-
-        plugin.getLogger().info("[LLM Request] provider=" + provider.getName()
-            + " villager=" + profile.getName()
-            + " player=" + player.getName());
-        messages.forEach(msg -> plugin.getLogger().info(" - " + msg.getRole() + ": " + msg.getContent()));
-
         ConversationSettings convSettings = plugin.getConfigService().getConversationSettings();
         int maxTokens = convSettings != null ? convSettings.getMaxResponseTokens() : 512;
 
         ProviderSettings providerSettings = plugin.getConfigService().getProviderSettings();
         ProviderConfig providerConfig = providerSettings != null ? providerSettings.getProvider(provider.getName()) : null;
+
+        long buildStart = System.nanoTime();
+        List<ProviderMessage> messages = buildRequestMessages(profile, session, player.getName(), providerConfig, maxTokens);
+        promptBuild.recordSince(buildStart);
+
+        // 未被抽中的对话只有一次 volatile 读取，格式化与输出都在追踪线程完成
+        DebugTrace trace = plugin.getDebugTracer().begin(profile.getVillagerId(), profile.getName(), playerId, player.getName());
+        if (trace != null) {
+            trace.messages("提示词 provider=" + provider.getName(), messages);
+        }
+
         double temperature = providerConfig != null ? providerConfig.getTemperature() : 0.8D;
         String model = profile.getModelOverride();
         if ((model == null || model.isBlank()) && providerConfig != null) {
             model = providerConfig.getModel();
         }
 
-        ProviderRequest request = new ProviderRequest(messages, maxTokens, temperature, model);
+        ProviderRequest request = new ProviderRequest(messages, maxTokens, temperature, model).withTrace(trace);
+
+        ResponseCache responseCache = plugin.getResponseCache();
+        String cacheKey = responseCache.isCacheable(profile, request)
+            ? responseCacheKey(messages, maxTokens, temperature, model, player.getName())
+            : null;
+        String storedReply = cacheKey != null ? responseCache.get(cacheKey) : null;
+        String cachedReply = storedReply != null ? storedReply.replace(USER_PLACEHOLDER, player.getName()) : null;
+
+        SemanticCache semanticCache = plugin.getSemanticCache();
+        CompletableFuture<SemanticCache.Lookup> semanticLookup = cachedReply == null && semanticCache.isEnabledFor(profile)
+            ? lookupSemantic(semanticCache, player, profile, session, model, playerInput)
+            : null;
+
+        if (cachedReply == null) {
+            player.sendMessage("村民正在思考...");
+        }
 
-        player.sendMessage("村民正在思考...");
+        StreamingReplyRenderer renderer = null;
+        if (cachedReply == null && convSettings != null && convSettings.isStreamingEnabled()) {
+            String displayName = profile.getName() != null ? profile.getName() : "村民";
+            renderer = new StreamingReplyRenderer(plugin, player, displayName,
+                resolveHiddenReplies(profile), convSettings.getStreamPreviewLength());
+        }
 
+        long requestStart = System.nanoTime();
         CompletableFuture<ProviderResponse> future;
         try {
-            future = provider.generate(request);
+            ProviderRouter router = plugin.getProviderRegistry().getRouter();
+            String providerName = provider.getName();
+            StreamingReplyRenderer streamTarget = renderer;
+            if (cachedReply != null) {
+                if (trace != null) {
+                    trace.event("缓存", "命中回复缓存");
+                }
+                future = CompletableFuture.completedFuture(new ProviderResponse(cachedReply, 0, 0));
+            } else if (semanticLookup != null) {
+                future = semanticLookup.thenCompose(lookup -> {
+                    if (lookup.isHit()) {
+                        if (trace != null) {
+                            trace.event("缓存", "命中语义缓存");
+                        }
+                        return CompletableFuture.completedFuture(
+                            new ProviderResponse(lookup.getReply().replace(USER_PLACEHOLDER, player.getName()), 0, 0));
+                    }
+                    return streamTarget != null
+                        ? router.generate(providerName, request, streamTarget::append)
+                        : router.generate(providerName, request);
+                });
+            } else {
+                future = renderer != null
+                    ? router.generate(providerName, request, renderer::append)
+                    : router.generate(providerName, request);
+            }
         } catch (Exception e) {
-            pendingPlayers.remove(playerId);
             player.sendMessage("村民思考失败: " + e.getMessage());
             result.completeExceptionally(e);
             return result;
         }
 
-        future.whenComplete((response, throwable) -> Bukkit.getScheduler().runTask(plugin, () -> {
-            pendingPlayers.remove(playerId);
+        if (renderer != null) {
+            renderer.start(convSettings.getStreamUpdateIntervalTicks());
+        }
 
-            if (throwable != null) {
-                player.sendMessage("村民思考失败: " + throwable.getMessage());
-                result.completeExceptionally(throwable);
-                return;
+        StreamingReplyRenderer activeRenderer = renderer;
+        String providerName = provider.getName();
+        String requestModel = model;
+        future.whenComplete((response, throwable) -> {
+            long completedAt = System.nanoTime();
+            long latencyMillis = (completedAt - requestStart) / 1_000_000L;
+            if (cachedReply == null && !isSemanticHit(semanticLookup)) {
+                providerLatency.record(completedAt - requestStart);
             }
+            Bukkit.getScheduler().runTask(plugin, onMainThread(completedAt, turnStart, result, () -> {
+                if (activeRenderer != null) {
+                    activeRenderer.stop();
+                }
 
-            String reply = response.getContent();
-            String trimmed = reply != null ? reply.trim() : "";
-            boolean isSuccess = isSuccessReply(trimmed, profile);
+                if (throwable != null) {
+                    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause()
+                        : throwable;
+                    if (trace != null) {
+                        trace.event("失败", String.valueOf(cause));
+                    }
+                    if (cause instanceof ProviderThrottledException || cause instanceof ProviderUnavailableException) {
+                        // 限流提示直接展示给玩家，不附带技术细节
+                        player.sendMessage(ChatColor.YELLOW + cause.getMessage());
+                    } else {
+                        player.sendMessage("村民思考失败: " + cause.getMessage());
+                    }
+                    result.completeExceptionally(cause);
+                    return;
+                }
 
-            if (isSuccess) {
-                String successMessage = handleSuccessResponse(player, profile, session, trimmed);
-                result.complete(successMessage);
-                return;
+                if (response.isDegraded()) {
+                    // 降级回复不是模型生成的内容，不写入对话历史
+                    String displayName = profile.getName() != null ? profile.getName() : "村民";
+                    player.sendMessage(displayName + ": " + response.getContent());
+                    result.complete(response.getContent());
+                    return;
+                }
+
+                String reply = response.getContent();
+                promptUsage.record(profile.getVillagerId(), profile.getName(), response);
+                if (cacheKey != null && cachedReply == null) {
+                    responseCache.put(cacheKey, neutralize(reply, player.getName()));
+                }
+                String trimmed = reply != null ? reply.trim() : "";
+                boolean isSuccess = isSuccessReply(trimmed, profile);
+
+                SemanticCache.Lookup lookup = semanticLookupResult(semanticLookup);
+                if (lookup != null && !lookup.isHit() && !isSuccess) {
+                    // 判定成功的回复不进入语义缓存，避免相近但错误的答案被判为猜中
+                    semanticCache.store(lookup, neutralize(reply, player.getName()));
+                }
+                TurnMetrics metrics = new TurnMetrics(providerName, requestModel,
+                    response.getPromptTokens(), response.getCompletionTokens(), response.getCachedTokens(),
+                    cachedReply != null || lookup != null && lookup.isHit(), queuedMillis, latencyMillis);
+
+                if (isSuccess) {
+                    String successMessage = handleSuccessResponse(player, profile, session, trimmed, metrics);
+                    result.complete(successMessage);
+                    return;
+                }
+
+                if (reply == null || reply.isBlank()) {
+                    reply = "(沉默)";
+                }
+
+                sessionManager.appendMessage(session, ProviderMessage.Role.ASSISTANT, reply);
+                plugin.getConversationLogger().log(
+                    profile.getVillagerId(),
+                    profile.getName(),
+                    playerId,
+                    player.getName(),
+                    ProviderMessage.Role.ASSISTANT,
+                    reply,
+                    metrics
+                );
+
+                if (trace != null) {
+                    trace.event("回复", reply);
+                }
+                String displayName = profile.getName() != null ? profile.getName() : "村民";
+                player.sendMessage(displayName + ": " + reply);
+                result.complete(reply);
+            }));
+        });
+
+        return result;
+    }
+
+    /**
+     * Wraps a provider callback so that its wait for the server thread, its run time there and
+     * the whole turn are recorded. The turn's {@code result} is always completed, even if the
+     * callback throws, because the request queue only releases the player's slot once it is.
+     */
+    private Runnable onMainThread(long scheduledAt, long turnStart, CompletableFuture<String> result, Runnable callback) {
+        return () -> {
+            long start = System.nanoTime();
+            callbackWait.record(start - scheduledAt);
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("处理村民回复时出错: " + e);
+                result.completeExceptionally(e);
+            } finally {
+                if (!result.isDone()) {
+                    result.completeExceptionally(new IllegalStateException("reply callback did not complete the turn"));
+                }
+                long end = System.nanoTime();
+                callbackRun.record(end - start);
+                turnLatency.record(end - turnStart);
             }
+        };
+    }
+
+    private boolean isSemanticHit(CompletableFuture<SemanticCache.Lookup> semanticLookup) {
+        SemanticCache.Lookup lookup = semanticLookupResult(semanticLookup);
+        return lookup != null && lookup.isHit();
+    }
+
+    public PromptUsage getPromptUsage() {
+        return promptUsage.getTotal();
+    }
+
+    public List<PromptUsage> getTopPromptUsage(int limit) {
+        return promptUsage.getTop(limit);
+    }
 
-            if (reply == null || reply.isBlank()) {
-                reply = "(沉默)";
+    /**
+     * System prompt plus history. The prefix layout sends the villager's fixed prefix first,
+     * then the session context and history, and places this turn's memories right before the
+     * player's latest line so everything ahead of it can be served from the upstream cache.
+     */
+    private List<ProviderMessage> buildRequestMessages(VillagerProfile profile, ConversationSession session,
+                                                       String playerName, ProviderConfig providerConfig, int maxTokens) {
+        List<ProviderMessage> messages = new ArrayList<>();
+        ProviderMessage memories = null;
+        PromptSettings promptSettings = plugin.getConfigService().getPromptSettings();
+        if (promptSettings != null && promptSettings.getLayout() == PromptLayout.PREFIX) {
+            SystemPromptParts parts = promptService.buildPromptParts(profile, session, playerName);
+            messages.add(new ProviderMessage(ProviderMessage.Role.SYSTEM, parts.getPrefix()));
+            if (!parts.getContext().isEmpty()) {
+                messages.add(new ProviderMessage(ProviderMessage.Role.SYSTEM, parts.getContext()));
+            }
+            if (!parts.getMemories().isEmpty()) {
+                memories = new ProviderMessage(ProviderMessage.Role.SYSTEM, parts.getMemories());
             }
+        } else {
+            messages.add(new ProviderMessage(ProviderMessage.Role.SYSTEM,
+                promptService.buildSystemPrompt(profile, session, playerName)));
+        }
 
-            sessionManager.appendMessage(session, ProviderMessage.Role.ASSISTANT, reply);
-            plugin.getConversationLogger().log(
-                profile.getVillagerId(),
-                profile.getName(),
-                playerId,
-                player.getName(),
-                ProviderMessage.Role.ASSISTANT,
-                reply
-            );
-
-            plugin.getLogger().info("[LLM Response] villager=" + profile.getName() + " -> " + reply);
-            String displayName = profile.getName() != null ? profile.getName() : "村民";
-            player.sendMessage(displayName + ": " + reply);
-            result.complete(reply);
-        }));
+        int systemTokens = 0;
+        for (ProviderMessage message : messages) {
+            systemTokens += TokenEstimator.messageTokens(plugin.getTokenizer().count(message.getContent()));
+        }
+        if (memories != null) {
+            systemTokens += TokenEstimator.messageTokens(plugin.getTokenizer().count(memories.getContent()));
+        }
 
-        return result;
+        List<ProviderMessage> history = sessionManager.buildPromptMessages(session,
+            historyTokenBudget(providerConfig, systemTokens, maxTokens));
+        if (memories == null || history.isEmpty()) {
+            messages.addAll(history);
+            if (memories != null) {
+                messages.add(memories);
+            }
+            return messages;
+        }
+        messages.addAll(history.subList(0, history.size() - 1));
+        messages.add(memories);
+        messages.add(history.get(history.size() - 1));
+        return messages;
+    }
+
+    /**
+     * Tokens left for history once the system messages and the reply are reserved, or 0 when
+     * the provider has no context limit configured.
+     */
+    private int historyTokenBudget(ProviderConfig providerConfig, int systemTokens, int maxTokens) {
+        if (providerConfig == null || providerConfig.getContextTokens() <= 0) {
+            return 0;
+        }
+        int reserved = TokenEstimator.requestOverhead()
+            + systemTokens
+            + Math.max(0, maxTokens);
+        // 预留后不足时仍至少携带最新一条消息
+        return Math.max(1, providerConfig.getContextTokens() - reserved);
+    }
+
+    /**
+     * Response cache key over a player-neutral rendering of the request: the player's name is
+     * replaced by {@code {user}} in every message, so the same opening question to a villager
+     * hits across players. Session variables such as a random target still differ per session.
+     */
+    private String responseCacheKey(List<ProviderMessage> messages, int maxTokens, double temperature,
+                                    String model, String playerName) {
+        List<ProviderMessage> neutral = new ArrayList<>(messages.size());
+        for (ProviderMessage message : messages) {
+            neutral.add(new ProviderMessage(message.getRole(), neutralize(message.getContent(), playerName)));
+        }
+        return new ProviderRequest(neutral, maxTokens, temperature, model).canonicalKey();
+    }
+
+    private CompletableFuture<SemanticCache.Lookup> lookupSemantic(SemanticCache semanticCache,
+                                                                   Player player,
+                                                                   VillagerProfile profile,
+                                                                   ConversationSession session,
+                                                                   String model,
+                                                                   String playerInput) {
+        // 用 {user} 代替玩家名计算上下文指纹，不同玩家问同一问题也能命中；
+        // 回忆内容随问题和玩家变化，不参与指纹
+        String fingerprint = SemanticCache.fingerprint(model,
+            promptService.buildSystemPrompt(profile, session, USER_PLACEHOLDER, false),
+            neutralize(findPreviousReply(session), player.getName()));
+        return semanticCache.lookup(profile, fingerprint, playerInput);
+    }
+
+    private SemanticCache.Lookup semanticLookupResult(CompletableFuture<SemanticCache.Lookup> semanticLookup) {
+        return semanticLookup != null && semanticLookup.isDone() && !semanticLookup.isCompletedExceptionally()
+            ? semanticLookup.join()
+            : null;
+    }
+
+    /**
+     * The villager's line the player is answering, i.e. the last assistant message before the new input.
+     */
+    private String findPreviousReply(ConversationSession session) {
+        List<ConversationMessage> messages = session.getMessages();
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            ConversationMessage message = messages.get(i);
+            if (message.getRole() == ProviderMessage.Role.ASSISTANT) {
+                return message.getContent();
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Replaces the player's name with {@code {user}} where it stands as a whole token, so a
+     * short name inside another word (e.g. "Sun" in "Sunday") is left alone.
+     */
+    private String neutralize(String text, String playerName) {
+        if (text == null || playerName == null || playerName.isEmpty()) {
+            return text;
+        }
+        int from = text.indexOf(playerName);
+        if (from < 0) {
+            return text;
+        }
+        StringBuilder out = new StringBuilder(text.length());
+        int copied = 0;
+        while (from >= 0) {
+            int end = from + playerName.length();
+            if ((from == 0 || !isNameChar(text.charAt(from - 1)))
+                && (end == text.length() || !isNameChar(text.charAt(end)))) {
+                out.append(text, copied, from).append(USER_PLACEHOLDER);
+                copied = end;
+                from = text.indexOf(playerName, end);
+            } else {
+                from = text.indexOf(playerName, from + 1);
+            }
+        }
+        return out.append(text, copied, text.length()).toString();
+    }
+
+    /**
+     * Characters allowed in Minecraft player names; any other neighbour, including CJK text,
+     * ends the name.
+     */
+    private static boolean isNameChar(char c) {
+        return c < 0x80 && (Character.isLetterOrDigit(c) || c == '_');
     }
 
     public void ensurePromptVariables(VillagerProfile profile, ConversationSession session) {
@@ -251,7 +593,7 @@ public class ConversationChatService {
         String villagerName = profile.getName() != null ? profile.getName() : "村民";
 
         if (hasIntroduction) {
-            String intro = promptService.renderTemplate(profile.getIntroduction(), profile, session, playerName).trim();
+            String intro = promptService.renderTemplate(profile.getCompiledIntroduction(), profile, session, playerName).trim();
             if (!intro.isEmpty()) {
                 player.sendMessage(ChatColor.AQUA + "[介绍] " + ChatColor.RESET + intro);
             }
@@ -259,7 +601,7 @@ public class ConversationChatService {
 
         boolean deliveredGreeting = false;
         if (hasGreeting) {
-            String greeting = promptService.renderTemplate(profile.getGreeting(), profile, session, playerName).trim();
+            String greeting = promptService.renderTemplate(profile.getCompiledGreeting(), profile, session, playerName).trim();
             if (!greeting.isEmpty()) {
                 sessionManager.appendMessage(session, ProviderMessage.Role.ASSISTANT, greeting);
                 plugin.getConversationLogger().log(
@@ -283,6 +625,23 @@ public class ConversationChatService {
         }
     }
 
+    /**
+     * Replies that must not leak through the streaming preview, i.e. the success
+     * triggers and success message that get replaced before reaching the player.
+     */
+    private List<String> resolveHiddenReplies(VillagerProfile profile) {
+        VillagerPromptOverride override = profile != null ? profile.getPromptOverride() : null;
+        VillagerSuccessBehavior success = override != null ? override.getSuccess() : null;
+        if (success == null) {
+            return DEFAULT_SUCCESS_TRIGGERS;
+        }
+        List<String> hidden = new ArrayList<>(success.getTriggers());
+        if (success.getMessage() != null && !success.getMessage().isBlank()) {
+            hidden.add(success.getMessage());
+        }
+        return hidden;
+    }
+
     private boolean isSuccessReply(String reply, VillagerProfile profile) {
         if (reply == null) {
             return false;
@@ -302,7 +661,11 @@ public class ConversationChatService {
         return normalized.equalsIgnoreCase(success.getMessage());
     }
 
-    private String handleSuccessResponse(Player player, VillagerProfile profile, ConversationSession session, String rawReply) {
+    private String handleSuccessResponse(Player player,
+                                         VillagerProfile profile,
+                                         ConversationSession session,
+                                         String rawReply,
+                                         TurnMetrics metrics) {
         VillagerPromptOverride override = profile.getPromptOverride();
         VillagerSuccessBehavior success = override != null ? override.getSuccess() : null;
 
@@ -317,7 +680,8 @@ public class ConversationChatService {
             player.getUniqueId(),
             player.getName(),
             ProviderMessage.Role.ASSISTANT,
-            successMessage
+            successMessage,
+            metrics
         );
 
         String displayName = profile.getName() != null ? profile.getName() : "村民";
@@ -1,12 +1,15 @@
 package me.arceus.mrp.conversation;
 
 import me.arceus.mrp.provider.ProviderMessage;
+import me.arceus.mrp.tokenizer.Tokenizer;
 
 public class ConversationMessage {
 
     private final ProviderMessage.Role role;
     private final String content;
     private final java.time.Instant timestamp;
+    private Tokenizer countedBy;
+    private int tokenCount;
 
     public ConversationMessage(ProviderMessage.Role role, String content) {
         this(role, content, java.time.Instant.now());
@@ -29,4 +32,15 @@ public class ConversationMessage {
     public java.time.Instant getTimestamp() {
         return timestamp;
     }
+
+    /**
+     * Token count of the content, computed once per tokenizer and then reused.
+     */
+    public synchronized int getTokenCount(Tokenizer tokenizer) {
+        if (countedBy != tokenizer) {
+            tokenCount = tokenizer.count(content);
+            countedBy = tokenizer;
+        }
+        return tokenCount;
+    }
 }
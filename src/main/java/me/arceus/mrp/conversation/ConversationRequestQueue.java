@@ -0,0 +1,228 @@
+package me.arceus.mrp.conversation;
+
+import me.arceus.mrp.villager.VillagerProfile;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Per-player FIFO of chat turns with a global fair dispatcher. Each player has at
+ * most one turn waiting on the provider; players with queued input are served
+ * round-robin while the number of active turns is under the global limit. When
+ * coalescing is enabled, consecutive queued lines for the same villager are sent
+ * as a single turn; the reply completes the last line's future and the earlier
+ * lines complete with {@code null}. Main thread only.
+ */
+class ConversationRequestQueue {
+
+    /**
+     * Runs one (possibly merged) turn. {@code queuedMillis} is how long the oldest line of the
+     * turn waited in the queue. The returned future must complete on the main thread.
+     */
+    interface TurnProcessor {
+        CompletableFuture<String> process(Player player, VillagerProfile profile, String input, long queuedMillis);
+    }
+
+    enum Admission {
+        STARTED,
+        QUEUED,
+        REJECTED
+    }
+
+    private final TurnProcessor processor;
+    private final Map<UUID, PlayerQueue> queues = new HashMap<>();
+    private final Deque<UUID> runnable = new ArrayDeque<>();
+    private int active;
+    private long dispatchedTurns;
+    private long coalescedMessages;
+    private long rejectedMessages;
+
+    ConversationRequestQueue(TurnProcessor processor) {
+        this.processor = processor;
+    }
+
+    Admission submit(Player player,
+                     VillagerProfile profile,
+                     String input,
+                     int maxDepth,
+                     boolean coalesce,
+                     int maxActive,
+                     CompletableFuture<String> result) {
+        UUID playerId = player.getUniqueId();
+        PlayerQueue queue = queues.computeIfAbsent(playerId, id -> new PlayerQueue());
+        boolean idle = !queue.inFlight && queue.pending.isEmpty();
+        if (!idle && queue.pending.size() >= maxDepth) {
+            rejectedMessages++;
+            return Admission.REJECTED;
+        }
+        queue.pending.addLast(new QueuedMessage(player, profile, input, result));
+        if (!queue.inFlight && !queue.scheduled) {
+            queue.scheduled = true;
+            runnable.addLast(playerId);
+        }
+        pump(coalesce, maxActive);
+        return queue.inFlight && queue.pending.isEmpty() ? Admission.STARTED : Admission.QUEUED;
+    }
+
+    boolean isBusy(UUID playerId) {
+        PlayerQueue queue = queues.get(playerId);
+        return queue != null && (queue.inFlight || !queue.pending.isEmpty());
+    }
+
+    int getQueuedCount(UUID playerId) {
+        PlayerQueue queue = queues.get(playerId);
+        return queue != null ? queue.pending.size() : 0;
+    }
+
+    int getActive() {
+        return active;
+    }
+
+    int getWaitingPlayers() {
+        return runnable.size();
+    }
+
+    int getQueuedMessages() {
+        int total = 0;
+        for (PlayerQueue queue : queues.values()) {
+            total += queue.pending.size();
+        }
+        return total;
+    }
+
+    long getDispatchedTurns() {
+        return dispatchedTurns;
+    }
+
+    long getCoalescedMessages() {
+        return coalescedMessages;
+    }
+
+    long getRejectedMessages() {
+        return rejectedMessages;
+    }
+
+    private void pump(boolean coalesce, int maxActive) {
+        while (active < maxActive && !runnable.isEmpty()) {
+            UUID playerId = runnable.pollFirst();
+            PlayerQueue queue = queues.get(playerId);
+            if (queue == null) {
+                continue;
+            }
+            queue.scheduled = false;
+            if (queue.pending.isEmpty()) {
+                continue;
+            }
+            List<QueuedMessage> batch = takeBatch(queue, coalesce);
+            QueuedMessage head = batch.get(0);
+            if (!head.player.isOnline()) {
+                // 玩家已离线，丢弃其全部排队消息
+                IllegalStateException offline = new IllegalStateException("player offline");
+                batch.forEach(message -> message.result.completeExceptionally(offline));
+                queue.pending.forEach(message -> message.result.completeExceptionally(offline));
+                queues.remove(playerId);
+                continue;
+            }
+            startTurn(playerId, queue, batch, coalesce, maxActive);
+        }
+    }
+
+    private List<QueuedMessage> takeBatch(PlayerQueue queue, boolean coalesce) {
+        List<QueuedMessage> batch = new ArrayList<>();
+        QueuedMessage first = queue.pending.pollFirst();
+        batch.add(first);
+        if (!coalesce) {
+            return batch;
+        }
+        UUID villagerId = first.profile.getVillagerId();
+        while (!queue.pending.isEmpty()
+            && villagerId.equals(queue.pending.peekFirst().profile.getVillagerId())) {
+            batch.add(queue.pending.pollFirst());
+        }
+        coalescedMessages += batch.size() - 1;
+        return batch;
+    }
+
+    private void startTurn(UUID playerId,
+                           PlayerQueue queue,
+                           List<QueuedMessage> batch,
+                           boolean coalesce,
+                           int maxActive) {
+        QueuedMessage last = batch.get(batch.size() - 1);
+        String input;
+        if (batch.size() == 1) {
+            input = last.input;
+        } else {
+            StringBuilder builder = new StringBuilder();
+            for (QueuedMessage message : batch) {
+                if (builder.length() > 0) {
+                    builder.append('\n');
+                }
+                builder.append(message.input);
+            }
+            input = builder.toString();
+        }
+
+        queue.inFlight = true;
+        active++;
+        dispatchedTurns++;
+
+        long queuedMillis = (System.nanoTime() - batch.get(0).submittedAt) / 1_000_000L;
+        CompletableFuture<String> turn;
+        try {
+            turn = processor.process(last.player, last.profile, input, queuedMillis);
+        } catch (RuntimeException e) {
+            turn = CompletableFuture.failedFuture(e);
+        }
+        turn.whenComplete((reply, error) -> {
+            for (QueuedMessage message : batch) {
+                if (error != null) {
+                    message.result.completeExceptionally(error);
+                } else {
+                    // 被合并的前几条消息不单独携带回复，避免调用方重复处理
+                    message.result.complete(message == last ? reply : null);
+                }
+            }
+            active--;
+            queue.inFlight = false;
+            if (queue.pending.isEmpty()) {
+                queues.remove(playerId, queue);
+            } else if (!queue.scheduled) {
+                // 排到队尾，让其他玩家先获得名额
+                queue.scheduled = true;
+                runnable.addLast(playerId);
+            }
+            pump(coalesce, maxActive);
+        });
+    }
+
+    private static final class PlayerQueue {
+
+        final Deque<QueuedMessage> pending = new ArrayDeque<>();
+        boolean inFlight;
+        boolean scheduled;
+    }
+
+    private static final class QueuedMessage {
+
+        final Player player;
+        final VillagerProfile profile;
+        final String input;
+        final CompletableFuture<String> result;
+        final long submittedAt = System.nanoTime();
+
+        QueuedMessage(Player player, VillagerProfile profile, String input, CompletableFuture<String> result) {
+            this.player = player;
+            this.profile = profile;
+            this.input = input;
+            this.result = result;
+        }
+    }
+}
@@ -16,6 +16,11 @@ public class ConversationSession {
     private final List<ConversationMessage> messages = new ArrayList<>();
     private final Map<String, String> promptVariables = new HashMap<>();
     private boolean welcomeDelivered;
+    private String summary;
+    private int summarizedCount;
+    private boolean summarizing;
+    private int promptVersion;
+    private long lastAccessMillis = System.currentTimeMillis();
 
     public ConversationSession(UUID playerId, UUID villagerId) {
         this.playerId = playerId;
@@ -32,6 +37,21 @@ public class ConversationSession {
         if (variables != null) {
             promptVariables.putAll(variables);
         }
+        promptVersion++;
+    }
+
+    void initializeSummary(String summary, int summarizedCount) {
+        this.summary = summary != null && !summary.isBlank() ? summary : null;
+        this.summarizedCount = this.summary != null ? Math.max(0, Math.min(summarizedCount, messages.size())) : 0;
+        promptVersion++;
+    }
+
+    void touch() {
+        lastAccessMillis = System.currentTimeMillis();
+    }
+
+    long getLastAccessMillis() {
+        return lastAccessMillis;
     }
 
     public UUID getPlayerId() {
@@ -53,6 +73,37 @@ public class ConversationSession {
     void clearMessages() {
         messages.clear();
         welcomeDelivered = false;
+        summary = null;
+        summarizedCount = 0;
+        promptVersion++;
+    }
+
+    /**
+     * Running summary of the messages before {@link #getSummarizedCount()}, or {@code null}.
+     */
+    public String getSummary() {
+        return summary;
+    }
+
+    /**
+     * Number of leading messages already folded into the summary; they are no longer sent verbatim.
+     */
+    public int getSummarizedCount() {
+        return summarizedCount;
+    }
+
+    void applySummary(String summary, int summarizedCount) {
+        this.summary = summary;
+        this.summarizedCount = summarizedCount;
+        promptVersion++;
+    }
+
+    boolean isSummarizing() {
+        return summarizing;
+    }
+
+    void setSummarizing(boolean summarizing) {
+        this.summarizing = summarizing;
     }
 
     public Map<String, String> getPromptVariables() {
@@ -68,6 +119,15 @@ public class ConversationSession {
         } else {
             promptVariables.put(key, value);
         }
+        promptVersion++;
+    }
+
+    /**
+     * Incremented whenever prompt variables or the summary change; the system prompt of the
+     * session depends on nothing else besides the profile and configuration.
+     */
+    public int getPromptVersion() {
+        return promptVersion;
     }
 
     public String getPromptVariable(String key) {
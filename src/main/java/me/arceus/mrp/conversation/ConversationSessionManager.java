@@ -2,43 +2,107 @@ package me.arceus.mrp.conversation;
 
 import me.arceus.mrp.MrpPlugin;
 import me.arceus.mrp.config.ConversationSettings;
+import me.arceus.mrp.config.SessionSettings;
 import me.arceus.mrp.provider.ProviderMessage;
+import me.arceus.mrp.provider.TokenEstimator;
+import me.arceus.mrp.tokenizer.Tokenizer;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+/**
+ * Keeps recently used conversation sessions in memory. The cache is bounded by
+ * size (least recently used first) and by idle time; evicted sessions are written
+ * back through {@link ConversationStorage} and reloaded on their next access,
+ * preferably from a snapshot prefetched off the main thread.
+ */
 public class ConversationSessionManager {
 
+    private static final long SWEEP_INTERVAL_TICKS = 20L * 60L;
+
     private final MrpPlugin plugin;
     private final ConversationStorage storage;
-    private final Map<String, ConversationSession> sessions = new HashMap<>();
+    private final Map<String, ConversationSession> sessions = new LinkedHashMap<>(16, 0.75f, true);
     private final Map<UUID, UUID> activeVillager = new HashMap<>();
+    private final SessionPrefetcher prefetcher;
+    private final ConversationSummarizer summarizer;
+    private BukkitTask sweepTask;
+    private long hits;
+    private long misses;
+    private long evictions;
 
     public ConversationSessionManager(MrpPlugin plugin, ConversationStorage storage) {
         this.plugin = plugin;
         this.storage = storage;
+        this.prefetcher = new SessionPrefetcher(plugin, storage, sessions::containsKey);
+        this.summarizer = new ConversationSummarizer(plugin, this, storage);
+    }
+
+    /**
+     * Starts the idle sweep and (re)applies prefetch settings. Called after every settings reload.
+     */
+    public void reloadSettings() {
+        if (sweepTask == null) {
+            sweepTask = Bukkit.getScheduler().runTaskTimer(plugin, this::evictIdleSessions,
+                SWEEP_INTERVAL_TICKS, SWEEP_INTERVAL_TICKS);
+        }
+        prefetcher.restart(plugin.getConfigService().getSessionSettings());
+    }
+
+    public void prefetchForPlayer(Player player) {
+        prefetcher.prefetchOnJoin(player);
+    }
+
+    public void discardPrefetchedForPlayer(UUID playerId) {
+        prefetcher.invalidatePlayer(playerId);
     }
 
     public ConversationSession getOrCreate(UUID playerId, UUID villagerId) {
         String key = buildKey(playerId, villagerId);
         ConversationSession session = sessions.get(key);
-        if (session == null) {
+        if (session != null) {
+            hits++;
+            session.touch();
+        } else {
+            misses++;
             session = new ConversationSession(playerId, villagerId);
-            ConversationStorage.ConversationSnapshot snapshot = storage.loadSnapshot(playerId, villagerId);
+            ConversationStorage.ConversationSnapshot snapshot = prefetcher.take(key);
+            if (snapshot == null) {
+                snapshot = storage.loadSnapshot(playerId, villagerId);
+            }
             if (!snapshot.messages().isEmpty()) {
                 session.initializeHistory(snapshot.messages());
             }
+            session.initializeSummary(snapshot.summary(), snapshot.summarizedCount());
             session.initializePromptVariables(snapshot.promptVariables());
             session.setWelcomeDelivered(snapshot.welcomeDelivered());
             sessions.put(key, session);
+            plugin.getMemoryStore().warm(session);
         }
         activeVillager.put(playerId, villagerId);
+        evictOverflow();
         return session;
     }
 
+    public SessionCacheStats getCacheStats() {
+        return new SessionCacheStats(sessions.size(), getCacheCapacity(), hits, misses, evictions,
+            prefetcher.getRequested(), prefetcher.getLoaded(), prefetcher.getHits(),
+            prefetcher.getMisses(), prefetcher.getExpired(), prefetcher.getReadyCount());
+    }
+
+    public SummaryStats getSummaryStats() {
+        return new SummaryStats(summarizer.getCompleted(), summarizer.getFailed(),
+            summarizer.getDiscarded(), summarizer.getRunning());
+    }
+
     public ConversationSession getSession(UUID playerId, UUID villagerId) {
         return sessions.get(buildKey(playerId, villagerId));
     }
@@ -67,7 +131,9 @@ public class ConversationSessionManager {
         if (session != null) {
             session.clearMessages();
         }
+        prefetcher.invalidate(key);
         boolean removed = storage.clearHistory(playerId, villagerId);
+        plugin.getMemoryStore().clear(playerId, villagerId);
         sessions.remove(key);
         UUID current = activeVillager.get(playerId);
         if (current != null && current.equals(villagerId)) {
@@ -80,11 +146,28 @@ public class ConversationSessionManager {
         return activeVillager.get(playerId);
     }
 
-    public List<ProviderMessage> buildPromptMessages(ConversationSession session) {
+    /**
+     * Most recent history that fits both the message-count window and {@code tokenBudget}.
+     * Messages already folded into the session summary are never included.
+     * The latest message is kept even if it alone exceeds the budget; a budget of zero or
+     * less disables the token limit.
+     */
+    public List<ProviderMessage> buildPromptMessages(ConversationSession session, int tokenBudget) {
         ConversationSettings settings = plugin.getConfigService().getConversationSettings();
         int window = settings != null ? settings.getContextWindow() : 8;
         List<ConversationMessage> history = session.getMessages();
-        int start = Math.max(history.size() - window, 0);
+        Tokenizer tokenizer = plugin.getTokenizer();
+        int floor = session.getSummarizedCount();
+        int start = history.size();
+        int used = 0;
+        while (start > floor && history.size() - start < window) {
+            int cost = TokenEstimator.messageTokens(history.get(start - 1).getTokenCount(tokenizer));
+            if (tokenBudget > 0 && used + cost > tokenBudget && start < history.size()) {
+                break;
+            }
+            used += cost;
+            start--;
+        }
 
         List<ProviderMessage> result = new ArrayList<>();
         for (int i = start; i < history.size(); i++) {
@@ -95,24 +178,97 @@ public class ConversationSessionManager {
     }
 
     public void shutdown() {
+        if (sweepTask != null) {
+            sweepTask.cancel();
+            sweepTask = null;
+        }
+        prefetcher.shutdown();
+        sessions.values().forEach(this::flush);
         sessions.clear();
         activeVillager.clear();
     }
 
+    private void evictOverflow() {
+        int capacity = getCacheCapacity();
+        if (sessions.size() <= capacity) {
+            return;
+        }
+        // 按最久未使用的顺序淘汰，正在进行中的对话保留
+        Iterator<ConversationSession> iterator = sessions.values().iterator();
+        while (sessions.size() > capacity && iterator.hasNext()) {
+            ConversationSession candidate = iterator.next();
+            if (isActive(candidate)) {
+                continue;
+            }
+            iterator.remove();
+            flush(candidate);
+            evictions++;
+        }
+    }
+
+    private void evictIdleSessions() {
+        SessionSettings settings = plugin.getConfigService().getSessionSettings();
+        long ttl = settings != null ? settings.getIdleTtlMillis() : 30L * 60_000L;
+        long cutoff = System.currentTimeMillis() - ttl;
+        Iterator<ConversationSession> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            ConversationSession candidate = iterator.next();
+            if (candidate.getLastAccessMillis() >= cutoff) {
+                // 访问顺序排列，后面的会话更新，无需继续扫描
+                break;
+            }
+            if (isActive(candidate)) {
+                // 正在对话的会话即使空闲超时也保留，继续检查后面的会话
+                continue;
+            }
+            iterator.remove();
+            flush(candidate);
+            evictions++;
+        }
+    }
+
+    private boolean isActive(ConversationSession session) {
+        return session.getVillagerId().equals(activeVillager.get(session.getPlayerId()));
+    }
+
+    private void flush(ConversationSession session) {
+        if (session.getMessages().isEmpty()
+            && session.getPromptVariables().isEmpty()
+            && !session.isWelcomeDelivered()) {
+            return;
+        }
+        storage.saveHistory(session);
+    }
+
+    private int getCacheCapacity() {
+        SessionSettings settings = plugin.getConfigService().getSessionSettings();
+        return settings != null ? settings.getMaxCachedSessions() : 500;
+    }
+
     public void clearSessionsForVillager(UUID villagerId) {
         sessions.entrySet().removeIf(entry -> entry.getKey().endsWith(":" + villagerId));
         activeVillager.entrySet().removeIf(entry -> villagerId.equals(entry.getValue()));
+        prefetcher.invalidateVillager(villagerId);
         storage.clearAllForVillager(villagerId);
+        plugin.getMemoryStore().clearVillager(villagerId);
     }
 
     public ConversationMessage appendMessage(ConversationSession session, ProviderMessage.Role role, String content) {
         session.appendMessage(role, content);
-        storage.saveHistory(session);
         List<ConversationMessage> messages = session.getMessages();
-        return messages.isEmpty() ? null : messages.get(messages.size() - 1);
+        ConversationMessage appended = messages.get(messages.size() - 1);
+        // 追加时即计算 token 数，之后组装上下文直接复用
+        appended.getTokenCount(plugin.getTokenizer());
+        storage.appendMessage(session, appended);
+        plugin.getMemoryStore().index(session, appended, messages.size() - 1);
+        if (role == ProviderMessage.Role.ASSISTANT) {
+            // 村民回复后一轮对话完整，再考虑折叠旧消息
+            summarizer.maybeSummarize(session);
+        }
+        return appended;
     }
 
-    private String buildKey(UUID playerId, UUID villagerId) {
+    static String buildKey(UUID playerId, UUID villagerId) {
         return playerId + ":" + villagerId;
     }
 }
@@ -4,15 +4,25 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import com.google.gson.JsonParseException;
 import me.arceus.mrp.MrpPlugin;
+import me.arceus.mrp.concurrent.ExecutionBackend;
+import me.arceus.mrp.config.StorageMode;
+import me.arceus.mrp.config.StorageSettings;
+import me.arceus.mrp.metrics.LatencyHistogram;
+import me.arceus.mrp.metrics.MetricsRegistry;
+import me.arceus.mrp.metrics.Utf8;
 import me.arceus.mrp.provider.ProviderMessage;
 import me.arceus.mrp.villager.VillagerProfile;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -21,24 +31,92 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 public class ConversationStorage {
 
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final Gson JOURNAL_GSON = new Gson();
+    private static final String RECORD_MESSAGE = "message";
+    private static final String RECORD_STATE = "state";
 
     private final MrpPlugin plugin;
     private final Path baseDir;
+    private final Map<String, JournalState> journalStates = new ConcurrentHashMap<>();
+    private final ConversationWriteBehind writeBehind;
+    private final ExecutorService readExecutor;
+    private final LatencyHistogram loadLatency;
+    private final LatencyHistogram saveLatency;
+    private final LongAdder readBytes;
+    private final LongAdder writtenBytes;
 
     public ConversationStorage(MrpPlugin plugin) {
         this.plugin = plugin;
         this.baseDir = plugin.getDataFolder().toPath().resolve("conversations");
+        ExecutionBackend backend = plugin.getExecutionBackend();
+        this.writeBehind = new ConversationWriteBehind(plugin.getLogger(), this::executeWrite,
+            backend.threadFactory("mrp-conversation-storage"));
+        this.readExecutor = backend.newTaskExecutor("mrp-conversation-read-");
+        MetricsRegistry metrics = plugin.getMetrics();
+        this.loadLatency = metrics.histogram("storage.load");
+        this.saveLatency = metrics.histogram("storage.save");
+        this.readBytes = metrics.counter("storage.read-bytes");
+        this.writtenBytes = metrics.counter("storage.write-bytes");
+        metrics.gauge("storage.pending-writes", () -> writeBehind.getStats().getQueueDepth());
     }
 
     public ConversationSnapshot loadSnapshot(UUID playerId, UUID villagerId) {
-        Path file = conversationFile(playerId, villagerId);
-        Path legacyFile = baseDir.resolve(villagerId.toString()).resolve(playerId.toString() + ".json");
+        return loadSnapshot(locate(playerId, villagerId));
+    }
+
+    /**
+     * Resolves the files backing a conversation. Directory names depend on the villager
+     * registry, so this must run on the main thread; the returned location can then be
+     * loaded from any thread.
+     */
+    public SnapshotLocation locate(UUID playerId, UUID villagerId) {
+        return new SnapshotLocation(
+            buildKey(playerId, villagerId),
+            conversationFile(playerId, villagerId),
+            legacyConversationFile(playerId, villagerId),
+            journalFile(playerId, villagerId)
+        );
+    }
+
+    /**
+     * Loads a conversation from a previously resolved location. Safe to call off the main thread.
+     */
+    public ConversationSnapshot loadSnapshot(SnapshotLocation location) {
+        // 仍在队列中的写入必须先落盘，否则会读到旧数据
+        writeBehind.awaitFlushed(location.key);
+        long start = System.nanoTime();
+        try {
+            ConversationSnapshot snapshot = readSnapshotFile(location.snapshotFile, location.legacyFile);
+            if (!Files.exists(location.journalFile)) {
+                return snapshot;
+            }
+            return replayJournal(location.key, location.journalFile, snapshot);
+        } finally {
+            loadLatency.recordSince(start);
+        }
+    }
+
+    /**
+     * Loads a conversation on the storage read executor.
+     */
+    public CompletableFuture<ConversationSnapshot> loadSnapshotAsync(SnapshotLocation location) {
+        return CompletableFuture.supplyAsync(() -> loadSnapshot(location), readExecutor);
+    }
+
+    private ConversationSnapshot readSnapshotFile(Path file, Path legacyFile) {
         if (!Files.exists(file) && Files.exists(legacyFile)) {
             file = legacyFile;
         }
@@ -46,13 +124,14 @@ public class ConversationStorage {
             return ConversationSnapshot.empty();
         }
         try (Reader reader = Files.newBufferedReader(file)) {
+            readBytes.add(Files.size(file));
             JsonElement root = JsonParser.parseReader(reader);
             if (root == null || root.isJsonNull()) {
                 return ConversationSnapshot.empty();
             }
             if (root.isJsonArray()) {
                 MessageRecord[] records = GSON.fromJson(root, MessageRecord[].class);
-                return new ConversationSnapshot(toMessages(records), Collections.emptyMap(), false);
+                return new ConversationSnapshot(toMessages(records), Collections.emptyMap(), false, null, 0);
             }
             if (root.isJsonObject()) {
                 StoredConversation stored = GSON.fromJson(root, StoredConversation.class);
@@ -61,7 +140,8 @@ public class ConversationStorage {
                     ? new HashMap<>(stored.promptVariables)
                     : Collections.emptyMap();
                 boolean welcomeDelivered = stored.welcomeDelivered != null && stored.welcomeDelivered;
-                return new ConversationSnapshot(messages, variables, welcomeDelivered);
+                int summarizedCount = stored.summarizedCount != null ? stored.summarizedCount : 0;
+                return new ConversationSnapshot(messages, variables, welcomeDelivered, stored.summary, summarizedCount);
             }
             return ConversationSnapshot.empty();
         } catch (IOException e) {
@@ -70,47 +150,260 @@ public class ConversationStorage {
         }
     }
 
+    /**
+     * Applies the records of a session journal on top of the last compacted snapshot.
+     * Message records already covered by the snapshot (by sequence number) are skipped,
+     * so a crash between compaction and journal removal never duplicates history.
+     */
+    private ConversationSnapshot replayJournal(String key, Path journal, ConversationSnapshot base) {
+        List<ConversationMessage> messages = new ArrayList<>(base.messages());
+        Map<String, String> variables = new HashMap<>(base.promptVariables());
+        boolean welcomeDelivered = base.welcomeDelivered();
+        String summary = base.summary();
+        int summarizedCount = base.summarizedCount();
+        int records = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journal)) {
+            readBytes.add(Files.size(journal));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JournalRecord record;
+                try {
+                    record = JOURNAL_GSON.fromJson(line, JournalRecord.class);
+                } catch (JsonParseException ex) {
+                    // 末尾可能存在写入一半的记录，跳过即可
+                    plugin.getLogger().warning("跳过损坏的对话日志记录: " + journal.getFileName());
+                    continue;
+                }
+                if (record == null) {
+                    continue;
+                }
+                records++;
+                if (RECORD_STATE.equals(record.type)) {
+                    variables.clear();
+                    if (record.promptVariables != null) {
+                        variables.putAll(record.promptVariables);
+                    }
+                    welcomeDelivered = record.welcomeDelivered != null && record.welcomeDelivered;
+                    summary = record.summary;
+                    summarizedCount = record.summarizedCount != null ? record.summarizedCount : 0;
+                } else if (record.message != null) {
+                    if (record.seq != null && record.seq < messages.size()) {
+                        continue;
+                    }
+                    messages.addAll(toMessages(List.of(record.message)));
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("读取对话日志失败: " + e.getMessage());
+        }
+        journalStates.put(key, new JournalState(records, stateHash(variables, welcomeDelivered, summary, summarizedCount)));
+        return new ConversationSnapshot(messages, variables, welcomeDelivered, summary, summarizedCount);
+    }
+
+    /**
+     * Persists the complete session. In journal mode this doubles as compaction.
+     */
     public void saveHistory(ConversationSession session) {
-        saveSnapshot(session);
+        submitSnapshot(session);
     }
 
-    private void saveSnapshot(ConversationSession session) {
-        UUID playerId = session.getPlayerId();
-        UUID villagerId = session.getVillagerId();
-        List<ConversationMessage> messages = session.getMessages();
+    /**
+     * Persists a message that has just been appended to {@code session}. Snapshot mode
+     * rewrites the whole history; journal mode appends a single compact record and only
+     * compacts once the journal reaches the configured threshold.
+     */
+    public void appendMessage(ConversationSession session, ConversationMessage message) {
+        StorageSettings settings = plugin.getConfigService().getStorageSettings();
+        if (settings == null || settings.getMode() != StorageMode.JOURNAL) {
+            submitSnapshot(session);
+            return;
+        }
+        String key = buildKey(session.getPlayerId(), session.getVillagerId());
+        JournalState state = journalStates.computeIfAbsent(key, ignored -> new JournalState(0, 0));
+        if (state.records >= settings.getJournalCompactThreshold()) {
+            submitSnapshot(session);
+            return;
+        }
+        String lines = buildJournalLines(session, message, state);
+        submit(session.getPlayerId(), session.getVillagerId(), write -> write.mergeJournal(lines));
+    }
+
+    public StorageWriteStats getWriteStats() {
+        return writeBehind.getStats();
+    }
+
+    private void submitSnapshot(ConversationSession session) {
+        boolean dropJournal = resetJournalState(session);
+        PendingWrite.SessionImage image = new PendingWrite.SessionImage(session);
+        submit(session.getPlayerId(), session.getVillagerId(), write -> write.mergeSnapshot(image, dropJournal));
+    }
+
+    private void submit(UUID playerId, UUID villagerId, Consumer<PendingWrite> merge) {
+        StorageSettings settings = plugin.getConfigService().getStorageSettings();
+        boolean asynchronous = settings == null || settings.isWriteBehind();
+        if (settings != null) {
+            writeBehind.configure(settings.getFlushIntervalMillis(), settings.isFsync());
+        }
+        String key = buildKey(playerId, villagerId);
+        writeBehind.submit(key,
+            () -> new PendingWrite(conversationFile(playerId, villagerId),
+                journalFile(playerId, villagerId),
+                legacyConversationFile(playerId, villagerId)),
+            merge);
+        if (!asynchronous) {
+            writeBehind.awaitFlushed(key);
+        }
+    }
+
+    private String buildJournalLines(ConversationSession session, ConversationMessage message, JournalState state) {
         Map<String, String> promptVariables = session.getPromptVariables();
+        boolean welcomeDelivered = session.isWelcomeDelivered();
+        int currentHash = stateHash(promptVariables, welcomeDelivered, session.getSummary(), session.getSummarizedCount());
+
+        StringBuilder lines = new StringBuilder();
+        if (state.records == 0 || state.stateHash != currentHash) {
+            JournalRecord stateRecord = new JournalRecord();
+            stateRecord.type = RECORD_STATE;
+            stateRecord.promptVariables = promptVariables.isEmpty() ? null : new HashMap<>(promptVariables);
+            stateRecord.welcomeDelivered = welcomeDelivered;
+            stateRecord.summary = session.getSummary();
+            stateRecord.summarizedCount = session.getSummary() != null ? session.getSummarizedCount() : null;
+            lines.append(JOURNAL_GSON.toJson(stateRecord)).append('\n');
+            state.records++;
+            state.stateHash = currentHash;
+        }
+        JournalRecord messageRecord = new JournalRecord();
+        messageRecord.type = RECORD_MESSAGE;
+        messageRecord.seq = session.getMessages().size() - 1;
+        messageRecord.message = MessageRecord.from(message);
+        lines.append(JOURNAL_GSON.toJson(messageRecord)).append('\n');
+        state.records++;
+        return lines.toString();
+    }
 
-        Path file = conversationFile(playerId, villagerId);
-        Path legacyFile = baseDir.resolve(villagerId.toString()).resolve(playerId.toString() + ".json");
+    /**
+     * Runs on the storage thread (or the caller once shut down). Applies the coalesced
+     * operations for one conversation in order: delete, full snapshot, journal append.
+     */
+    private void executeWrite(PendingWrite write, Set<Path> touched) throws IOException {
+        long start = System.nanoTime();
         try {
-            Files.createDirectories(file.getParent());
-            try (Writer writer = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-                MessageRecord[] records = new MessageRecord[messages.size()];
-                for (int i = 0; i < messages.size(); i++) {
-                    ConversationMessage message = messages.get(i);
-                    records[i] = MessageRecord.from(message);
-                }
-                StoredConversation stored = new StoredConversation();
-                stored.messages = new ArrayList<>(Arrays.asList(records));
-                if (promptVariables != null && !promptVariables.isEmpty()) {
-                    stored.promptVariables = new HashMap<>(promptVariables);
-                }
-                stored.welcomeDelivered = session.isWelcomeDelivered();
-                GSON.toJson(stored, writer);
+            applyWrite(write, touched);
+        } finally {
+            saveLatency.recordSince(start);
+        }
+    }
+
+    private void applyWrite(PendingWrite write, Set<Path> touched) throws IOException {
+        if (write.delete) {
+            deleteConversationFiles(write.snapshotFile, write.journalFile, write.legacyFile);
+        }
+        if (write.snapshot != null) {
+            writeSnapshotFile(write.snapshot, write.snapshotFile, write.legacyFile);
+            writtenBytes.add(Files.size(write.snapshotFile));
+            touched.add(write.snapshotFile);
+            if (write.dropJournal) {
+                Files.deleteIfExists(write.journalFile);
             }
-            if (!file.equals(legacyFile) && Files.exists(legacyFile)) {
-                Files.deleteIfExists(legacyFile);
-                Path legacyParent = legacyFile.getParent();
-                if (legacyParent != null && Files.exists(legacyParent)) {
-                    try (var stream = Files.list(legacyParent)) {
-                        if (!stream.findAny().isPresent()) {
-                            Files.deleteIfExists(legacyParent);
-                        }
-                    }
-                }
+        }
+        if (write.journal.length() > 0) {
+            Files.createDirectories(write.journalFile.getParent());
+            try (Writer writer = Files.newBufferedWriter(write.journalFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(write.journal.toString());
             }
-        } catch (IOException e) {
-            plugin.getLogger().warning("写入对话历史失败: " + e.getMessage());
+            writtenBytes.add(Utf8.length(write.journal));
+            touched.add(write.journalFile);
+        }
+    }
+
+    private void writeSnapshotFile(PendingWrite.SessionImage image, Path file, Path legacyFile) throws IOException {
+        List<ConversationMessage> messages = image.messages;
+        Map<String, String> promptVariables = image.promptVariables;
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.createDirectories(file.getParent());
+        try (Writer writer = Files.newBufferedWriter(tempFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MessageRecord[] records = new MessageRecord[messages.size()];
+            for (int i = 0; i < messages.size(); i++) {
+                ConversationMessage message = messages.get(i);
+                records[i] = MessageRecord.from(message);
+            }
+            StoredConversation stored = new StoredConversation();
+            stored.messages = new ArrayList<>(Arrays.asList(records));
+            if (promptVariables != null && !promptVariables.isEmpty()) {
+                stored.promptVariables = new HashMap<>(promptVariables);
+            }
+            stored.welcomeDelivered = image.welcomeDelivered;
+            if (image.summary != null) {
+                stored.summary = image.summary;
+                stored.summarizedCount = image.summarizedCount;
+            }
+            GSON.toJson(stored, writer);
+        }
+        replaceFile(tempFile, file);
+        if (!file.equals(legacyFile) && Files.exists(legacyFile)) {
+            Files.deleteIfExists(legacyFile);
+            deleteIfEmpty(legacyFile.getParent());
+        }
+    }
+
+    private void replaceFile(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Marks the journal as compacted because a full snapshot is about to cover everything
+     * it recorded.
+     *
+     * @return whether an existing journal file has to be removed after the snapshot
+     */
+    private boolean resetJournalState(ConversationSession session) {
+        String key = buildKey(session.getPlayerId(), session.getVillagerId());
+        JournalState state = journalStates.get(key);
+        if (state == null) {
+            return false;
+        }
+        boolean hadRecords = state.records > 0;
+        state.records = 0;
+        state.stateHash = stateHash(session.getPromptVariables(), session.isWelcomeDelivered(),
+            session.getSummary(), session.getSummarizedCount());
+        return hadRecords;
+    }
+
+    private void deleteIfEmpty(Path directory) throws IOException {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (var stream = Files.list(directory)) {
+            if (!stream.findAny().isPresent()) {
+                Files.deleteIfExists(directory);
+            }
+        }
+    }
+
+    private static int stateHash(Map<String, String> promptVariables, boolean welcomeDelivered,
+                                 String summary, int summarizedCount) {
+        return Objects.hash(promptVariables, welcomeDelivered, summary, summarizedCount);
+    }
+
+    public static final class SnapshotLocation {
+
+        private final String key;
+        private final Path snapshotFile;
+        private final Path legacyFile;
+        private final Path journalFile;
+
+        private SnapshotLocation(String key, Path snapshotFile, Path legacyFile, Path journalFile) {
+            this.key = key;
+            this.snapshotFile = snapshotFile;
+            this.legacyFile = legacyFile;
+            this.journalFile = journalFile;
         }
     }
 
@@ -118,8 +411,11 @@ public class ConversationStorage {
         private final List<ConversationMessage> messages;
         private final Map<String, String> promptVariables;
         private final boolean welcomeDelivered;
+        private final String summary;
+        private final int summarizedCount;
 
-        ConversationSnapshot(List<ConversationMessage> messages, Map<String, String> promptVariables, boolean welcomeDelivered) {
+        ConversationSnapshot(List<ConversationMessage> messages, Map<String, String> promptVariables, boolean welcomeDelivered,
+                             String summary, int summarizedCount) {
             this.messages = messages != null
                 ? Collections.unmodifiableList(new ArrayList<>(messages))
                 : Collections.emptyList();
@@ -127,10 +423,12 @@ public class ConversationStorage {
                 ? Collections.unmodifiableMap(new HashMap<>(promptVariables))
                 : Collections.emptyMap();
             this.welcomeDelivered = welcomeDelivered;
+            this.summary = summary;
+            this.summarizedCount = summarizedCount;
         }
 
         public static ConversationSnapshot empty() {
-            return new ConversationSnapshot(Collections.emptyList(), Collections.emptyMap(), false);
+            return new ConversationSnapshot(Collections.emptyList(), Collections.emptyMap(), false, null, 0);
         }
 
         public List<ConversationMessage> messages() {
@@ -144,12 +442,46 @@ public class ConversationStorage {
         public boolean welcomeDelivered() {
             return welcomeDelivered;
         }
+
+        public String summary() {
+            return summary;
+        }
+
+        public int summarizedCount() {
+            return summarizedCount;
+        }
     }
 
     private static class StoredConversation {
         List<MessageRecord> messages;
         Map<String, String> promptVariables;
         Boolean welcomeDelivered;
+        String summary;
+        Integer summarizedCount;
+    }
+
+    /**
+     * One line of a session journal: either an appended message or the prompt state
+     * (variables, welcome flag and running summary) as of the following messages.
+     */
+    private static class JournalRecord {
+        String type;
+        Integer seq;
+        MessageRecord message;
+        Map<String, String> promptVariables;
+        Boolean welcomeDelivered;
+        String summary;
+        Integer summarizedCount;
+    }
+
+    private static class JournalState {
+        int records;
+        int stateHash;
+
+        JournalState(int records, int stateHash) {
+            this.records = records;
+            this.stateHash = stateHash;
+        }
     }
 
     private List<ConversationMessage> toMessages(MessageRecord[] records) {
@@ -186,39 +518,30 @@ public class ConversationStorage {
     }
 
     public boolean clearHistory(UUID playerId, UUID villagerId) {
-        Path file = conversationFile(playerId, villagerId);
-        Path legacyFile = baseDir.resolve(villagerId.toString()).resolve(playerId.toString() + ".json");
-        boolean deleted = false;
-        try {
-            deleted = Files.deleteIfExists(file) || deleted;
-            Path parent = file.getParent();
-            if (parent != null && Files.exists(parent)) {
-                try (var stream = Files.list(parent)) {
-                    if (!stream.findAny().isPresent()) {
-                        Files.deleteIfExists(parent);
-                    }
-                }
-            }
+        String key = buildKey(playerId, villagerId);
+        journalStates.remove(key);
+        boolean existed = writeBehind.hasPending(key)
+            || Files.exists(conversationFile(playerId, villagerId))
+            || Files.exists(journalFile(playerId, villagerId))
+            || Files.exists(legacyConversationFile(playerId, villagerId));
+        submit(playerId, villagerId, PendingWrite::mergeDelete);
+        return existed;
+    }
 
-            if (!file.equals(legacyFile) && Files.exists(legacyFile)) {
-                deleted = Files.deleteIfExists(legacyFile) || deleted;
-                Path legacyParent = legacyFile.getParent();
-                if (legacyParent != null && Files.exists(legacyParent)) {
-                    try (var stream = Files.list(legacyParent)) {
-                        if (!stream.findAny().isPresent()) {
-                            Files.deleteIfExists(legacyParent);
-                        }
-                    }
-                }
-            }
-            return deleted;
-        } catch (IOException e) {
-            plugin.getLogger().warning("删除对话历史失败: " + e.getMessage());
-            return false;
+    private void deleteConversationFiles(Path file, Path journal, Path legacyFile) throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(journal);
+        deleteIfEmpty(file.getParent());
+
+        if (!file.equals(legacyFile) && Files.exists(legacyFile)) {
+            Files.deleteIfExists(legacyFile);
+            deleteIfEmpty(legacyFile.getParent());
         }
     }
 
     public void clearAllForVillager(UUID villagerId) {
+        journalStates.keySet().removeIf(key -> key.endsWith(":" + villagerId));
+        writeBehind.discard(key -> key.endsWith(":" + villagerId));
         Path dir = conversationDirectory(villagerId);
         if (!Files.exists(dir)) {
             if (!Files.exists(baseDir)) {
@@ -255,6 +578,18 @@ public class ConversationStorage {
         return conversationDirectory(villagerId).resolve(playerId.toString() + ".json");
     }
 
+    private Path legacyConversationFile(UUID playerId, UUID villagerId) {
+        return baseDir.resolve(villagerId.toString()).resolve(playerId.toString() + ".json");
+    }
+
+    private Path journalFile(UUID playerId, UUID villagerId) {
+        return conversationDirectory(villagerId).resolve(playerId.toString() + ".journal");
+    }
+
+    private String buildKey(UUID playerId, UUID villagerId) {
+        return playerId + ":" + villagerId;
+    }
+
     private Path conversationDirectory(UUID villagerId) {
         VillagerProfile profile = plugin.getVillagerRegistry().getProfile(villagerId);
         String dirName;
@@ -267,7 +602,8 @@ public class ConversationStorage {
     }
 
     public void shutdown() {
-        // currently no async resources to close; placeholder for future use
+        readExecutor.shutdownNow();
+        writeBehind.shutdown(10_000L);
     }
 
     private static class MessageRecord {
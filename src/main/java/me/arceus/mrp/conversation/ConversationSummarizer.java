@@ -0,0 +1,145 @@
+package me.arceus.mrp.conversation;
+
+import me.arceus.mrp.MrpPlugin;
+import me.arceus.mrp.config.ProviderConfig;
+import me.arceus.mrp.config.ProviderSettings;
+import me.arceus.mrp.config.SummarySettings;
+import me.arceus.mrp.provider.LLMProvider;
+import me.arceus.mrp.provider.ProviderMessage;
+import me.arceus.mrp.provider.ProviderRequest;
+import me.arceus.mrp.provider.ProviderResponse;
+import me.arceus.mrp.villager.VillagerProfile;
+import org.bukkit.Bukkit;
+
+import java.util.List;
+
+/**
+ * Folds the oldest unsummarised turns of a session into a running summary once enough of
+ * them have accumulated beyond the verbatim window. The summary request runs through the
+ * provider router in the background; its result is applied on the main thread only if the
+ * session is still cached and its history has not been cleared in the meantime, and is then
+ * persisted with the session.
+ */
+class ConversationSummarizer {
+
+    private static final double TEMPERATURE = 0.2D;
+    private static final String INSTRUCTIONS = "你负责整理角色扮演对话的长期记忆。"
+        + "请把已有摘要与新增对话合并为一段简洁的中文摘要，以第三人称叙述，"
+        + "保留人物关系、约定与承诺、重要事件以及玩家透露的偏好和信息，省略寒暄与重复内容。"
+        + "只输出摘要本身。";
+
+    private final MrpPlugin plugin;
+    private final ConversationSessionManager sessionManager;
+    private final ConversationStorage storage;
+    private long completed;
+    private long failed;
+    private long discarded;
+    private int running;
+
+    ConversationSummarizer(MrpPlugin plugin, ConversationSessionManager sessionManager, ConversationStorage storage) {
+        this.plugin = plugin;
+        this.sessionManager = sessionManager;
+        this.storage = storage;
+    }
+
+    /**
+     * Starts a fold if the session has enough unsummarised history. Main thread only.
+     */
+    void maybeSummarize(ConversationSession session) {
+        SummarySettings settings = plugin.getConfigService().getSummarySettings();
+        if (settings == null || !settings.isEnabled() || session.isSummarizing()) {
+            return;
+        }
+        List<ConversationMessage> history = session.getMessages();
+        int from = session.getSummarizedCount();
+        int to = history.size() - settings.getKeepRecent();
+        if (to - from < settings.getBatchMessages()) {
+            return;
+        }
+
+        LLMProvider provider = resolveProvider(settings);
+        if (provider == null) {
+            return;
+        }
+        String model = settings.getModel();
+        if (model.isEmpty()) {
+            ProviderSettings providerSettings = plugin.getConfigService().getProviderSettings();
+            ProviderConfig config = providerSettings != null ? providerSettings.getProvider(provider.getName()) : null;
+            model = config != null ? config.getModel() : null;
+        }
+
+        VillagerProfile profile = plugin.getVillagerRegistry().getProfile(session.getVillagerId());
+        String villagerName = profile != null && profile.getName() != null ? profile.getName() : "村民";
+        String prompt = buildPrompt(session.getSummary(), history.subList(from, to), villagerName);
+        ProviderRequest request = new ProviderRequest(List.of(
+            new ProviderMessage(ProviderMessage.Role.SYSTEM, INSTRUCTIONS),
+            new ProviderMessage(ProviderMessage.Role.USER, prompt)
+        ), settings.getMaxTokens(), TEMPERATURE, model);
+
+        ConversationMessage lastFolded = history.get(to - 1);
+        session.setSummarizing(true);
+        running++;
+        plugin.getProviderRegistry().getRouter().generate(provider.getName(), request)
+            .whenComplete((response, throwable) -> Bukkit.getScheduler().runTask(plugin, () -> {
+                running--;
+                session.setSummarizing(false);
+                if (throwable != null || response == null || response.isDegraded()) {
+                    failed++;
+                    if (throwable != null) {
+                        plugin.getLogger().warning("生成对话摘要失败: " + throwable.getMessage());
+                    }
+                    return;
+                }
+                apply(session, response, to, lastFolded);
+            }));
+    }
+
+    private void apply(ConversationSession session, ProviderResponse response, int to, ConversationMessage lastFolded) {
+        String summary = response.getContent() != null ? response.getContent().trim() : "";
+        List<ConversationMessage> history = session.getMessages();
+        boolean unchanged = history.size() >= to && history.get(to - 1) == lastFolded;
+        // 会话已被淘汰或清空时丢弃结果，避免用旧对象覆盖新的历史
+        if (summary.isEmpty() || !unchanged
+            || sessionManager.getSession(session.getPlayerId(), session.getVillagerId()) != session) {
+            discarded++;
+            return;
+        }
+        session.applySummary(summary, to);
+        storage.saveHistory(session);
+        completed++;
+    }
+
+    private LLMProvider resolveProvider(SummarySettings settings) {
+        LLMProvider provider = null;
+        if (!settings.getProvider().isEmpty()) {
+            provider = plugin.getProviderRegistry().getProvider(settings.getProvider());
+        }
+        return provider != null ? provider : plugin.getProviderRegistry().getDefaultProvider();
+    }
+
+    private String buildPrompt(String previousSummary, List<ConversationMessage> messages, String villagerName) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("已有摘要：\n").append(previousSummary != null ? previousSummary : "（无）").append("\n\n新增对话：\n");
+        for (ConversationMessage message : messages) {
+            String speaker = message.getRole() == ProviderMessage.Role.USER ? "玩家" : villagerName;
+            prompt.append(speaker).append(": ").append(message.getContent()).append('\n');
+        }
+        return prompt.toString();
+    }
+
+    long getCompleted() {
+        return completed;
+    }
+
+    long getFailed() {
+        return failed;
+    }
+
+    long getDiscarded() {
+        return discarded;
+    }
+
+    int getRunning() {
+        return running;
+    }
+}
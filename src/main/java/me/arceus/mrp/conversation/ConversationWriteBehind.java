@@ -0,0 +1,227 @@
+package me.arceus.mrp.conversation;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Dedicated storage thread that flushes dirty conversations in batches. Updates to
+ * the same conversation that arrive within one flush interval are merged into a
+ * single write, and all files touched by a batch are fsynced together at its end.
+ */
+class ConversationWriteBehind {
+
+    interface BatchWriter {
+        void write(PendingWrite write, Set<Path> touched) throws IOException;
+    }
+
+    private final Logger logger;
+    private final BatchWriter writer;
+    private final Object lock = new Object();
+    private final Map<String, PendingWrite> pending = new LinkedHashMap<>();
+    private final Set<String> inFlight = new HashSet<>();
+    private final Thread thread;
+
+    private boolean running = true;
+    private boolean urgent;
+    private volatile long flushIntervalMillis = 200L;
+    private volatile boolean fsync = true;
+
+    private long submittedUpdates;
+    private long writtenSessions;
+    private long batches;
+    private double lastFlushMillis;
+    private double totalFlushMillis;
+    private double maxFlushMillis;
+
+    ConversationWriteBehind(Logger logger, BatchWriter writer, ThreadFactory threadFactory) {
+        this.logger = logger;
+        this.writer = writer;
+        this.thread = threadFactory.newThread(this::run);
+        this.thread.start();
+    }
+
+    void configure(long flushIntervalMillis, boolean fsync) {
+        this.flushIntervalMillis = Math.max(0L, flushIntervalMillis);
+        this.fsync = fsync;
+    }
+
+    void submit(String key, Supplier<PendingWrite> factory, Consumer<PendingWrite> merge) {
+        PendingWrite direct = null;
+        synchronized (lock) {
+            if (running) {
+                PendingWrite write = pending.computeIfAbsent(key, ignored -> factory.get());
+                merge.accept(write);
+                submittedUpdates++;
+                lock.notifyAll();
+                return;
+            }
+            direct = factory.get();
+            merge.accept(direct);
+        }
+        // 已关闭时直接在调用线程写入，避免数据丢失
+        writeBatch(List.of(direct));
+    }
+
+    boolean hasPending(String key) {
+        synchronized (lock) {
+            return pending.containsKey(key) || inFlight.contains(key);
+        }
+    }
+
+    /**
+     * Blocks until everything queued for {@code key} has reached disk.
+     */
+    void awaitFlushed(String key) {
+        synchronized (lock) {
+            while ((pending.containsKey(key) || inFlight.contains(key)) && thread.isAlive()) {
+                urgent = true;
+                lock.notifyAll();
+                try {
+                    lock.wait(50L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops queued writes whose key matches and waits for any matching write that is
+     * already being flushed, so the caller can safely delete the underlying files.
+     */
+    void discard(Predicate<String> keyFilter) {
+        synchronized (lock) {
+            pending.keySet().removeIf(keyFilter);
+            while (inFlight.stream().anyMatch(keyFilter) && thread.isAlive()) {
+                try {
+                    lock.wait(50L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    StorageWriteStats getStats() {
+        synchronized (lock) {
+            double average = batches > 0 ? totalFlushMillis / batches : 0D;
+            return new StorageWriteStats(pending.size(), submittedUpdates, writtenSessions, batches,
+                lastFlushMillis, average, maxFlushMillis);
+        }
+    }
+
+    void shutdown(long timeoutMillis) {
+        synchronized (lock) {
+            running = false;
+            urgent = true;
+            lock.notifyAll();
+        }
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            logger.warning("对话存储线程未能在 " + timeoutMillis + "ms 内完成写入");
+            return;
+        }
+        List<PendingWrite> leftovers;
+        synchronized (lock) {
+            leftovers = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        if (!leftovers.isEmpty()) {
+            writeBatch(leftovers);
+        }
+    }
+
+    private void run() {
+        while (true) {
+            List<PendingWrite> batch;
+            synchronized (lock) {
+                while (pending.isEmpty() && running) {
+                    awaitSignal(0L);
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                // 给同一批次留出合并窗口
+                long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                while (running && !urgent) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0L) {
+                        break;
+                    }
+                    awaitSignal(remaining);
+                }
+                urgent = false;
+                batch = new ArrayList<>(pending.values());
+                inFlight.addAll(pending.keySet());
+                pending.clear();
+            }
+
+            long start = System.nanoTime();
+            writeBatch(batch);
+            double elapsed = (System.nanoTime() - start) / 1_000_000D;
+
+            synchronized (lock) {
+                inFlight.clear();
+                writtenSessions += batch.size();
+                batches++;
+                lastFlushMillis = elapsed;
+                totalFlushMillis += elapsed;
+                maxFlushMillis = Math.max(maxFlushMillis, elapsed);
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void awaitSignal(long timeoutMillis) {
+        try {
+            lock.wait(timeoutMillis);
+        } catch (InterruptedException ignored) {
+            // 存储线程只通过 shutdown 退出
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        Set<Path> touched = new LinkedHashSet<>();
+        for (PendingWrite write : batch) {
+            try {
+                writer.write(write, touched);
+            } catch (IOException | RuntimeException e) {
+                logger.warning("写入对话历史失败: " + e.getMessage());
+            }
+        }
+        if (!fsync) {
+            return;
+        }
+        for (Path path : touched) {
+            if (!Files.exists(path)) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            } catch (IOException e) {
+                logger.warning("同步对话历史到磁盘失败 " + path + ": " + e.getMessage());
+            }
+        }
+    }
+}
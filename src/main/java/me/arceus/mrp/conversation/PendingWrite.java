@@ -0,0 +1,69 @@
+package me.arceus.mrp.conversation;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coalesced disk work for a single player/villager conversation. Later updates
+ * replace or extend earlier ones, so a session that changes many times between
+ * flushes is written at most once per flush.
+ */
+class PendingWrite {
+
+    final Path snapshotFile;
+    final Path journalFile;
+    final Path legacyFile;
+
+    boolean delete;
+    SessionImage snapshot;
+    boolean dropJournal;
+    final StringBuilder journal = new StringBuilder();
+
+    PendingWrite(Path snapshotFile, Path journalFile, Path legacyFile) {
+        this.snapshotFile = snapshotFile;
+        this.journalFile = journalFile;
+        this.legacyFile = legacyFile;
+    }
+
+    void mergeDelete() {
+        delete = true;
+        snapshot = null;
+        dropJournal = false;
+        journal.setLength(0);
+    }
+
+    void mergeSnapshot(SessionImage image, boolean dropJournal) {
+        // 完整快照覆盖此前排队的所有追加记录
+        this.snapshot = image;
+        this.dropJournal = this.dropJournal || dropJournal;
+        journal.setLength(0);
+    }
+
+    void mergeJournal(String lines) {
+        journal.append(lines);
+    }
+
+    /**
+     * Immutable copy of a session taken on the main thread so it can be serialised
+     * on the storage thread without touching the live session.
+     */
+    static final class SessionImage {
+
+        final List<ConversationMessage> messages;
+        final Map<String, String> promptVariables;
+        final boolean welcomeDelivered;
+        final String summary;
+        final int summarizedCount;
+
+        SessionImage(ConversationSession session) {
+            this.messages = List.copyOf(session.getMessages());
+            this.promptVariables = Collections.unmodifiableMap(new HashMap<>(session.getPromptVariables()));
+            this.welcomeDelivered = session.isWelcomeDelivered();
+            this.summary = session.getSummary();
+            this.summarizedCount = session.getSummarizedCount();
+        }
+    }
+}
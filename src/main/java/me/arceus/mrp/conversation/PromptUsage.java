@@ -0,0 +1,42 @@
+package me.arceus.mrp.conversation;
+
+/**
+ * Prompt token usage reported by the provider for one villager, or for all villagers combined.
+ */
+public class PromptUsage {
+
+    private final String villagerName;
+    private final long requests;
+    private final long promptTokens;
+    private final long cachedTokens;
+
+    public PromptUsage(String villagerName, long requests, long promptTokens, long cachedTokens) {
+        this.villagerName = villagerName;
+        this.requests = requests;
+        this.promptTokens = promptTokens;
+        this.cachedTokens = cachedTokens;
+    }
+
+    public String getVillagerName() {
+        return villagerName;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getPromptTokens() {
+        return promptTokens;
+    }
+
+    /**
+     * Prompt tokens the provider served from its prefix cache.
+     */
+    public long getCachedTokens() {
+        return cachedTokens;
+    }
+
+    public double getCachedRatio() {
+        return promptTokens == 0 ? 0D : cachedTokens / (double) promptTokens;
+    }
+}
@@ -0,0 +1,67 @@
+package me.arceus.mrp.conversation;
+
+import me.arceus.mrp.provider.ProviderResponse;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Accumulates the prompt and cached-prompt token counts of model replies per villager, so
+ * the effect of the prefix prompt layout on upstream caching can be measured.
+ */
+class PromptUsageTracker {
+
+    private final Map<UUID, Counter> counters = new HashMap<>();
+    private final Counter total = new Counter("");
+
+    synchronized void record(UUID villagerId, String villagerName, ProviderResponse response) {
+        if (response.getPromptTokens() <= 0) {
+            // 缓存命中或服务端未返回 usage
+            return;
+        }
+        Counter counter = counters.computeIfAbsent(villagerId, ignored -> new Counter(villagerName));
+        counter.name = villagerName;
+        counter.add(response);
+        total.add(response);
+    }
+
+    synchronized PromptUsage getTotal() {
+        return total.snapshot();
+    }
+
+    /**
+     * Villagers with the most prompt tokens, highest first.
+     */
+    synchronized List<PromptUsage> getTop(int limit) {
+        List<PromptUsage> usages = new ArrayList<>(counters.size());
+        counters.values().forEach(counter -> usages.add(counter.snapshot()));
+        usages.sort(Comparator.comparingLong(PromptUsage::getPromptTokens).reversed());
+        return usages.size() > limit ? new ArrayList<>(usages.subList(0, limit)) : usages;
+    }
+
+    private static final class Counter {
+
+        private String name;
+        private long requests;
+        private long promptTokens;
+        private long cachedTokens;
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        void add(ProviderResponse response) {
+            requests++;
+            promptTokens += response.getPromptTokens();
+            cachedTokens += Math.min(response.getCachedTokens(), response.getPromptTokens());
+        }
+
+        PromptUsage snapshot() {
+            return new PromptUsage(name, requests, promptTokens, cachedTokens);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package me.arceus.mrp.conversation;
+
+/**
+ * Point-in-time counters of the chat request queue.
+ */
+public class RequestQueueStats {
+
+    private final int activeTurns;
+    private final int maxActiveTurns;
+    private final int waitingPlayers;
+    private final int queuedMessages;
+    private final long dispatchedTurns;
+    private final long coalescedMessages;
+    private final long rejectedMessages;
+
+    public RequestQueueStats(int activeTurns,
+                             int maxActiveTurns,
+                             int waitingPlayers,
+                             int queuedMessages,
+                             long dispatchedTurns,
+                             long coalescedMessages,
+                             long rejectedMessages) {
+        this.activeTurns = activeTurns;
+        this.maxActiveTurns = maxActiveTurns;
+        this.waitingPlayers = waitingPlayers;
+        this.queuedMessages = queuedMessages;
+        this.dispatchedTurns = dispatchedTurns;
+        this.coalescedMessages = coalescedMessages;
+        this.rejectedMessages = rejectedMessages;
+    }
+
+    public int getActiveTurns() {
+        return activeTurns;
+    }
+
+    public int getMaxActiveTurns() {
+        return maxActiveTurns;
+    }
+
+    public int getWaitingPlayers() {
+        return waitingPlayers;
+    }
+
+    public int getQueuedMessages() {
+        return queuedMessages;
+    }
+
+    public long getDispatchedTurns() {
+        return dispatchedTurns;
+    }
+
+    public long getCoalescedMessages() {
+        return coalescedMessages;
+    }
+
+    public long getRejectedMessages() {
+        return rejectedMessages;
+    }
+}
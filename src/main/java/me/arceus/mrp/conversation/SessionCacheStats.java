@@ -0,0 +1,103 @@
+package me.arceus.mrp.conversation;
+
+/**
+ * Point-in-time counters of the in-memory session cache.
+ */
+public class SessionCacheStats {
+
+    private final int size;
+    private final int capacity;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long prefetchRequested;
+    private final long prefetchLoaded;
+    private final long prefetchHits;
+    private final long prefetchMisses;
+    private final long prefetchExpired;
+    private final int prefetchReady;
+
+    public SessionCacheStats(int size,
+                             int capacity,
+                             long hits,
+                             long misses,
+                             long evictions,
+                             long prefetchRequested,
+                             long prefetchLoaded,
+                             long prefetchHits,
+                             long prefetchMisses,
+                             long prefetchExpired,
+                             int prefetchReady) {
+        this.size = size;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.prefetchRequested = prefetchRequested;
+        this.prefetchLoaded = prefetchLoaded;
+        this.prefetchHits = prefetchHits;
+        this.prefetchMisses = prefetchMisses;
+        this.prefetchExpired = prefetchExpired;
+        this.prefetchReady = prefetchReady;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0D : hits / (double) total;
+    }
+
+    public long getPrefetchRequested() {
+        return prefetchRequested;
+    }
+
+    public long getPrefetchLoaded() {
+        return prefetchLoaded;
+    }
+
+    /**
+     * Cache misses served from a prefetched snapshot.
+     */
+    public long getPrefetchHits() {
+        return prefetchHits;
+    }
+
+    /**
+     * Cache misses that still had to load synchronously on the main thread.
+     */
+    public long getPrefetchMisses() {
+        return prefetchMisses;
+    }
+
+    public long getPrefetchExpired() {
+        return prefetchExpired;
+    }
+
+    public int getPrefetchReady() {
+        return prefetchReady;
+    }
+
+    public double getPrefetchHitRatio() {
+        long total = prefetchHits + prefetchMisses;
+        return total == 0 ? 0D : prefetchHits / (double) total;
+    }
+}
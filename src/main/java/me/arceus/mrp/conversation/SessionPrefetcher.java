@@ -0,0 +1,266 @@
+package me.arceus.mrp.conversation;
+
+import me.arceus.mrp.MrpPlugin;
+import me.arceus.mrp.config.SessionSettings;
+import me.arceus.mrp.villager.VillagerProfile;
+import me.arceus.mrp.villager.VillagerRegistry;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Villager;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * Loads conversation snapshots on a background thread before they are needed,
+ * when a player joins and when they come close to a registered villager. Results
+ * are handed back to the main thread and consumed by the session manager on the
+ * next cache miss. All state is owned by the main thread.
+ */
+class SessionPrefetcher {
+
+    private final MrpPlugin plugin;
+    private final ConversationStorage storage;
+    private final Predicate<String> resident;
+    private final Map<String, Object> pending = new HashMap<>();
+    private final Map<String, Prefetched> ready = new HashMap<>();
+    private BukkitTask scanTask;
+    private long requested;
+    private long loaded;
+    private long hits;
+    private long misses;
+    private long expired;
+
+    SessionPrefetcher(MrpPlugin plugin, ConversationStorage storage, Predicate<String> resident) {
+        this.plugin = plugin;
+        this.storage = storage;
+        this.resident = resident;
+    }
+
+    void restart(SessionSettings settings) {
+        if (scanTask != null) {
+            scanTask.cancel();
+            scanTask = null;
+        }
+        if (settings == null || !settings.isPrefetchEnabled()) {
+            pending.clear();
+            ready.clear();
+            return;
+        }
+        long interval = settings.getPrefetchScanIntervalTicks();
+        scanTask = Bukkit.getScheduler().runTaskTimer(plugin, this::scan, interval, interval);
+    }
+
+    void shutdown() {
+        restart(null);
+    }
+
+    /**
+     * Queues every registered villager the player already has history with.
+     */
+    void prefetchOnJoin(Player player) {
+        if (scanTask == null) {
+            return;
+        }
+        List<UUID> villagerIds = new ArrayList<>();
+        for (VillagerProfile profile : plugin.getVillagerRegistry().getProfiles()) {
+            villagerIds.add(profile.getVillagerId());
+        }
+        // 进服时不缓存空结果，避免为从未交谈过的村民占用内存
+        prefetch(player.getUniqueId(), villagerIds, false);
+    }
+
+    /**
+     * Returns the prefetched snapshot for a cache miss, or {@code null} when the
+     * caller has to load synchronously.
+     */
+    ConversationStorage.ConversationSnapshot take(String key) {
+        pending.remove(key);
+        Prefetched prefetched = ready.remove(key);
+        if (prefetched == null || isExpired(prefetched, System.currentTimeMillis())) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return prefetched.snapshot;
+    }
+
+    /**
+     * Drops any queued or completed load for a key whose on-disk state is about to change.
+     */
+    void invalidate(String key) {
+        pending.remove(key);
+        ready.remove(key);
+    }
+
+    void invalidatePlayer(UUID playerId) {
+        String prefix = playerId + ":";
+        pending.keySet().removeIf(key -> key.startsWith(prefix));
+        ready.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    void invalidateVillager(UUID villagerId) {
+        String suffix = ":" + villagerId;
+        pending.keySet().removeIf(key -> key.endsWith(suffix));
+        ready.keySet().removeIf(key -> key.endsWith(suffix));
+    }
+
+    long getRequested() {
+        return requested;
+    }
+
+    long getLoaded() {
+        return loaded;
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+
+    long getExpired() {
+        return expired;
+    }
+
+    int getReadyCount() {
+        return ready.size();
+    }
+
+    private void scan() {
+        SessionSettings settings = plugin.getConfigService().getSessionSettings();
+        long now = System.currentTimeMillis();
+        ready.values().removeIf(prefetched -> {
+            if (isExpired(prefetched, now)) {
+                expired++;
+                return true;
+            }
+            return false;
+        });
+
+        double radius = settings.getPrefetchRadius();
+        if (radius <= 0D) {
+            return;
+        }
+        VillagerRegistry registry = plugin.getVillagerRegistry();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            Location location = player.getLocation();
+            World world = location.getWorld();
+            if (world == null) {
+                continue;
+            }
+            Collection<Entity> nearby = world.getNearbyEntities(location, radius, radius, radius,
+                entity -> entity instanceof Villager && registry.getProfile(entity.getUniqueId()) != null);
+            if (nearby.isEmpty()) {
+                continue;
+            }
+            List<UUID> villagerIds = new ArrayList<>(nearby.size());
+            for (Entity entity : nearby) {
+                villagerIds.add(entity.getUniqueId());
+            }
+            prefetch(player.getUniqueId(), villagerIds, true);
+        }
+    }
+
+    private void prefetch(UUID playerId, Collection<UUID> villagerIds, boolean retainEmpty) {
+        List<Request> batch = new ArrayList<>();
+        for (UUID villagerId : villagerIds) {
+            String key = ConversationSessionManager.buildKey(playerId, villagerId);
+            if (resident.test(key) || pending.containsKey(key) || ready.containsKey(key)) {
+                continue;
+            }
+            Object token = new Object();
+            pending.put(key, token);
+            // 路径依赖村民注册表，只能在主线程解析
+            batch.add(new Request(key, token, storage.locate(playerId, villagerId)));
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        requested += batch.size();
+        List<CompletableFuture<ConversationStorage.ConversationSnapshot>> loads = new ArrayList<>(batch.size());
+        for (Request request : batch) {
+            loads.add(storage.loadSnapshotAsync(request.location));
+        }
+        CompletableFuture.allOf(loads.toArray(new CompletableFuture[0])).whenComplete((ignored, error) -> {
+            if (error != null) {
+                plugin.getLogger().warning("预加载对话历史失败: " + error.getMessage());
+            }
+            if (!plugin.isEnabled()) {
+                return;
+            }
+            Bukkit.getScheduler().runTask(plugin, () -> complete(batch, loads, retainEmpty));
+        });
+    }
+
+    private void complete(List<Request> batch,
+                          List<CompletableFuture<ConversationStorage.ConversationSnapshot>> loads,
+                          boolean retainEmpty) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < batch.size(); i++) {
+            Request request = batch.get(i);
+            // 加载期间会话已被使用或失效时，结果可能过期，直接丢弃
+            if (!pending.remove(request.key, request.token) || resident.test(request.key)) {
+                continue;
+            }
+            CompletableFuture<ConversationStorage.ConversationSnapshot> load = loads.get(i);
+            if (load.isCompletedExceptionally()) {
+                continue;
+            }
+            ConversationStorage.ConversationSnapshot snapshot = load.join();
+            if (!retainEmpty && isEmpty(snapshot)) {
+                continue;
+            }
+            ready.put(request.key, new Prefetched(snapshot, now));
+            loaded++;
+        }
+    }
+
+    private boolean isExpired(Prefetched prefetched, long now) {
+        SessionSettings settings = plugin.getConfigService().getSessionSettings();
+        long ttl = settings != null ? settings.getPrefetchTtlMillis() : 120_000L;
+        return now - prefetched.loadedAt > ttl;
+    }
+
+    private static boolean isEmpty(ConversationStorage.ConversationSnapshot snapshot) {
+        return snapshot.messages().isEmpty()
+            && snapshot.promptVariables().isEmpty()
+            && !snapshot.welcomeDelivered();
+    }
+
+    private static final class Request {
+
+        final String key;
+        final Object token;
+        final ConversationStorage.SnapshotLocation location;
+
+        Request(String key, Object token, ConversationStorage.SnapshotLocation location) {
+            this.key = key;
+            this.token = token;
+            this.location = location;
+        }
+    }
+
+    private static final class Prefetched {
+
+        final ConversationStorage.ConversationSnapshot snapshot;
+        final long loadedAt;
+
+        Prefetched(ConversationStorage.ConversationSnapshot snapshot, long loadedAt) {
+            this.snapshot = snapshot;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
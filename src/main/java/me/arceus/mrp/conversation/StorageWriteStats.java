@@ -0,0 +1,66 @@
+package me.arceus.mrp.conversation;
+
+/**
+ * Point-in-time view of the conversation write-behind queue, used by admin commands.
+ */
+public class StorageWriteStats {
+
+    private final int queueDepth;
+    private final long submittedUpdates;
+    private final long writtenSessions;
+    private final long batches;
+    private final double lastFlushMillis;
+    private final double averageFlushMillis;
+    private final double maxFlushMillis;
+
+    public StorageWriteStats(int queueDepth,
+                             long submittedUpdates,
+                             long writtenSessions,
+                             long batches,
+                             double lastFlushMillis,
+                             double averageFlushMillis,
+                             double maxFlushMillis) {
+        this.queueDepth = queueDepth;
+        this.submittedUpdates = submittedUpdates;
+        this.writtenSessions = writtenSessions;
+        this.batches = batches;
+        this.lastFlushMillis = lastFlushMillis;
+        this.averageFlushMillis = averageFlushMillis;
+        this.maxFlushMillis = maxFlushMillis;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getSubmittedUpdates() {
+        return submittedUpdates;
+    }
+
+    public long getWrittenSessions() {
+        return writtenSessions;
+    }
+
+    /**
+     * Updates absorbed by coalescing, i.e. submitted but never written on their own.
+     */
+    public long getCoalescedUpdates() {
+        return Math.max(0L, submittedUpdates - writtenSessions - queueDepth);
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public double getLastFlushMillis() {
+        return lastFlushMillis;
+    }
+
+    public double getAverageFlushMillis() {
+        return averageFlushMillis;
+    }
+
+    public double getMaxFlushMillis() {
+        return maxFlushMillis;
+    }
+}
@@ -0,0 +1,100 @@
+package me.arceus.mrp.conversation;
+
+import me.arceus.mrp.MrpPlugin;
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.ChatMessageType;
+import net.md_5.bungee.api.chat.TextComponent;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Collects streamed reply deltas from provider threads and renders the
+ * partial text to the player's action bar from the main thread, at most
+ * once per configured tick interval.
+ */
+class StreamingReplyRenderer {
+
+    private final MrpPlugin plugin;
+    private final Player player;
+    private final String villagerName;
+    private final List<String> hiddenPrefixes;
+    private final int previewLength;
+    private final StringBuilder buffer = new StringBuilder();
+    private boolean dirty;
+    private BukkitTask task;
+
+    StreamingReplyRenderer(MrpPlugin plugin,
+                           Player player,
+                           String villagerName,
+                           List<String> hiddenPrefixes,
+                           int previewLength) {
+        this.plugin = plugin;
+        this.player = player;
+        this.villagerName = villagerName;
+        this.hiddenPrefixes = hiddenPrefixes;
+        this.previewLength = previewLength;
+    }
+
+    void start(long intervalTicks) {
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this::flush, intervalTicks, intervalTicks);
+    }
+
+    /**
+     * Called from provider threads for every received content delta.
+     */
+    void append(String delta) {
+        if (delta == null || delta.isEmpty()) {
+            return;
+        }
+        synchronized (buffer) {
+            buffer.append(delta);
+            dirty = true;
+        }
+    }
+
+    void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private void flush() {
+        String text;
+        synchronized (buffer) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            text = buffer.toString();
+        }
+        if (!player.isOnline()) {
+            stop();
+            return;
+        }
+        String normalized = text.replace('\r', ' ').replace('\n', ' ').trim();
+        // 成功触发词（如 SUCCESS）不应在生成过程中露出
+        if (normalized.isEmpty() || isHiddenPrefix(normalized)) {
+            return;
+        }
+        String preview = normalized.length() > previewLength
+            ? "…" + normalized.substring(normalized.length() - previewLength)
+            : normalized;
+        player.spigot().sendMessage(ChatMessageType.ACTION_BAR,
+            new TextComponent(ChatColor.GOLD + villagerName + ChatColor.RESET + " · " + preview));
+    }
+
+    private boolean isHiddenPrefix(String partial) {
+        String lower = partial.toLowerCase(Locale.ROOT);
+        for (String hidden : hiddenPrefixes) {
+            if (hidden != null && hidden.trim().toLowerCase(Locale.ROOT).startsWith(lower)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,38 @@
+package me.arceus.mrp.conversation;
+
+/**
+ * Point-in-time counters of the background conversation summariser.
+ */
+public class SummaryStats {
+
+    private final long completed;
+    private final long failed;
+    private final long discarded;
+    private final int running;
+
+    public SummaryStats(long completed, long failed, long discarded, int running) {
+        this.completed = completed;
+        this.failed = failed;
+        this.discarded = discarded;
+        this.running = running;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Summaries dropped because the session was cleared or evicted while they were generated.
+     */
+    public long getDiscarded() {
+        return discarded;
+    }
+
+    public int getRunning() {
+        return running;
+    }
+}
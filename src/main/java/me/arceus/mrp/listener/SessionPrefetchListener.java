@@ -0,0 +1,31 @@
+package me.arceus.mrp.listener;
+
+import me.arceus.mrp.MrpPlugin;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Warms conversation sessions in the background when players join, and drops
+ * unused prefetched data once they leave.
+ */
+public class SessionPrefetchListener implements Listener {
+
+    private final MrpPlugin plugin;
+
+    public SessionPrefetchListener(MrpPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.getSessionManager().prefetchForPlayer(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        plugin.getSessionManager().discardPrefetchedForPlayer(event.getPlayer().getUniqueId());
+    }
+}
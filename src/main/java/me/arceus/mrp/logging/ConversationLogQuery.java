@@ -0,0 +1,146 @@
+package me.arceus.mrp.logging;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Offline queries over the structured log. Aggregates are answered from the per-day index
+ * files; a day without an index is scanned once and, if it is already over, its rebuilt
+ * index is saved. Searches stream the segments line by line, newest day first, and keep
+ * only the requested number of matches in memory. Queries run one at a time on their own
+ * thread.
+ */
+public class ConversationLogQuery {
+
+    public enum Dimension {
+        VILLAGER,
+        PLAYER
+    }
+
+    public enum Metric {
+        TOKENS(LogAggregate::getTotalTokens),
+        MESSAGES(LogAggregate::getRecords),
+        LATENCY(LogAggregate::getAverageLatencyMillis);
+
+        private final ToDoubleFunction<LogAggregate> value;
+
+        Metric(ToDoubleFunction<LogAggregate> value) {
+            this.value = value;
+        }
+    }
+
+    private final Path directory;
+    private final ExecutorService executor;
+
+    ConversationLogQuery(Path directory, ExecutorService executor) {
+        this.directory = directory;
+        this.executor = executor;
+    }
+
+    /**
+     * Totals over the last {@code days} days including today.
+     */
+    public CompletableFuture<LogAggregate> summary(int days) {
+        return CompletableFuture.supplyAsync(() -> {
+            DayIndex.Totals total = new DayIndex.Totals();
+            for (DayIndex index : indexes(days)) {
+                index.villagers.values().forEach(total::merge);
+            }
+            total.name = null;
+            return total.toAggregate("");
+        }, executor);
+    }
+
+    public CompletableFuture<List<LogAggregate>> top(Dimension dimension, Metric metric, int days, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            Map<String, DayIndex.Totals> merged = new HashMap<>();
+            for (DayIndex index : indexes(days)) {
+                Map<String, DayIndex.Totals> totals = dimension == Dimension.VILLAGER ? index.villagers : index.players;
+                totals.forEach((id, value) -> merged.computeIfAbsent(id, ignored -> new DayIndex.Totals()).merge(value));
+            }
+            List<LogAggregate> aggregates = new ArrayList<>(merged.size());
+            merged.forEach((id, value) -> aggregates.add(value.toAggregate(id)));
+            aggregates.sort(Comparator.comparingDouble(metric.value).reversed());
+            return aggregates.size() > limit ? new ArrayList<>(aggregates.subList(0, limit)) : aggregates;
+        }, executor);
+    }
+
+    /**
+     * The most recent {@code limit} records whose message, villager or player contains
+     * {@code keyword}, newest first.
+     */
+    public CompletableFuture<List<LogSearchHit>> search(String keyword, int days, int limit) {
+        String needle = keyword.toLowerCase(Locale.ROOT);
+        return CompletableFuture.supplyAsync(() -> {
+            List<LogSearchHit> hits = new ArrayList<>();
+            LocalDate today = LocalDate.now();
+            for (int offset = 0; offset < days && hits.size() < limit; offset++) {
+                Deque<LogRecord> latest = new ArrayDeque<>();
+                int remaining = limit - hits.size();
+                try {
+                    StructuredLogFiles.scan(directory, today.minusDays(offset), record -> {
+                        if (matches(record, needle)) {
+                            latest.addLast(record);
+                            if (latest.size() > remaining) {
+                                latest.removeFirst();
+                            }
+                        }
+                        return true;
+                    });
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+                latest.descendingIterator().forEachRemaining(record -> hits.add(new LogSearchHit(
+                    record.time, record.villager, record.player, record.role, record.message)));
+            }
+            return hits;
+        }, executor);
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private List<DayIndex> indexes(int days) {
+        List<DayIndex> indexes = new ArrayList<>(days);
+        LocalDate today = LocalDate.now();
+        for (int offset = 0; offset < days; offset++) {
+            LocalDate day = today.minusDays(offset);
+            try {
+                DayIndex index = StructuredLogFiles.readIndex(directory, day);
+                if (index == null) {
+                    index = StructuredLogFiles.rebuildIndex(directory, day);
+                    if (day.isBefore(today) && index.records > 0) {
+                        // 已结束的日期不会再变化，保存重建的索引供下次查询
+                        StructuredLogFiles.writeIndex(directory, day, index);
+                    }
+                }
+                indexes.add(index);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }
+        return indexes;
+    }
+
+    private static boolean matches(LogRecord record, String needle) {
+        return contains(record.message, needle) || contains(record.villager, needle) || contains(record.player, needle);
+    }
+
+    private static boolean contains(String value, String needle) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(needle);
+    }
+}
@@ -1,36 +1,100 @@
 package me.arceus.mrp.logging;
 
 import me.arceus.mrp.MrpPlugin;
+import me.arceus.mrp.config.LoggingSettings;
+import me.arceus.mrp.metrics.MetricsRegistry;
 import me.arceus.mrp.provider.ProviderMessage;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.Writer;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Appends conversation lines to one log file per villager and, as JSON records with the
+ * turn's provider, usage and timing, to one structured file per day under {@code jsonl/}.
+ * Lines are offered to a preallocated ring buffer whose overflow policy decides whether a
+ * full buffer blocks, drops the oldest line or samples. A dedicated thread drains it in
+ * batches into an LRU of open, buffered files and flushes them once the flush interval has
+ * passed or enough bytes are buffered. Files are rotated when they grow too large or the day
+ * changes, and rotated segments are gzipped on a separate thread.
+ */
 public class ConversationLogger {
 
     private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter RECORD_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+    private static final int MAX_BATCH = 512;
+    private static final long IDLE_WAIT_MILLIS = 1000L;
+    private static final String JSONL_DIRECTORY = "jsonl";
+    private static final ZoneId ZONE = ZoneId.systemDefault();
 
     private final MrpPlugin plugin;
     private final Path logDirectory;
-    private final ExecutorService executor;
+    private final Path jsonlDirectory;
+    private final ConversationLogQuery query;
+    private final LogRingBuffer ring;
+    private final Map<String, LogFile> openFiles = new LinkedHashMap<>(16, 0.75f, true);
+    private final ExecutorService compressor;
+    private final Thread thread;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong rotations = new AtomicLong();
+    private final AtomicLong compressed = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile LoggingSettings settings;
+    private volatile boolean running = true;
+    private volatile int openFileCount;
+
+    // 以下字段只由日志线程访问
+    private long bufferedBytes;
+    private long lastFlush;
+    private boolean directoryReady;
+    private LocalDate jsonlDay;
+    private DayIndex jsonlIndex;
+    private boolean indexDirty;
 
     public ConversationLogger(MrpPlugin plugin) {
         this.plugin = plugin;
+        LoggingSettings initial = plugin.getConfigService().getLoggingSettings();
+        this.settings = initial != null ? initial : LoggingSettings.defaults();
+        // 槽位在启动时一次性分配，容量变化需重启生效
+        MetricsRegistry metrics = plugin.getMetrics();
+        this.ring = new LogRingBuffer(settings.getBufferCapacity(), metrics.counter("logging.dropped-oldest"),
+            metrics.counter("logging.dropped-sampled"), metrics.counter("logging.blocked"));
+        metrics.gauge("logging.buffer", ring::size);
         this.logDirectory = plugin.getDataFolder().toPath().resolve("logs");
-        this.executor = Executors.newSingleThreadExecutor(r -> {
-            Thread thread = new Thread(r, "mrp-conversation-logger");
-            thread.setDaemon(true);
-            return thread;
-        });
+        this.jsonlDirectory = logDirectory.resolve(JSONL_DIRECTORY);
+        this.query = new ConversationLogQuery(jsonlDirectory, plugin.getExecutionBackend().newSingleThreadExecutor("mrp-log-query"));
+        this.compressor = plugin.getExecutionBackend().newSingleThreadExecutor("mrp-log-compress");
+        this.thread = plugin.getExecutionBackend().threadFactory("mrp-conversation-logger").newThread(this::run);
+        this.thread.start();
+    }
+
+    public void reloadSettings() {
+        LoggingSettings latest = plugin.getConfigService().getLoggingSettings();
+        if (latest != null) {
+            settings = latest;
+        }
     }
 
     public void log(UUID villagerId,
@@ -39,45 +103,351 @@ public class ConversationLogger {
                     String playerName,
                     ProviderMessage.Role role,
                     String message) {
-        if (message == null) {
+        log(villagerId, villagerName, playerId, playerName, role, message, null);
+    }
+
+    /**
+     * Logs a villager reply together with the provider, usage and timing of its turn.
+     */
+    public void log(UUID villagerId,
+                    String villagerName,
+                    UUID playerId,
+                    String playerName,
+                    ProviderMessage.Role role,
+                    String message,
+                    TurnMetrics metrics) {
+        if (message == null || !running) {
             return;
         }
-        executor.execute(() -> writeEntry(villagerId, villagerName, playerId, playerName, role, message));
+        LoggingSettings current = settings;
+        ring.offer(System.currentTimeMillis(), villagerId, villagerName, playerId, playerName, role, message, metrics,
+            current.getOverflowPolicy(), current.getSampleRate(), current.getSampleThreshold());
+    }
+
+    public ConversationLogQuery getQuery() {
+        return query;
     }
 
-    private void writeEntry(UUID villagerId,
-                            String villagerName,
-                            UUID playerId,
-                            String playerName,
-                            ProviderMessage.Role role,
-                            String message) {
+    public LoggingStats getStats() {
+        return new LoggingStats(ring.size(), ring.capacity(), openFileCount, written.get(), batches.get(),
+            flushes.get(), rotations.get(), compressed.get(), ring.getDroppedOldest(), ring.getDroppedSampled(),
+            ring.getBlocked(), failures.get());
+    }
+
+    public void shutdown() {
+        running = false;
+        ring.close();
+        query.shutdown();
         try {
-            Files.createDirectories(logDirectory);
-            Path file = logDirectory.resolve(buildFileName(villagerId, villagerName));
-            String timestamp = LocalDateTime.now().format(TIMESTAMP);
-            StringBuilder builder = new StringBuilder();
-            builder.append("[")
-                .append(timestamp)
-                .append("] [")
-                .append(role)
-                .append("] player=")
-                .append(playerName)
-                .append(" (")
-                .append(playerId)
-                .append(") message=")
-                .append(message.replace('\n', ' '))
-                .append(System.lineSeparator());
-
-            try (Writer writer = Files.newBufferedWriter(file,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.APPEND)) {
-                writer.write(builder.toString());
+            thread.join(3000L);
+            if (thread.isAlive()) {
+                plugin.getLogger().warning("对话日志线程未能在 3 秒内写完");
+            }
+            compressor.shutdown();
+            if (!compressor.awaitTermination(5, TimeUnit.SECONDS)) {
+                compressor.shutdownNow();
             }
+        } catch (InterruptedException e) {
+            compressor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        LogEntry[] batch = new LogEntry[MAX_BATCH];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = new LogEntry();
+        }
+        while (true) {
+            LoggingSettings current = settings;
+            int count = ring.drainTo(batch);
+            if (count > 0) {
+                writeBatch(batch, count, current);
+            } else if (!running && ring.isEmpty()) {
+                break;
+            } else if (ring.isEmpty()) {
+                long waitMillis = bufferedBytes > 0
+                    ? lastFlush + current.getFlushIntervalMillis() - System.currentTimeMillis()
+                    : IDLE_WAIT_MILLIS;
+                if (waitMillis > 0L) {
+                    ring.await(TimeUnit.MILLISECONDS.toNanos(waitMillis));
+                }
+            } else {
+                // 队首槽位仍在写入
+                Thread.onSpinWait();
+            }
+            if (bufferedBytes > 0 && (bufferedBytes >= current.getFlushBytes()
+                || System.currentTimeMillis() - lastFlush >= current.getFlushIntervalMillis())) {
+                flushAll();
+            }
+            trimOpenFiles(current.getMaxOpenFiles());
+        }
+        flushAll();
+        trimOpenFiles(0);
+    }
+
+    private void writeBatch(LogEntry[] batch, int count, LoggingSettings current) {
+        for (int i = 0; i < count; i++) {
+            write(batch[i], current);
+            batch[i].clear();
+        }
+        batches.incrementAndGet();
+    }
+
+    private void write(LogEntry entry, LoggingSettings current) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.timestamp), ZONE);
+        try {
+            if (current.isText()) {
+                writeText(entry, time, current);
+            }
+            if (current.isJsonl()) {
+                writeJsonl(entry, time, current);
+            }
+            written.incrementAndGet();
         } catch (IOException e) {
+            failures.incrementAndGet();
+            directoryReady = false;
             plugin.getLogger().warning("写入对话日志失败: " + e.getMessage());
         }
     }
 
+    private void writeText(LogEntry entry, LocalDateTime time, LoggingSettings current) throws IOException {
+        String name = buildFileName(entry.villagerId, entry.villagerName);
+        byte[] line = format(entry, time).getBytes(StandardCharsets.UTF_8);
+        LocalDate day = time.toLocalDate();
+        LogFile file = open(name);
+        boolean dayChanged = current.isRotateDaily() && file.day != null && !file.day.equals(day);
+        if (file.size > 0 && (dayChanged || exceedsLimit(file, line, current))) {
+            rotate(name, file, current);
+            file = open(name);
+        }
+        append(file, line, day);
+    }
+
+    private void writeJsonl(LogEntry entry, LocalDateTime time, LoggingSettings current) throws IOException {
+        LocalDate day = time.toLocalDate();
+        if (!day.equals(jsonlDay)) {
+            switchJsonlDay(day, current);
+        }
+        LogRecord record = toRecord(entry, time);
+        byte[] line = (StructuredLogFiles.GSON.toJson(record) + "\n").getBytes(StandardCharsets.UTF_8);
+        String name = JSONL_DIRECTORY + "/" + StructuredLogFiles.activeName(day);
+        LogFile file = open(name);
+        if (file.size > 0 && exceedsLimit(file, line, current)) {
+            rotate(name, file, current);
+            file = open(name);
+        }
+        append(file, line, day);
+        jsonlIndex.add(record);
+        indexDirty = true;
+    }
+
+    /**
+     * Closes out the previous day's structured segment and index and loads the new day's
+     * index, rebuilding it from the segments if the index file is missing.
+     */
+    private void switchJsonlDay(LocalDate day, LoggingSettings current) throws IOException {
+        if (jsonlDay != null) {
+            saveIndex();
+            String previous = JSONL_DIRECTORY + "/" + StructuredLogFiles.activeName(jsonlDay);
+            LogFile file = openFiles.get(previous);
+            if (file != null) {
+                rotate(previous, file, current);
+            } else if (Files.exists(logDirectory.resolve(previous))) {
+                rotateFile(previous, jsonlDay, current);
+            }
+        }
+        DayIndex index = StructuredLogFiles.loadIndex(jsonlDirectory, day);
+        jsonlDay = day;
+        jsonlIndex = index;
+        indexDirty = false;
+    }
+
+    private void saveIndex() {
+        if (!indexDirty || jsonlIndex == null) {
+            return;
+        }
+        try {
+            StructuredLogFiles.writeIndex(jsonlDirectory, jsonlDay, jsonlIndex);
+            indexDirty = false;
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            plugin.getLogger().warning("写入结构化日志索引失败: " + e.getMessage());
+        }
+    }
+
+    private boolean exceedsLimit(LogFile file, byte[] line, LoggingSettings current) {
+        return current.getMaxFileBytes() > 0 && file.size + line.length > current.getMaxFileBytes();
+    }
+
+    private void append(LogFile file, byte[] line, LocalDate day) throws IOException {
+        file.out.write(line);
+        file.size += line.length;
+        file.pending += line.length;
+        file.day = day;
+        bufferedBytes += line.length;
+    }
+
+    private LogFile open(String name) throws IOException {
+        LogFile file = openFiles.get(name);
+        if (file != null) {
+            return file;
+        }
+        if (!directoryReady) {
+            Files.createDirectories(jsonlDirectory);
+            directoryReady = true;
+        }
+        Path path = logDirectory.resolve(name);
+        long size = Files.exists(path) ? Files.size(path) : 0L;
+        LocalDate day = size > 0
+            ? LocalDate.ofInstant(Files.getLastModifiedTime(path).toInstant(), ZoneId.systemDefault())
+            : null;
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND), 8192);
+        file = new LogFile(out, size, day);
+        openFiles.put(name, file);
+        openFileCount = openFiles.size();
+        return file;
+    }
+
+    private void rotate(String name, LogFile file, LoggingSettings current) throws IOException {
+        openFiles.remove(name);
+        close(file);
+        openFileCount = openFiles.size();
+        rotateFile(name, file.day != null ? file.day : LocalDate.now(), current);
+    }
+
+    private void rotateFile(String name, LocalDate day, LoggingSettings current) throws IOException {
+        Path source = logDirectory.resolve(name);
+        Path target = segmentPath(name, day);
+        Files.move(source, target);
+        rotations.incrementAndGet();
+        if (current.isCompress()) {
+            try {
+                compressor.execute(() -> compress(target));
+            } catch (RejectedExecutionException ignored) {
+                // 插件正在关闭，保留未压缩的分段
+            }
+        }
+    }
+
+    /**
+     * First free {@code <name>.<date>.<n>.log} for text logs, or {@code <date>.<n>.jsonl} for
+     * the structured log whose name already carries the date.
+     */
+    private Path segmentPath(String name, LocalDate day) {
+        int dot = name.lastIndexOf('.');
+        String extension = name.substring(dot);
+        String base = name.startsWith(JSONL_DIRECTORY + "/")
+            ? name.substring(0, dot) + "."
+            : name.substring(0, dot) + "." + day + ".";
+        for (int index = 1; ; index++) {
+            Path candidate = logDirectory.resolve(base + index + extension);
+            if (!Files.exists(candidate) && !Files.exists(candidate.resolveSibling(candidate.getFileName() + ".gz"))) {
+                return candidate;
+            }
+        }
+    }
+
+    private void compress(Path segment) {
+        Path target = segment.resolveSibling(segment.getFileName() + ".gz");
+        Path temp = segment.resolveSibling(segment.getFileName() + ".gz.tmp");
+        try {
+            try (InputStream in = Files.newInputStream(segment);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), 65_536)) {
+                in.transferTo(out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(segment);
+            compressed.incrementAndGet();
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            plugin.getLogger().warning("压缩对话日志 " + segment.getFileName() + " 失败: " + e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void flushAll() {
+        for (LogFile file : openFiles.values()) {
+            if (file.pending == 0) {
+                continue;
+            }
+            try {
+                file.out.flush();
+            } catch (IOException e) {
+                failures.incrementAndGet();
+                plugin.getLogger().warning("刷新对话日志失败: " + e.getMessage());
+            }
+            file.pending = 0;
+        }
+        // 索引只在数据落盘后更新，崩溃时最多落后一次刷新
+        saveIndex();
+        bufferedBytes = 0;
+        lastFlush = System.currentTimeMillis();
+        flushes.incrementAndGet();
+    }
+
+    private void trimOpenFiles(int capacity) {
+        Iterator<LogFile> iterator = openFiles.values().iterator();
+        while (openFiles.size() > capacity && iterator.hasNext()) {
+            close(iterator.next());
+            iterator.remove();
+        }
+        openFileCount = openFiles.size();
+    }
+
+    private void close(LogFile file) {
+        try {
+            file.out.close();
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            plugin.getLogger().warning("关闭对话日志失败: " + e.getMessage());
+        }
+        bufferedBytes = Math.max(0L, bufferedBytes - file.pending);
+        file.pending = 0;
+    }
+
+    private static String format(LogEntry entry, LocalDateTime time) {
+        return "["
+            + time.format(TIMESTAMP)
+            + "] ["
+            + entry.role
+            + "] player="
+            + entry.playerName
+            + " ("
+            + entry.playerId
+            + ") message="
+            + entry.message.replace('\n', ' ')
+            + System.lineSeparator();
+    }
+
+    private static LogRecord toRecord(LogEntry entry, LocalDateTime time) {
+        LogRecord record = new LogRecord();
+        record.time = time.format(RECORD_TIME);
+        record.villagerId = entry.villagerId != null ? entry.villagerId.toString() : null;
+        record.villager = entry.villagerName;
+        record.playerId = entry.playerId != null ? entry.playerId.toString() : null;
+        record.player = entry.playerName;
+        record.role = entry.role != null ? entry.role.name() : null;
+        TurnMetrics metrics = entry.metrics;
+        if (metrics != null) {
+            record.provider = metrics.getProvider();
+            record.model = metrics.getModel();
+            record.promptTokens = metrics.getPromptTokens();
+            record.completionTokens = metrics.getCompletionTokens();
+            record.cachedTokens = metrics.getCachedTokens();
+            record.cached = metrics.isCached() ? Boolean.TRUE : null;
+            record.queueMillis = metrics.getQueueMillis();
+            record.latencyMillis = metrics.getLatencyMillis();
+        }
+        record.message = entry.message;
+        return record;
+    }
+
     private String buildFileName(UUID villagerId, String villagerName) {
         String base = villagerName != null ? villagerName.trim().toLowerCase() : "villager";
         if (base.isEmpty()) {
@@ -94,15 +464,17 @@ public class ConversationLogger {
         return base + "_" + villagerId + ".log";
     }
 
-    public void shutdown() {
-        executor.shutdown();
-        try {
-            if (!executor.awaitTermination(3, TimeUnit.SECONDS)) {
-                executor.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            executor.shutdownNow();
-            Thread.currentThread().interrupt();
+    private static final class LogFile {
+
+        final OutputStream out;
+        long size;
+        long pending;
+        LocalDate day;
+
+        LogFile(OutputStream out, long size, LocalDate day) {
+            this.out = out;
+            this.size = size;
+            this.day = day;
         }
     }
 }
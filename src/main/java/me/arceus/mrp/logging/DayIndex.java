@@ -0,0 +1,81 @@
+package me.arceus.mrp.logging;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-villager and per-player totals of one day of the structured log, stored next to the
+ * day's segments as {@code <date>.index.json} so aggregate queries need not read the records.
+ */
+class DayIndex {
+
+    String date;
+    long records;
+    Map<String, Totals> villagers = new HashMap<>();
+    Map<String, Totals> players = new HashMap<>();
+
+    DayIndex() {
+    }
+
+    DayIndex(String date) {
+        this.date = date;
+    }
+
+    void add(LogRecord record) {
+        records++;
+        if (record.villagerId != null) {
+            villagers.computeIfAbsent(record.villagerId, ignored -> new Totals()).add(record, record.villager);
+        }
+        if (record.playerId != null) {
+            players.computeIfAbsent(record.playerId, ignored -> new Totals()).add(record, record.player);
+        }
+    }
+
+    static class Totals {
+
+        String name;
+        long records;
+        long replies;
+        long modelCalls;
+        long promptTokens;
+        long completionTokens;
+        long queueMillis;
+        long latencyMillis;
+
+        void add(LogRecord record, String latestName) {
+            if (latestName != null) {
+                name = latestName;
+            }
+            records++;
+            if (!record.isReply()) {
+                return;
+            }
+            replies++;
+            queueMillis += record.queueMillis != null ? record.queueMillis : 0L;
+            if (record.isModelCall()) {
+                modelCalls++;
+                latencyMillis += record.latencyMillis;
+            }
+            promptTokens += record.promptTokens != null ? record.promptTokens : 0;
+            completionTokens += record.completionTokens != null ? record.completionTokens : 0;
+        }
+
+        void merge(Totals other) {
+            if (other.name != null) {
+                name = other.name;
+            }
+            records += other.records;
+            replies += other.replies;
+            modelCalls += other.modelCalls;
+            promptTokens += other.promptTokens;
+            completionTokens += other.completionTokens;
+            queueMillis += other.queueMillis;
+            latencyMillis += other.latencyMillis;
+        }
+
+        LogAggregate toAggregate(String id) {
+            return new LogAggregate(id, name != null ? name : id, records, replies, modelCalls,
+                promptTokens, completionTokens, queueMillis, latencyMillis);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package me.arceus.mrp.logging;
+
+/**
+ * Point-in-time state and counters of the debug tracer.
+ */
+public class DebugStats {
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final int villagerOverrides;
+    private final int playerOverrides;
+    private final boolean fullPayloads;
+    private final int maxPayloadChars;
+    private final long traced;
+    private final long emitted;
+    private final long dropped;
+    private final int pending;
+
+    public DebugStats(boolean enabled,
+                      double sampleRate,
+                      int villagerOverrides,
+                      int playerOverrides,
+                      boolean fullPayloads,
+                      int maxPayloadChars,
+                      long traced,
+                      long emitted,
+                      long dropped,
+                      int pending) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.villagerOverrides = villagerOverrides;
+        this.playerOverrides = playerOverrides;
+        this.fullPayloads = fullPayloads;
+        this.maxPayloadChars = maxPayloadChars;
+        this.traced = traced;
+        this.emitted = emitted;
+        this.dropped = dropped;
+        this.pending = pending;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getVillagerOverrides() {
+        return villagerOverrides;
+    }
+
+    public int getPlayerOverrides() {
+        return playerOverrides;
+    }
+
+    public boolean isFullPayloads() {
+        return fullPayloads;
+    }
+
+    public int getMaxPayloadChars() {
+        return maxPayloadChars;
+    }
+
+    /**
+     * Turns picked by sampling since the plugin started.
+     */
+    public long getTraced() {
+        return traced;
+    }
+
+    /**
+     * Trace events written to the console.
+     */
+    public long getEmitted() {
+        return emitted;
+    }
+
+    /**
+     * Trace events discarded because the output thread was too far behind.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    public int getPending() {
+        return pending;
+    }
+}
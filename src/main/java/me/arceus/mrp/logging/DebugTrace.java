@@ -0,0 +1,47 @@
+package me.arceus.mrp.logging;
+
+import me.arceus.mrp.provider.ProviderMessage;
+
+import java.util.List;
+
+/**
+ * Handle of one sampled conversation turn. Events only capture references; truncation and
+ * formatting happen on the tracer thread, so calling them from the server thread is cheap.
+ */
+public final class DebugTrace {
+
+    private final DebugTracer tracer;
+    private final long id;
+    private final String villager;
+    private final String player;
+
+    DebugTrace(DebugTracer tracer, long id, String villager, String player) {
+        this.tracer = tracer;
+        this.id = id;
+        this.villager = villager;
+        this.player = player;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void event(String label, String detail) {
+        tracer.emit(this, label, detail, null);
+    }
+
+    /**
+     * Traces every message of a prompt, one console line per message.
+     */
+    public void messages(String label, List<ProviderMessage> messages) {
+        tracer.emit(this, label, null, messages);
+    }
+
+    String getVillager() {
+        return villager;
+    }
+
+    String getPlayer() {
+        return player;
+    }
+}
@@ -0,0 +1,223 @@
+package me.arceus.mrp.logging;
+
+import me.arceus.mrp.MrpPlugin;
+import me.arceus.mrp.config.DebugSettings;
+import me.arceus.mrp.provider.ProviderMessage;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Sampled debug output of prompts and provider payloads. A turn is traced with the rate of
+ * its player, else of its villager, else the default rate; unsampled turns cost one volatile
+ * read. Payloads are truncated and written to the console on a dedicated thread, and events
+ * beyond {@link #MAX_PENDING} waiting lines are dropped instead of queueing without bound.
+ * Overrides made through {@code /mrp debug} last until the next reload.
+ */
+public class DebugTracer {
+
+    private static final int MAX_PENDING = 1024;
+
+    private final MrpPlugin plugin;
+    private final Logger logger;
+    private final ExecutorService emitter;
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder traced = new LongAdder();
+    private final LongAdder emitted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile State state;
+
+    public DebugTracer(MrpPlugin plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.emitter = plugin.getExecutionBackend().newSingleThreadExecutor("mrp-debug-trace");
+        reloadSettings();
+    }
+
+    /**
+     * Discards runtime overrides and applies the configured settings.
+     */
+    public void reloadSettings() {
+        DebugSettings settings = plugin.getConfigService().getDebugSettings();
+        this.state = State.of(settings != null ? settings : DebugSettings.disabled());
+    }
+
+    /**
+     * @return a trace for this turn, or {@code null} if it was not sampled
+     */
+    public DebugTrace begin(UUID villagerId, String villagerName, UUID playerId, String playerName) {
+        State current = state;
+        if (!current.enabled) {
+            return null;
+        }
+        double rate = current.rateFor(playerId, playerName, villagerId, villagerName);
+        if (rate <= 0D || rate < 1D && ThreadLocalRandom.current().nextDouble() >= rate) {
+            return null;
+        }
+        traced.increment();
+        return new DebugTrace(this, nextId.incrementAndGet(), villagerName, playerName);
+    }
+
+    public boolean isEnabled() {
+        return state.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        State current = state;
+        state = new State(enabled, current.defaultRate, current.villagerRates, current.playerRates,
+            current.maxPayloadChars, current.fullPayloads);
+    }
+
+    public void setDefaultRate(double rate) {
+        State current = state;
+        state = new State(current.enabled, clamp(rate), current.villagerRates, current.playerRates,
+            current.maxPayloadChars, current.fullPayloads);
+    }
+
+    /**
+     * @param key villager UUID or name
+     */
+    public void setVillagerRate(String key, double rate) {
+        State current = state;
+        Map<String, Double> rates = new HashMap<>(current.villagerRates);
+        rates.put(key.toLowerCase(Locale.ROOT), clamp(rate));
+        state = new State(current.enabled, current.defaultRate, Map.copyOf(rates), current.playerRates,
+            current.maxPayloadChars, current.fullPayloads);
+    }
+
+    /**
+     * @param key player UUID or name
+     */
+    public void setPlayerRate(String key, double rate) {
+        State current = state;
+        Map<String, Double> rates = new HashMap<>(current.playerRates);
+        rates.put(key.toLowerCase(Locale.ROOT), clamp(rate));
+        state = new State(current.enabled, current.defaultRate, current.villagerRates, Map.copyOf(rates),
+            current.maxPayloadChars, current.fullPayloads);
+    }
+
+    public void setFullPayloads(boolean fullPayloads) {
+        State current = state;
+        state = new State(current.enabled, current.defaultRate, current.villagerRates, current.playerRates,
+            current.maxPayloadChars, fullPayloads);
+    }
+
+    public DebugStats getStats() {
+        State current = state;
+        return new DebugStats(current.enabled, current.defaultRate, current.villagerRates.size(),
+            current.playerRates.size(), current.fullPayloads, current.maxPayloadChars,
+            traced.sum(), emitted.sum(), dropped.sum(), pending.get());
+    }
+
+    public void shutdown() {
+        emitter.shutdown();
+    }
+
+    void emit(DebugTrace trace, String label, String detail, List<ProviderMessage> messages) {
+        if (pending.incrementAndGet() > MAX_PENDING) {
+            pending.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        int limit = state.fullPayloads ? Integer.MAX_VALUE : state.maxPayloadChars;
+        try {
+            emitter.execute(() -> {
+                try {
+                    String prefix = "[Trace #" + trace.getId() + " 村民=" + trace.getVillager()
+                        + " 玩家=" + trace.getPlayer() + "] " + label;
+                    if (messages == null) {
+                        logger.info(prefix + ": " + truncate(detail, limit));
+                    } else {
+                        logger.info(prefix + " (" + messages.size() + " 条消息)");
+                        for (ProviderMessage message : messages) {
+                            logger.info(" - " + message.getRole() + ": " + truncate(message.getContent(), limit));
+                        }
+                    }
+                    emitted.increment();
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 插件关闭期间产生的追踪直接丢弃
+            pending.decrementAndGet();
+            dropped.increment();
+        }
+    }
+
+    private static String truncate(String value, int limit) {
+        if (value == null) {
+            return "null";
+        }
+        if (value.length() <= limit) {
+            return value;
+        }
+        return value.substring(0, limit) + "...(截断，共 " + value.length() + " 字符)";
+    }
+
+    private static double clamp(double rate) {
+        return Math.min(1D, Math.max(0D, rate));
+    }
+
+    /**
+     * Immutable snapshot swapped as a whole so that sampling never sees a half-applied change.
+     */
+    private static final class State {
+
+        private final boolean enabled;
+        private final double defaultRate;
+        private final Map<String, Double> villagerRates;
+        private final Map<String, Double> playerRates;
+        private final int maxPayloadChars;
+        private final boolean fullPayloads;
+
+        private State(boolean enabled,
+                      double defaultRate,
+                      Map<String, Double> villagerRates,
+                      Map<String, Double> playerRates,
+                      int maxPayloadChars,
+                      boolean fullPayloads) {
+            this.enabled = enabled;
+            this.defaultRate = defaultRate;
+            this.villagerRates = villagerRates;
+            this.playerRates = playerRates;
+            this.maxPayloadChars = maxPayloadChars;
+            this.fullPayloads = fullPayloads;
+        }
+
+        private static State of(DebugSettings settings) {
+            return new State(settings.isEnabled(), settings.getSampleRate(), settings.getVillagerRates(),
+                settings.getPlayerRates(), settings.getMaxPayloadChars(), settings.isFullPayloads());
+        }
+
+        private double rateFor(UUID playerId, String playerName, UUID villagerId, String villagerName) {
+            Double rate = lookup(playerRates, playerId, playerName);
+            if (rate == null) {
+                rate = lookup(villagerRates, villagerId, villagerName);
+            }
+            return rate != null ? rate : defaultRate;
+        }
+
+        private static Double lookup(Map<String, Double> rates, UUID id, String name) {
+            if (rates.isEmpty()) {
+                return null;
+            }
+            Double rate = id != null ? rates.get(id.toString()) : null;
+            if (rate == null && name != null) {
+                rate = rates.get(name.toLowerCase(Locale.ROOT));
+            }
+            return rate;
+        }
+    }
+}
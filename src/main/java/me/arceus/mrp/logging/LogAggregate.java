@@ -0,0 +1,83 @@
+package me.arceus.mrp.logging;
+
+/**
+ * Totals of one villager or player over the queried days of the structured log.
+ */
+public class LogAggregate {
+
+    private final String id;
+    private final String name;
+    private final long records;
+    private final long replies;
+    private final long modelCalls;
+    private final long promptTokens;
+    private final long completionTokens;
+    private final long queueMillis;
+    private final long latencyMillis;
+
+    public LogAggregate(String id,
+                        String name,
+                        long records,
+                        long replies,
+                        long modelCalls,
+                        long promptTokens,
+                        long completionTokens,
+                        long queueMillis,
+                        long latencyMillis) {
+        this.id = id;
+        this.name = name;
+        this.records = records;
+        this.replies = replies;
+        this.modelCalls = modelCalls;
+        this.promptTokens = promptTokens;
+        this.completionTokens = completionTokens;
+        this.queueMillis = queueMillis;
+        this.latencyMillis = latencyMillis;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Logged messages from both sides.
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    public long getReplies() {
+        return replies;
+    }
+
+    /**
+     * Replies that were generated by the model rather than served from a cache.
+     */
+    public long getModelCalls() {
+        return modelCalls;
+    }
+
+    public long getPromptTokens() {
+        return promptTokens;
+    }
+
+    public long getCompletionTokens() {
+        return completionTokens;
+    }
+
+    public long getTotalTokens() {
+        return promptTokens + completionTokens;
+    }
+
+    public double getAverageQueueMillis() {
+        return replies > 0 ? (double) queueMillis / replies : 0D;
+    }
+
+    public double getAverageLatencyMillis() {
+        return modelCalls > 0 ? (double) latencyMillis / modelCalls : 0D;
+    }
+}
@@ -0,0 +1,40 @@
+package me.arceus.mrp.logging;
+
+import me.arceus.mrp.provider.ProviderMessage;
+
+import java.util.UUID;
+
+/**
+ * A reusable slot of the log ring buffer. Producers fill the fields in place and publish the
+ * slot by writing its {@link #sequence}; the consumer copies it out before the slot is reused.
+ */
+final class LogEntry {
+
+    long timestamp;
+    UUID villagerId;
+    String villagerName;
+    UUID playerId;
+    String playerName;
+    ProviderMessage.Role role;
+    String message;
+    TurnMetrics metrics;
+    volatile long sequence = -1L;
+
+    void copyFrom(LogEntry other) {
+        timestamp = other.timestamp;
+        villagerId = other.villagerId;
+        villagerName = other.villagerName;
+        playerId = other.playerId;
+        playerName = other.playerName;
+        role = other.role;
+        message = other.message;
+        metrics = other.metrics;
+    }
+
+    void clear() {
+        villagerName = null;
+        playerName = null;
+        message = null;
+        metrics = null;
+    }
+}
@@ -0,0 +1,36 @@
+package me.arceus.mrp.logging;
+
+/**
+ * One line of the structured {@code jsonl/} log. Usage and timing fields are only present
+ * on villager replies.
+ */
+class LogRecord {
+
+    String time;
+    String villagerId;
+    String villager;
+    String playerId;
+    String player;
+    String role;
+    String provider;
+    String model;
+    Integer promptTokens;
+    Integer completionTokens;
+    Integer cachedTokens;
+    Boolean cached;
+    Long queueMillis;
+    Long latencyMillis;
+    String message;
+
+    boolean isReply() {
+        return latencyMillis != null;
+    }
+
+    boolean isModelCall() {
+        return isReply() && !Boolean.TRUE.equals(cached);
+    }
+
+    int totalTokens() {
+        return (promptTokens != null ? promptTokens : 0) + (completionTokens != null ? completionTokens : 0);
+    }
+}
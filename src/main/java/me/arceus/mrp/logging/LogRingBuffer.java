@@ -0,0 +1,204 @@
+package me.arceus.mrp.logging;
+
+import me.arceus.mrp.config.LogOverflowPolicy;
+import me.arceus.mrp.provider.ProviderMessage;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer, single-consumer ring of preallocated {@link LogEntry} slots.
+ * Producers claim a sequence with a CAS on the tail, fill the slot in place and publish it by
+ * storing the sequence into the slot, so offering a line allocates nothing. The consumer
+ * copies published slots out and commits each one with a CAS on the head; dropping the
+ * oldest line is the same CAS done by a producer, so whichever side wins owns the slot.
+ */
+final class LogRingBuffer {
+
+    private static final long BLOCK_PARK_NANOS = 50_000L;
+
+    private final LogEntry[] slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final LongAdder droppedOldest;
+    private final LongAdder droppedSampled;
+    private final LongAdder blocked;
+    private volatile Thread consumer;
+    private volatile boolean consumerParked;
+    private volatile boolean closed;
+
+    /**
+     * Overflow is counted into the given counters, which the logger takes from the metrics registry.
+     */
+    LogRingBuffer(int requestedCapacity, LongAdder droppedOldest, LongAdder droppedSampled, LongAdder blocked) {
+        this.droppedOldest = droppedOldest;
+        this.droppedSampled = droppedSampled;
+        this.blocked = blocked;
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity) - 1) << 1;
+        this.slots = new LogEntry[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new LogEntry();
+        }
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Adds a line according to {@code policy}; returns {@code false} if it was discarded.
+     */
+    boolean offer(long timestamp,
+                  UUID villagerId,
+                  String villagerName,
+                  UUID playerId,
+                  String playerName,
+                  ProviderMessage.Role role,
+                  String message,
+                  TurnMetrics metrics,
+                  LogOverflowPolicy policy,
+                  int sampleRate,
+                  double sampleThreshold) {
+        int capacity = slots.length;
+        long sampleFrom = (long) (capacity * sampleThreshold);
+        boolean waited = false;
+        long sequence;
+        while (true) {
+            long t = tail.get();
+            long h = head.get();
+            long used = t - h;
+            if (used >= capacity) {
+                if (policy == LogOverflowPolicy.DROP_OLDEST) {
+                    // 只能抢走已发布的槽位，正在写入的槽位稍候再试
+                    if (slots[(int) h & mask].sequence == h && head.compareAndSet(h, h + 1)) {
+                        droppedOldest.increment();
+                    } else {
+                        Thread.onSpinWait();
+                    }
+                    continue;
+                }
+                if (policy == LogOverflowPolicy.SAMPLE) {
+                    droppedSampled.increment();
+                    return false;
+                }
+                if (closed) {
+                    return false;
+                }
+                if (!waited) {
+                    waited = true;
+                    blocked.increment();
+                }
+                wakeConsumer();
+                LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                continue;
+            }
+            if (policy == LogOverflowPolicy.SAMPLE && used >= sampleFrom
+                && sampleCounter.getAndIncrement() % sampleRate != 0) {
+                droppedSampled.increment();
+                return false;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                sequence = t;
+                break;
+            }
+        }
+        LogEntry slot = slots[(int) sequence & mask];
+        slot.timestamp = timestamp;
+        slot.villagerId = villagerId;
+        slot.villagerName = villagerName;
+        slot.playerId = playerId;
+        slot.playerName = playerName;
+        slot.role = role;
+        slot.message = message;
+        slot.metrics = metrics;
+        slot.sequence = sequence;
+        if (consumerParked) {
+            wakeConsumer();
+        }
+        return true;
+    }
+
+    /**
+     * Copies up to {@code batch.length} published lines into {@code batch}. Consumer thread only.
+     */
+    int drainTo(LogEntry[] batch) {
+        int count = 0;
+        while (count < batch.length) {
+            long h = head.get();
+            if (h >= tail.get()) {
+                break;
+            }
+            LogEntry slot = slots[(int) h & mask];
+            if (slot.sequence != h) {
+                if (head.get() == h) {
+                    // 生产者已占位但尚未写完
+                    break;
+                }
+                continue;
+            }
+            batch[count].copyFrom(slot);
+            if (head.compareAndSet(h, h + 1)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Parks the consumer until a line is offered, the buffer is closed or the timeout passes.
+     */
+    void await(long timeoutNanos) {
+        consumer = Thread.currentThread();
+        consumerParked = true;
+        try {
+            if (isEmpty() && !closed) {
+                LockSupport.parkNanos(this, timeoutNanos);
+            }
+        } finally {
+            consumerParked = false;
+        }
+    }
+
+    /**
+     * Stops blocking producers; lines that do not fit any more are discarded.
+     */
+    void close() {
+        closed = true;
+        wakeConsumer();
+    }
+
+    boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+
+    int size() {
+        return (int) Math.max(0L, tail.get() - head.get());
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    long getDroppedOldest() {
+        return droppedOldest.sum();
+    }
+
+    long getDroppedSampled() {
+        return droppedSampled.sum();
+    }
+
+    /**
+     * Lines whose producer had to wait for a free slot.
+     */
+    long getBlocked() {
+        return blocked.sum();
+    }
+
+    private void wakeConsumer() {
+        Thread thread = consumer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package me.arceus.mrp.logging;
+
+/**
+ * A structured log record matched by {@code /mrp logs search}.
+ */
+public class LogSearchHit {
+
+    private final String time;
+    private final String villager;
+    private final String player;
+    private final String role;
+    private final String message;
+
+    public LogSearchHit(String time, String villager, String player, String role, String message) {
+        this.time = time;
+        this.villager = villager;
+        this.player = player;
+        this.role = role;
+        this.message = message;
+    }
+
+    public String getTime() {
+        return time;
+    }
+
+    public String getVillager() {
+        return villager;
+    }
+
+    public String getPlayer() {
+        return player;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,112 @@
+package me.arceus.mrp.logging;
+
+/**
+ * Point-in-time counters of the conversation logger.
+ */
+public class LoggingStats {
+
+    private final int queueDepth;
+    private final int capacity;
+    private final int openFiles;
+    private final long written;
+    private final long batches;
+    private final long flushes;
+    private final long rotations;
+    private final long compressed;
+    private final long droppedOldest;
+    private final long droppedSampled;
+    private final long blocked;
+    private final long failures;
+
+    public LoggingStats(int queueDepth,
+                        int capacity,
+                        int openFiles,
+                        long written,
+                        long batches,
+                        long flushes,
+                        long rotations,
+                        long compressed,
+                        long droppedOldest,
+                        long droppedSampled,
+                        long blocked,
+                        long failures) {
+        this.queueDepth = queueDepth;
+        this.capacity = capacity;
+        this.openFiles = openFiles;
+        this.written = written;
+        this.batches = batches;
+        this.flushes = flushes;
+        this.rotations = rotations;
+        this.compressed = compressed;
+        this.droppedOldest = droppedOldest;
+        this.droppedSampled = droppedSampled;
+        this.blocked = blocked;
+        this.failures = failures;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Slots of the log ring buffer.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getOpenFiles() {
+        return openFiles;
+    }
+
+    /**
+     * Log lines written since the plugin started.
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getFlushes() {
+        return flushes;
+    }
+
+    public long getRotations() {
+        return rotations;
+    }
+
+    /**
+     * Rotated segments that have been gzipped.
+     */
+    public long getCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Lines discarded by the drop-oldest overflow policy.
+     */
+    public long getDroppedOldest() {
+        return droppedOldest;
+    }
+
+    /**
+     * Lines discarded by the sample overflow policy.
+     */
+    public long getDroppedSampled() {
+        return droppedSampled;
+    }
+
+    /**
+     * Lines whose caller had to wait because the buffer was full.
+     */
+    public long getBlocked() {
+        return blocked;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+}
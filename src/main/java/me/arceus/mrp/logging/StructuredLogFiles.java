@@ -0,0 +1,178 @@
+package me.arceus.mrp.logging;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Layout of the structured log directory: the active segment of a day is
+ * {@code <date>.jsonl}, rotated segments are {@code <date>.<n>.jsonl} (gzipped to
+ * {@code .jsonl.gz} in the background) and the day's totals live in {@code <date>.index.json}.
+ */
+final class StructuredLogFiles {
+
+    static final Gson GSON = new Gson();
+    private static final String EXTENSION = ".jsonl";
+    private static final String GZIP_EXTENSION = ".jsonl.gz";
+
+    private StructuredLogFiles() {
+    }
+
+    static String activeName(LocalDate day) {
+        return day + EXTENSION;
+    }
+
+    static Path indexFile(Path directory, LocalDate day) {
+        return directory.resolve(day + ".index.json");
+    }
+
+    /**
+     * Segments of the day in write order, the active segment last. A segment that exists both
+     * plain and gzipped (compression just finished) is listed once.
+     */
+    static List<Path> segments(Path directory, LocalDate day) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        String prefix = day + ".";
+        Map<String, Path> byBase = new LinkedHashMap<>();
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.forEach(path -> {
+                String name = path.getFileName().toString();
+                if (!name.startsWith(prefix)) {
+                    return;
+                }
+                if (name.endsWith(EXTENSION)) {
+                    byBase.put(name.substring(0, name.length() - EXTENSION.length()), path);
+                } else if (name.endsWith(GZIP_EXTENSION)) {
+                    byBase.putIfAbsent(name.substring(0, name.length() - GZIP_EXTENSION.length()), path);
+                }
+            });
+        }
+        List<Path> segments = new ArrayList<>(byBase.values());
+        segments.sort(Comparator.comparingInt(path -> segmentNumber(path, prefix)));
+        return segments;
+    }
+
+    /**
+     * Streams the day's records in write order until {@code visitor} returns {@code false}.
+     * Malformed lines, such as a record torn by a crash, are skipped.
+     */
+    static boolean scan(Path directory, LocalDate day, Predicate<LogRecord> visitor) throws IOException {
+        for (Path segment : segments(directory, day)) {
+            try {
+                if (!scanSegment(segment, visitor)) {
+                    return false;
+                }
+            } catch (NoSuchFileException e) {
+                // 分段刚被压缩，改读 .gz 版本
+                Path gzipped = segment.resolveSibling(segment.getFileName() + ".gz");
+                if (Files.exists(gzipped) && !scanSegment(gzipped, visitor)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    static DayIndex readIndex(Path directory, LocalDate day) throws IOException {
+        Path file = indexFile(directory, day);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return GSON.fromJson(reader, DayIndex.class);
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    static void writeIndex(Path directory, LocalDate day, DayIndex index) throws IOException {
+        Path file = indexFile(directory, day);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            GSON.toJson(index, writer);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Index of the day, rebuilt by scanning its segments when the index file is missing.
+     */
+    static DayIndex loadIndex(Path directory, LocalDate day) throws IOException {
+        DayIndex index = readIndex(directory, day);
+        return index != null ? index : rebuildIndex(directory, day);
+    }
+
+    static DayIndex rebuildIndex(Path directory, LocalDate day) throws IOException {
+        DayIndex rebuilt = new DayIndex(day.toString());
+        scan(directory, day, record -> {
+            rebuilt.add(record);
+            return true;
+        });
+        return rebuilt;
+    }
+
+    private static boolean scanSegment(Path segment, Predicate<LogRecord> visitor) throws IOException {
+        try (BufferedReader reader = open(segment)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                LogRecord record;
+                try {
+                    record = line.isBlank() ? null : GSON.fromJson(line, LogRecord.class);
+                } catch (JsonParseException e) {
+                    continue;
+                }
+                if (record != null && !visitor.test(record)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static BufferedReader open(Path segment) throws IOException {
+        InputStream in = Files.newInputStream(segment);
+        if (segment.getFileName().toString().endsWith(GZIP_EXTENSION)) {
+            in = new GZIPInputStream(in, 65_536);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 65_536);
+    }
+
+    /**
+     * Rotated segments sort by their number; the active {@code <date>.jsonl} sorts last.
+     */
+    private static int segmentNumber(Path path, String prefix) {
+        String name = path.getFileName().toString();
+        String rest = name.substring(prefix.length());
+        int dot = rest.indexOf('.');
+        if (dot <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        try {
+            return Integer.parseInt(rest.substring(0, dot));
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package me.arceus.mrp.logging;
+
+/**
+ * Provider, usage and timing of the chat turn that produced a villager reply.
+ */
+public class TurnMetrics {
+
+    private final String provider;
+    private final String model;
+    private final int promptTokens;
+    private final int completionTokens;
+    private final int cachedTokens;
+    private final boolean cached;
+    private final long queueMillis;
+    private final long latencyMillis;
+
+    public TurnMetrics(String provider,
+                       String model,
+                       int promptTokens,
+                       int completionTokens,
+                       int cachedTokens,
+                       boolean cached,
+                       long queueMillis,
+                       long latencyMillis) {
+        this.provider = provider;
+        this.model = model;
+        this.promptTokens = promptTokens;
+        this.completionTokens = completionTokens;
+        this.cachedTokens = cachedTokens;
+        this.cached = cached;
+        this.queueMillis = queueMillis;
+        this.latencyMillis = latencyMillis;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public int getPromptTokens() {
+        return promptTokens;
+    }
+
+    public int getCompletionTokens() {
+        return completionTokens;
+    }
+
+    public int getCachedTokens() {
+        return cachedTokens;
+    }
+
+    /**
+     * Whether the reply came from the response or semantic cache instead of the model.
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * Time the player's input waited in the conversation queue before the turn started.
+     */
+    public long getQueueMillis() {
+        return queueMillis;
+    }
+
+    /**
+     * Time from sending the request until the full reply arrived.
+     */
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+}
@@ -0,0 +1,336 @@
+package me.arceus.mrp.memory;
+
+import me.arceus.mrp.provider.ProviderMessage;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * BM25 index over the messages of one player/villager conversation. The shard file is an
+ * append-only log of {@code docId, timestamp, role, text} records; opening a shard replays
+ * the log to rebuild postings and per-document statistics, while message text stays on disk
+ * and is read back only for the few documents that are recalled. The text of the most
+ * recently indexed or read documents is also kept in a small byte-bounded cache, so recall
+ * can be answered without file I/O. A torn record at the end of the log (crash during
+ * append) is truncated on load.
+ */
+final class MemoryShard {
+
+    private static final int MAGIC = 0x4D52504D;
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 5;
+    private static final double K1 = 1.2D;
+    private static final double B = 0.75D;
+    private static final int TEXT_CACHE_BYTES = 32 * 1024;
+
+    private final FileChannel channel;
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final BitSet present = new BitSet();
+    private int count;
+    private int[] docIds = new int[16];
+    private long[] offsets = new long[16];
+    private int[] textLengths = new int[16];
+    private int[] docLengths = new int[16];
+    private long[] timestamps = new long[16];
+    private byte[] roles = new byte[16];
+    private long totalLength;
+    private long end;
+    // 按访问顺序淘汰，键为文档序号，容量按 UTF-8 字节数计算
+    private final LinkedHashMap<Integer, String> texts = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedTextBytes;
+
+    private MemoryShard(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    static MemoryShard open(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MemoryShard shard = new MemoryShard(channel);
+        try {
+            shard.load();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return shard;
+    }
+
+    private void load() throws IOException {
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).put(VERSION);
+            header.flip();
+            writeFully(header, 0);
+            end = HEADER_BYTES;
+            return;
+        }
+        InputStream raw = Channels.newInputStream(channel.position(0));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 65_536));
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("不是有效的记忆索引文件");
+        }
+        long position = HEADER_BYTES;
+        long good = position;
+        try {
+            while (true) {
+                int[] varint = new int[1];
+                int docId = readVarInt(in, varint);
+                position += varint[0];
+                long timestamp = in.readLong();
+                byte role = in.readByte();
+                position += 9;
+                int length = readVarInt(in, varint);
+                position += varint[0];
+                byte[] text = new byte[length];
+                in.readFully(text);
+                long textOffset = position;
+                position += length;
+                index(docId, timestamp, role, textOffset, new String(text, StandardCharsets.UTF_8), length);
+                good = position;
+            }
+        } catch (EOFException e) {
+            if (good < channel.size()) {
+                // 末尾是写入一半的记录
+                channel.truncate(good);
+            }
+        }
+        end = good;
+    }
+
+    synchronized boolean contains(int docId) {
+        return present.get(docId);
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Appends a message to the log and the in-memory postings. Ignored if already indexed.
+     */
+    synchronized void append(int docId, Instant timestamp, ProviderMessage.Role role, String content) throws IOException {
+        if (docId < 0 || present.get(docId) || content == null || content.isBlank()) {
+            return;
+        }
+        byte[] text = content.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(5 + 9 + 5 + text.length);
+        putVarInt(record, docId);
+        record.putLong(timestamp.toEpochMilli());
+        record.put((byte) role.ordinal());
+        putVarInt(record, text.length);
+        long textOffset = end + record.position();
+        record.put(text);
+        record.flip();
+        int written = record.remaining();
+        writeFully(record, end);
+        end += written;
+        index(docId, timestamp.toEpochMilli(), (byte) role.ordinal(), textOffset, content, text.length);
+    }
+
+    /**
+     * Top {@code limit} documents by BM25 score for {@code query}, considering only documents
+     * with an id below {@code beforeDocId}.
+     */
+    synchronized List<Hit> search(Map<String, Integer> query, int beforeDocId, int limit, double minScore) {
+        if (count == 0 || query.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        double averageLength = Math.max(1D, (double) totalLength / count);
+        Map<Integer, Double> scores = new HashMap<>();
+        for (String term : query.keySet()) {
+            Postings list = postings.get(term);
+            if (list == null) {
+                continue;
+            }
+            int df = list.size / 2;
+            double idf = Math.log(1D + (count - df + 0.5D) / (df + 0.5D));
+            for (int i = 0; i < list.size; i += 2) {
+                int ordinal = list.data[i];
+                if (docIds[ordinal] >= beforeDocId) {
+                    continue;
+                }
+                int tf = list.data[i + 1];
+                double norm = K1 * (1D - B + B * docLengths[ordinal] / averageLength);
+                scores.merge(ordinal, idf * tf * (K1 + 1D) / (tf + norm), Double::sum);
+            }
+        }
+        PriorityQueue<Hit> best = new PriorityQueue<>((a, b) -> Double.compare(a.score, b.score));
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            if (entry.getValue() < minScore) {
+                continue;
+            }
+            best.add(new Hit(entry.getKey(), entry.getValue()));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort((a, b) -> Double.compare(b.score, a.score));
+        return hits;
+    }
+
+    /**
+     * The hit's snippet if its text is cached, otherwise {@code null}. Never touches the file.
+     */
+    synchronized MemorySnippet cached(Hit hit) {
+        String text = texts.get(hit.ordinal);
+        return text != null ? snippet(hit, text) : null;
+    }
+
+    synchronized MemorySnippet read(Hit hit) throws IOException {
+        int ordinal = hit.ordinal;
+        String text = texts.get(ordinal);
+        if (text == null) {
+            ByteBuffer buffer = ByteBuffer.allocate(textLengths[ordinal]);
+            long position = offsets[ordinal];
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException();
+                }
+            }
+            text = new String(buffer.array(), StandardCharsets.UTF_8);
+            cacheText(ordinal, text);
+        }
+        return snippet(hit, text);
+    }
+
+    synchronized void close() {
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private MemorySnippet snippet(Hit hit, String text) {
+        ProviderMessage.Role[] values = ProviderMessage.Role.values();
+        int role = roles[hit.ordinal];
+        return new MemorySnippet(role >= 0 && role < values.length ? values[role] : ProviderMessage.Role.ASSISTANT,
+            text, Instant.ofEpochMilli(timestamps[hit.ordinal]), hit.score);
+    }
+
+    private void cacheText(int ordinal, String text) {
+        int bytes = textLengths[ordinal];
+        if (bytes > TEXT_CACHE_BYTES || texts.put(ordinal, text) != null) {
+            return;
+        }
+        cachedTextBytes += bytes;
+        var iterator = texts.entrySet().iterator();
+        while (cachedTextBytes > TEXT_CACHE_BYTES && iterator.hasNext()) {
+            cachedTextBytes -= textLengths[iterator.next().getKey()];
+            iterator.remove();
+        }
+    }
+
+    private void index(int docId, long timestamp, byte role, long textOffset, String text, int textLength) {
+        if (present.get(docId)) {
+            return;
+        }
+        if (count == docIds.length) {
+            int capacity = count * 2;
+            docIds = Arrays.copyOf(docIds, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            textLengths = Arrays.copyOf(textLengths, capacity);
+            docLengths = Arrays.copyOf(docLengths, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            roles = Arrays.copyOf(roles, capacity);
+        }
+        Map<String, Integer> terms = TermAnalyzer.analyze(text);
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : terms.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), ignored -> new Postings()).add(count, entry.getValue());
+            length += entry.getValue();
+        }
+        docIds[count] = docId;
+        offsets[count] = textOffset;
+        textLengths[count] = textLength;
+        docLengths[count] = length;
+        timestamps[count] = timestamp;
+        roles[count] = role;
+        totalLength += length;
+        present.set(docId);
+        count++;
+        cacheText(count - 1, text);
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        long at = position;
+        while (buffer.hasRemaining()) {
+            at += channel.write(buffer, at);
+        }
+    }
+
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int readVarInt(DataInputStream in, int[] bytesRead) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int read = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            read++;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                bytesRead[0] = read;
+                return value;
+            }
+            shift += 7;
+            if (shift > 28) {
+                throw new IOException("记忆索引中的长度字段损坏");
+            }
+        }
+    }
+
+    static final class Hit {
+
+        final int ordinal;
+        final double score;
+
+        Hit(int ordinal, double score) {
+            this.ordinal = ordinal;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Interleaved {@code ordinal, termFrequency} pairs of one term.
+     */
+    private static final class Postings {
+
+        int[] data = new int[4];
+        int size;
+
+        void add(int ordinal, int tf) {
+            if (size + 2 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = ordinal;
+            data[size++] = tf;
+        }
+    }
+}
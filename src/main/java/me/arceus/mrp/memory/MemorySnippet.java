@@ -0,0 +1,39 @@
+package me.arceus.mrp.memory;
+
+import me.arceus.mrp.provider.ProviderMessage;
+
+import java.time.Instant;
+
+/**
+ * A past message recalled for the current turn.
+ */
+public class MemorySnippet {
+
+    private final ProviderMessage.Role role;
+    private final String content;
+    private final Instant timestamp;
+    private final double score;
+
+    public MemorySnippet(ProviderMessage.Role role, String content, Instant timestamp, double score) {
+        this.role = role;
+        this.content = content;
+        this.timestamp = timestamp;
+        this.score = score;
+    }
+
+    public ProviderMessage.Role getRole() {
+        return role;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,75 @@
+package me.arceus.mrp.memory;
+
+/**
+ * Point-in-time counters of the retrieval memory.
+ */
+public class MemoryStats {
+
+    private final int loadedShards;
+    private final int maxLoadedShards;
+    private final int loadedDocuments;
+    private final long indexed;
+    private final long recalls;
+    private final long recalled;
+    private final long deferred;
+    private final long failures;
+
+    public MemoryStats(int loadedShards,
+                       int maxLoadedShards,
+                       int loadedDocuments,
+                       long indexed,
+                       long recalls,
+                       long recalled,
+                       long deferred,
+                       long failures) {
+        this.loadedShards = loadedShards;
+        this.maxLoadedShards = maxLoadedShards;
+        this.loadedDocuments = loadedDocuments;
+        this.indexed = indexed;
+        this.recalls = recalls;
+        this.recalled = recalled;
+        this.deferred = deferred;
+        this.failures = failures;
+    }
+
+    public int getLoadedShards() {
+        return loadedShards;
+    }
+
+    public int getMaxLoadedShards() {
+        return maxLoadedShards;
+    }
+
+    /**
+     * Messages indexed in the shards currently held in memory.
+     */
+    public int getLoadedDocuments() {
+        return loadedDocuments;
+    }
+
+    /**
+     * Messages added to the index since the plugin started.
+     */
+    public long getIndexed() {
+        return indexed;
+    }
+
+    public long getRecalls() {
+        return recalls;
+    }
+
+    public long getRecalled() {
+        return recalled;
+    }
+
+    /**
+     * Recalled snippets left out of their turn because the text was not cached yet.
+     */
+    public long getDeferred() {
+        return deferred;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+}
@@ -0,0 +1,328 @@
+package me.arceus.mrp.memory;
+
+import me.arceus.mrp.MrpPlugin;
+import me.arceus.mrp.config.ConversationSettings;
+import me.arceus.mrp.config.MemorySettings;
+import me.arceus.mrp.conversation.ConversationMessage;
+import me.arceus.mrp.conversation.ConversationSession;
+import me.arceus.mrp.provider.ProviderMessage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Long-term retrieval memory. Every player/villager conversation has its own BM25 shard
+ * under {@code memory/<villager>/<player>.idx}; only recently used shards are held in
+ * memory, so the total number of stored turns is bounded by disk rather than heap.
+ * Opening, backfilling from stored history, appending and deleting all run in order on a
+ * single background thread; recall runs on the caller's thread against shards that are
+ * already loaded and simply returns nothing while a shard is still being opened. Recall only
+ * uses snippet text the shard has cached: indexing a player's line prefetches the texts the
+ * next recall is likely to need, and any that are still missing are read in the background
+ * and left out of this turn, so the server thread never reads the shard files.
+ */
+public class MemoryStore {
+
+    private final MrpPlugin plugin;
+    private final Path baseDir;
+    private final ExecutorService executor;
+    private final Map<String, MemoryShard> shards = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> warming = ConcurrentHashMap.newKeySet();
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicLong recalls = new AtomicLong();
+    private final AtomicLong recalled = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile MemorySettings settings = MemorySettings.disabled();
+
+    public MemoryStore(MrpPlugin plugin) {
+        this.plugin = plugin;
+        this.baseDir = plugin.getDataFolder().toPath().resolve("memory");
+        this.executor = plugin.getExecutionBackend().newSingleThreadExecutor("mrp-memory");
+    }
+
+    public void reloadSettings() {
+        MemorySettings latest = plugin.getConfigService().getMemorySettings();
+        if (latest != null) {
+            settings = latest;
+        }
+        submit(() -> {
+            synchronized (this) {
+                trimShards(settings.isEnabled() ? settings.getMaxLoadedShards() : 0);
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /**
+     * Opens the conversation's shard in the background and indexes any stored messages it is
+     * still missing, e.g. history written before the memory was enabled.
+     */
+    public void warm(ConversationSession session) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        String key = key(session.getPlayerId(), session.getVillagerId());
+        if (!warming.add(key)) {
+            return;
+        }
+        List<ConversationMessage> history = List.copyOf(session.getMessages());
+        UUID playerId = session.getPlayerId();
+        UUID villagerId = session.getVillagerId();
+        submit(() -> {
+            try {
+                MemoryShard shard = shard(playerId, villagerId);
+                if (shard == null) {
+                    return;
+                }
+                for (int i = 0; i < history.size(); i++) {
+                    if (!shard.contains(i)) {
+                        append(shard, i, history.get(i));
+                    }
+                }
+            } finally {
+                warming.remove(key);
+            }
+        });
+    }
+
+    /**
+     * Indexes a message that has just been appended at position {@code docId} of the session history.
+     */
+    public void index(ConversationSession session, ConversationMessage message, int docId) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        UUID playerId = session.getPlayerId();
+        UUID villagerId = session.getVillagerId();
+        MemorySettings current = settings;
+        int recallBefore = docId + 1 - contextWindow();
+        submit(() -> {
+            MemoryShard shard = shard(playerId, villagerId);
+            if (shard == null) {
+                return;
+            }
+            append(shard, docId, message);
+            if (message.getRole() == ProviderMessage.Role.USER && recallBefore > 0) {
+                // 玩家的发言就是下一次检索的查询，提前把可能召回的原文读入缓存
+                readAll(shard, shard.search(TermAnalyzer.analyze(message.getContent()), recallBefore,
+                    current.getTopK(), current.getMinScore()));
+            }
+        });
+    }
+
+    /**
+     * Past messages of this conversation most relevant to {@code query}, limited to those
+     * before {@code beforeDocId} (the ones no longer sent verbatim).
+     */
+    public List<MemorySnippet> recall(ConversationSession session, String query, int beforeDocId) {
+        MemorySettings current = settings;
+        if (!current.isEnabled() || query == null || query.isBlank() || beforeDocId <= 0) {
+            return List.of();
+        }
+        MemoryShard shard;
+        synchronized (this) {
+            shard = shards.get(key(session.getPlayerId(), session.getVillagerId()));
+        }
+        if (shard == null) {
+            warm(session);
+            return List.of();
+        }
+        recalls.incrementAndGet();
+        List<MemorySnippet> snippets = new ArrayList<>();
+        List<MemoryShard.Hit> missing = null;
+        for (MemoryShard.Hit hit : shard.search(TermAnalyzer.analyze(query), beforeDocId,
+            current.getTopK(), current.getMinScore())) {
+            MemorySnippet snippet = shard.cached(hit);
+            if (snippet != null) {
+                snippets.add(snippet);
+            } else {
+                if (missing == null) {
+                    missing = new ArrayList<>();
+                }
+                missing.add(hit);
+            }
+        }
+        if (missing != null) {
+            // 原文不在缓存中，改到后台读取，本轮先不带这几条
+            deferred.addAndGet(missing.size());
+            List<MemoryShard.Hit> toRead = missing;
+            submit(() -> readAll(shard, toRead));
+        }
+        recalled.addAndGet(snippets.size());
+        return snippets;
+    }
+
+    public void clear(UUID playerId, UUID villagerId) {
+        submit(() -> {
+            String key = key(playerId, villagerId);
+            synchronized (this) {
+                MemoryShard shard = shards.remove(key);
+                if (shard != null) {
+                    shard.close();
+                }
+            }
+            try {
+                Files.deleteIfExists(shardFile(playerId, villagerId));
+            } catch (IOException e) {
+                plugin.getLogger().warning("删除记忆索引失败: " + e.getMessage());
+            }
+        });
+    }
+
+    public void clearVillager(UUID villagerId) {
+        submit(() -> {
+            synchronized (this) {
+                Iterator<Map.Entry<String, MemoryShard>> iterator = shards.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<String, MemoryShard> entry = iterator.next();
+                    if (entry.getKey().endsWith(":" + villagerId)) {
+                        entry.getValue().close();
+                        iterator.remove();
+                    }
+                }
+            }
+            Path dir = baseDir.resolve(villagerId.toString());
+            if (!Files.exists(dir)) {
+                return;
+            }
+            try (Stream<Path> stream = Files.walk(dir)) {
+                for (Path path : stream.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            } catch (IOException e) {
+                plugin.getLogger().warning("删除村民记忆索引失败: " + e.getMessage());
+            }
+        });
+    }
+
+    public synchronized MemoryStats getStats() {
+        int documents = 0;
+        for (MemoryShard shard : shards.values()) {
+            documents += shard.size();
+        }
+        return new MemoryStats(shards.size(), settings.getMaxLoadedShards(), documents,
+            indexed.get(), recalls.get(), recalled.get(), deferred.get(), failures.get());
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("记忆索引写入未在 10 秒内完成");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            trimShards(0);
+        }
+    }
+
+    /**
+     * Loaded shard for the conversation, opening it if needed. Background thread only.
+     */
+    private MemoryShard shard(UUID playerId, UUID villagerId) {
+        String key = key(playerId, villagerId);
+        synchronized (this) {
+            MemoryShard shard = shards.get(key);
+            if (shard != null) {
+                return shard;
+            }
+        }
+        Path file = shardFile(playerId, villagerId);
+        MemoryShard shard;
+        try {
+            shard = MemoryShard.open(file);
+        } catch (IOException e) {
+            // 损坏的分片移到一旁重新建立，历史会在下次加载会话时补回
+            plugin.getLogger().warning("记忆索引 " + file.getFileName() + " 无法读取，将重新建立: " + e.getMessage());
+            try {
+                Files.move(file, file.resolveSibling(file.getFileName() + ".corrupt"), StandardCopyOption.REPLACE_EXISTING);
+                shard = MemoryShard.open(file);
+            } catch (IOException retry) {
+                failures.incrementAndGet();
+                return null;
+            }
+        }
+        synchronized (this) {
+            shards.put(key, shard);
+            trimShards(settings.getMaxLoadedShards());
+        }
+        return shard;
+    }
+
+    private void append(MemoryShard shard, int docId, ConversationMessage message) {
+        try {
+            if (!shard.contains(docId)) {
+                shard.append(docId, message.getTimestamp(), message.getRole(), message.getContent());
+                indexed.incrementAndGet();
+            }
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            plugin.getLogger().warning("写入记忆索引失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the text of {@code hits} into the shard's cache. Background thread only.
+     */
+    private void readAll(MemoryShard shard, List<MemoryShard.Hit> hits) {
+        for (MemoryShard.Hit hit : hits) {
+            try {
+                shard.read(hit);
+            } catch (IOException e) {
+                // 分片可能刚被卸载，下次检索时重试
+                failures.incrementAndGet();
+            }
+        }
+    }
+
+    private int contextWindow() {
+        ConversationSettings conversationSettings = plugin.getConfigService().getConversationSettings();
+        return conversationSettings != null ? conversationSettings.getContextWindow() : 8;
+    }
+
+    private void trimShards(int capacity) {
+        Iterator<MemoryShard> iterator = shards.values().iterator();
+        while (shards.size() > capacity && iterator.hasNext()) {
+            iterator.next().close();
+            iterator.remove();
+        }
+    }
+
+    private void submit(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ignored) {
+            // 插件正在关闭
+        }
+    }
+
+    private Path shardFile(UUID playerId, UUID villagerId) {
+        return baseDir.resolve(villagerId.toString()).resolve(playerId + ".idx");
+    }
+
+    private static String key(UUID playerId, UUID villagerId) {
+        return playerId + ":" + villagerId;
+    }
+}
@@ -0,0 +1,83 @@
+package me.arceus.mrp.memory;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Splits text into index terms: lower-cased runs of letters and digits for alphabetic
+ * scripts, overlapping character bigrams for CJK text (a lone CJK character is kept as a
+ * unigram). Punctuation and whitespace only separate terms.
+ */
+final class TermAnalyzer {
+
+    private TermAnalyzer() {
+    }
+
+    /**
+     * Term frequencies of {@code text}.
+     */
+    static Map<String, Integer> analyze(String text) {
+        Map<String, Integer> terms = new HashMap<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        StringBuilder word = new StringBuilder();
+        int previousCjk = -1;
+        int cjkRun = 0;
+        int i = 0;
+        while (i < text.length()) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (isCjk(cp)) {
+                flushWord(word, terms);
+                if (previousCjk >= 0) {
+                    add(terms, new StringBuilder(2).appendCodePoint(previousCjk).appendCodePoint(cp).toString());
+                }
+                previousCjk = cp;
+                cjkRun++;
+                continue;
+            }
+            flushCjk(previousCjk, cjkRun, terms);
+            previousCjk = -1;
+            cjkRun = 0;
+            if (Character.isLetterOrDigit(cp)) {
+                word.appendCodePoint(Character.toLowerCase(cp));
+            } else {
+                flushWord(word, terms);
+            }
+        }
+        flushCjk(previousCjk, cjkRun, terms);
+        flushWord(word, terms);
+        return terms;
+    }
+
+    private static void flushCjk(int previousCjk, int run, Map<String, Integer> terms) {
+        if (run == 1) {
+            add(terms, new String(Character.toChars(previousCjk)));
+        }
+    }
+
+    private static void flushWord(StringBuilder word, Map<String, Integer> terms) {
+        if (word.length() == 0) {
+            return;
+        }
+        // 单个拉丁字母几乎不携带信息，数字保留
+        if (word.length() > 1 || Character.isDigit(word.charAt(0))) {
+            add(terms, word.toString().toLowerCase(Locale.ROOT));
+        }
+        word.setLength(0);
+    }
+
+    private static void add(Map<String, Integer> terms, String term) {
+        terms.merge(term, 1, Integer::sum);
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA
+            || script == Character.UnicodeScript.HANGUL;
+    }
+}
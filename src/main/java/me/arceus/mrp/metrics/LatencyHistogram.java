@@ -0,0 +1,118 @@
+package me.arceus.mrp.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets in the style of HdrHistogram.
+ * Values are kept in microseconds; below {@value #SUB_BUCKETS}µs every value has its own
+ * bucket, above that each power of two is split into {@value #SUB_BUCKETS} buckets, so a
+ * reported percentile is at most about 3% above the true value. Recording is one atomic
+ * increment into a fixed array and never allocates; values beyond ~38 hours are clamped.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = 36;
+    private static final long MAX_MICROS = (1L << (MAX_MAGNITUDE + 1)) - 1L;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sumMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0L);
+
+    LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long nanos) {
+        long micros = Math.min(MAX_MICROS, Math.max(0L, nanos / 1_000L));
+        counts.incrementAndGet(bucketOf(micros));
+        sumMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, a {@link System#nanoTime()} reading.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public void recordMillis(long millis) {
+        record(millis * 1_000_000L);
+    }
+
+    /**
+     * Percentiles are computed from a copy of the buckets, so a snapshot taken while other
+     * threads record is internally consistent apart from the mean and maximum.
+     */
+    public HistogramSnapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        long max = maxMicros.get();
+        double mean = count > 0L ? sumMicros.sum() / 1_000D / count : 0D;
+        return new HistogramSnapshot(name, count, mean,
+            percentile(copy, count, 0.50D, max),
+            percentile(copy, count, 0.95D, max),
+            percentile(copy, count, 0.99D, max),
+            max / 1_000D);
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0L);
+        }
+        sumMicros.reset();
+        maxMicros.reset();
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int sub = (int) (micros >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Largest value that falls into {@code bucket}, in microseconds.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << shift) - 1L;
+    }
+
+    private static double percentile(long[] counts, long total, double quantile, long maxMicros) {
+        if (total == 0L) {
+            return 0D;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // 桶上界可能超过实际最大值，取两者较小者
+                return Math.min(upperBound(i), maxMicros) / 1_000D;
+            }
+        }
+        return maxMicros / 1_000D;
+    }
+}
@@ -0,0 +1,76 @@
+package me.arceus.mrp.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process counters, gauges and latency histograms, read by {@code /mrp stats}. Metrics are
+ * created on first use and live until the plugin is disabled; callers on hot paths look them
+ * up once and keep the returned instance. Names are dotted, with the stage as the first part,
+ * e.g. {@code chat.provider} or {@code storage.save}.
+ */
+public class MetricsRegistry {
+
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private volatile long sinceMillis = System.currentTimeMillis();
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, ignored -> new LongAdder());
+    }
+
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    /**
+     * Registers a value that is read only when a snapshot is taken; replaces any gauge of the same name.
+     */
+    public void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public MetricsSnapshot snapshot(String prefix) {
+        List<HistogramSnapshot> histogramSnapshots = new ArrayList<>();
+        histograms.forEach((name, histogram) -> {
+            if (matches(name, prefix)) {
+                histogramSnapshots.add(histogram.snapshot());
+            }
+        });
+        histogramSnapshots.sort(Comparator.comparing(HistogramSnapshot::getName));
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> {
+            if (matches(name, prefix)) {
+                counterValues.put(name, counter.sum());
+            }
+        });
+        Map<String, Long> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, gauge) -> {
+            if (matches(name, prefix)) {
+                gaugeValues.put(name, gauge.getAsLong());
+            }
+        });
+        return new MetricsSnapshot(sinceMillis, histogramSnapshots, counterValues, gaugeValues);
+    }
+
+    /**
+     * Clears counters and histograms; gauges report live values and are kept.
+     */
+    public void reset() {
+        counters.values().forEach(LongAdder::reset);
+        histograms.values().forEach(LatencyHistogram::reset);
+        sinceMillis = System.currentTimeMillis();
+    }
+
+    private static boolean matches(String name, String prefix) {
+        return prefix == null || prefix.isEmpty() || name.startsWith(prefix);
+    }
+}
@@ -0,0 +1,45 @@
+package me.arceus.mrp.metrics;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every metric of the registry at one point in time, sorted by name.
+ */
+public class MetricsSnapshot {
+
+    private final long sinceMillis;
+    private final List<HistogramSnapshot> histograms;
+    private final Map<String, Long> counters;
+    private final Map<String, Long> gauges;
+
+    public MetricsSnapshot(long sinceMillis,
+                           List<HistogramSnapshot> histograms,
+                           Map<String, Long> counters,
+                           Map<String, Long> gauges) {
+        this.sinceMillis = sinceMillis;
+        this.histograms = histograms;
+        this.counters = counters;
+        this.gauges = gauges;
+    }
+
+    /**
+     * Wall-clock time of plugin start or of the last reset; histograms and counters cover
+     * everything since then.
+     */
+    public long getSinceMillis() {
+        return sinceMillis;
+    }
+
+    public List<HistogramSnapshot> getHistograms() {
+        return histograms;
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    public Map<String, Long> getGauges() {
+        return gauges;
+    }
+}
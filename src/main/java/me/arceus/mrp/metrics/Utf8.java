@@ -0,0 +1,35 @@
+package me.arceus.mrp.metrics;
+
+/**
+ * Byte counts for metrics without encoding the text.
+ */
+public final class Utf8 {
+
+    private Utf8() {
+    }
+
+    /**
+     * Number of bytes {@code text} occupies in UTF-8.
+     */
+    public static long length(CharSequence text) {
+        if (text == null) {
+            return 0L;
+        }
+        long bytes = 0L;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,116 @@
+package me.arceus.mrp.prompt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A prompt template parsed once into literal segments and {@code {placeholder}} slots, so
+ * rendering is a single pass that appends into the caller's builder. Braces that do not
+ * enclose a plain placeholder name are kept as literal text, and a placeholder the resolver
+ * does not know is rendered unchanged.
+ */
+public final class CompiledTemplate {
+
+    public static final CompiledTemplate EMPTY = new CompiledTemplate("", new String[]{""}, new String[0]);
+
+    private final String source;
+    private final String[] literals;
+    private final String[] slots;
+    private final Set<String> placeholders;
+
+    private CompiledTemplate(String source, String[] literals, String[] slots) {
+        this.source = source;
+        this.literals = literals;
+        this.slots = slots;
+        Set<String> names = new LinkedHashSet<>();
+        Collections.addAll(names, slots);
+        this.placeholders = Collections.unmodifiableSet(names);
+    }
+
+    public static CompiledTemplate compile(String source) {
+        if (source == null || source.isEmpty()) {
+            return EMPTY;
+        }
+        List<String> literals = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            int close = c == '{' ? source.indexOf('}', i + 1) : -1;
+            if (close > i + 1 && isName(source, i + 1, close)) {
+                literals.add(literal.toString());
+                literal.setLength(0);
+                slots.add(source.substring(i + 1, close));
+                i = close + 1;
+            } else {
+                literal.append(c);
+                i++;
+            }
+        }
+        literals.add(literal.toString());
+        return new CompiledTemplate(source, literals.toArray(new String[0]), slots.toArray(new String[0]));
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public boolean isBlank() {
+        return source.isBlank();
+    }
+
+    /**
+     * Distinct placeholder names in order of first appearance.
+     */
+    public Set<String> getPlaceholders() {
+        return placeholders;
+    }
+
+    public boolean references(String name) {
+        return placeholders.contains(name);
+    }
+
+    public void renderTo(StringBuilder out, Resolver resolver) {
+        out.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            String value = resolver.resolve(slots[i]);
+            if (value != null) {
+                out.append(value);
+            } else {
+                out.append('{').append(slots[i]).append('}');
+            }
+            out.append(literals[i + 1]);
+        }
+    }
+
+    public String render(Resolver resolver) {
+        if (slots.length == 0) {
+            return literals[0];
+        }
+        StringBuilder out = new StringBuilder(source.length() + 64);
+        renderTo(out, resolver);
+        return out.toString();
+    }
+
+    private static boolean isName(String source, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = source.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Supplies placeholder values; returns {@code null} for unknown names.
+     */
+    @FunctionalInterface
+    public interface Resolver {
+        String resolve(String name);
+    }
+}
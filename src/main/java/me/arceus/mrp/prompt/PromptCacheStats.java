@@ -0,0 +1,34 @@
+package me.arceus.mrp.prompt;
+
+/**
+ * Point-in-time counters of the rendered system prompt cache.
+ */
+public class PromptCacheStats {
+
+    private final int entries;
+    private final long hits;
+    private final long misses;
+
+    public PromptCacheStats(int entries, long hits, long misses) {
+        this.entries = entries;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0D : hits / (double) lookups;
+    }
+}
@@ -1,112 +1,432 @@
 package me.arceus.mrp.prompt;
 
 import me.arceus.mrp.MrpPlugin;
+import me.arceus.mrp.config.ConversationSettings;
+import me.arceus.mrp.config.MemorySettings;
+import me.arceus.mrp.config.PromptLayout;
 import me.arceus.mrp.config.PromptSettings;
+import me.arceus.mrp.conversation.ConversationMessage;
 import me.arceus.mrp.conversation.ConversationSession;
+import me.arceus.mrp.memory.MemorySnippet;
+import me.arceus.mrp.memory.MemoryStore;
+import me.arceus.mrp.provider.ProviderMessage;
 import me.arceus.mrp.villager.VillagerProfile;
 import me.arceus.mrp.villager.VillagerPromptOverride;
 
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.StringJoiner;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
 
 public class PromptService {
 
-    private static final String FALLBACK_TEMPLATE = "你正在扮演{name}，正与玩家{user}对话。村民简介：{description}";
+    private static final CompiledTemplate FALLBACK_TEMPLATE =
+        CompiledTemplate.compile("你正在扮演{name}，正与玩家{user}对话。村民简介：{description}");
+    private static final String SUMMARY_KEY = "summary";
+    private static final Set<String> BUILTIN_PLACEHOLDERS = Set.of("name", "user", "description", "persona", SUMMARY_KEY);
+    private static final int MAX_RENDERINGS_PER_SESSION = 2;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneId.systemDefault());
 
     private final MrpPlugin plugin;
+    // 提示词只在主线程组装，每个线程复用一个缓冲区
+    private final ThreadLocal<StringBuilder> buffer = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+    // 会话对象被淘汰后条目随之回收；每个会话按玩家名分别缓存（语义缓存会以 {user} 渲染一次）
+    private final Map<ConversationSession, Map<String, RenderedPrompt>> renderedPrompts = new WeakHashMap<>();
+    private final Map<ConversationSession, Map<String, RenderedPrompt>> sessionContexts = new WeakHashMap<>();
+    private final Map<VillagerProfile, RenderedPrompt> villagerPrefixes = new WeakHashMap<>();
+    private final Object cacheLock = new Object();
+    private long cacheHits;
+    private long cacheMisses;
 
     public PromptService(MrpPlugin plugin) {
         this.plugin = plugin;
     }
 
     public String buildSystemPrompt(VillagerProfile profile, ConversationSession session, String playerName) {
+        return buildSystemPrompt(profile, session, playerName, true);
+    }
+
+    /**
+     * @param includeMemories {@code false} renders only the part that stays fixed across turns,
+     *                        e.g. for the semantic cache fingerprint, and skips recall entirely
+     */
+    public String buildSystemPrompt(VillagerProfile profile, ConversationSession session, String playerName,
+                                    boolean includeMemories) {
         PromptSettings settings = plugin.getConfigService().getPromptSettings();
         VillagerPromptOverride override = profile != null ? profile.getPromptOverride() : null;
+        Bindings bindings = new Bindings(profile, session, playerName, override);
+        String base = session != null
+            ? cached(renderedPrompts, profile, session, playerName, settings, () -> renderBase(settings, override, session, bindings))
+            : renderBase(settings, override, session, bindings);
+        if (!includeMemories) {
+            return base;
+        }
+        String memories = renderMemories(session, bindings);
+        // 没有回忆内容时直接复用缓存的字符串
+        return memories.isEmpty() ? base : base + memories;
+    }
 
-        String template = null;
-        if (override != null && override.hasTemplate()) {
-            template = override.getSystemTemplate();
+    /**
+     * System prompt split for {@link PromptLayout#PREFIX}. The prefix renders only values
+     * that belong to the villager (name, description, persona, fixed variables) and leaves
+     * player and session placeholders as {@code {name}} markers, so it is byte-identical for
+     * every player; the context binds those markers and carries the summary, and the
+     * memories change with every turn.
+     */
+    public SystemPromptParts buildPromptParts(VillagerProfile profile, ConversationSession session, String playerName) {
+        PromptSettings settings = plugin.getConfigService().getPromptSettings();
+        VillagerPromptOverride override = profile != null ? profile.getPromptOverride() : null;
+        Bindings bindings = new Bindings(profile, session, playerName, override);
+        Bindings villagerOnly = new Bindings(profile, null, null, override, true);
+        String prefix = cachedPrefix(profile, settings, () -> renderVillagerPrefix(settings, override, villagerOnly));
+        String context = session != null
+            ? cached(sessionContexts, profile, session, playerName, settings,
+                () -> renderSessionContext(settings, override, session, bindings, villagerOnly))
+            : renderSessionContext(settings, override, null, bindings, villagerOnly);
+        return new SystemPromptParts(prefix, context, renderMemories(session, bindings).trim());
+    }
+
+    public PromptCacheStats getCacheStats() {
+        int entries = 0;
+        synchronized (cacheLock) {
+            for (Map<String, RenderedPrompt> perPlayer : renderedPrompts.values()) {
+                entries += perPlayer.size();
+            }
+            for (Map<String, RenderedPrompt> perPlayer : sessionContexts.values()) {
+                entries += perPlayer.size();
+            }
+            return new PromptCacheStats(entries + villagerPrefixes.size(), cacheHits, cacheMisses);
         }
-        if (template == null || template.isBlank()) {
-            template = settings != null ? settings.getSystemTemplate() : null;
+    }
+
+    /**
+     * A per-session rendering that stays fixed across turns, reused until the profile, the
+     * prompt configuration, the session's variables or summary, or the player name changes.
+     */
+    private String cached(Map<ConversationSession, Map<String, RenderedPrompt>> cache, VillagerProfile profile,
+                          ConversationSession session, String playerName, PromptSettings settings, Supplier<String> renderer) {
+        int profileVersion = profile != null ? profile.getVersion() : 0;
+        long settingsVersion = settings != null ? settings.getVersion() : 0L;
+        synchronized (cacheLock) {
+            Map<String, RenderedPrompt> perPlayer = cache.get(session);
+            RenderedPrompt cached = perPlayer != null ? perPlayer.get(playerName) : null;
+            if (cached != null && cached.matches(profile, profileVersion, settingsVersion, session.getPromptVersion())) {
+                cacheHits++;
+                return cached.text;
+            }
+            cacheMisses++;
         }
-        if (template == null || template.isBlank()) {
-            template = FALLBACK_TEMPLATE;
+        String text = renderer.get();
+        synchronized (cacheLock) {
+            Map<String, RenderedPrompt> perPlayer = cache.computeIfAbsent(session, ignored -> new HashMap<>(4));
+            if (perPlayer.size() >= MAX_RENDERINGS_PER_SESSION && !perPlayer.containsKey(playerName)) {
+                perPlayer.clear();
+            }
+            perPlayer.put(playerName, new RenderedPrompt(profile, profileVersion, settingsVersion,
+                session.getPromptVersion(), text));
         }
+        return text;
+    }
 
-        Map<String, String> replacements = buildReplacements(profile, session, playerName, override);
+    private String cachedPrefix(VillagerProfile profile, PromptSettings settings, Supplier<String> renderer) {
+        if (profile == null) {
+            return renderer.get();
+        }
+        int profileVersion = profile.getVersion();
+        long settingsVersion = settings != null ? settings.getVersion() : 0L;
+        synchronized (cacheLock) {
+            RenderedPrompt cached = villagerPrefixes.get(profile);
+            if (cached != null && cached.matches(profile, profileVersion, settingsVersion, 0)) {
+                cacheHits++;
+                return cached.text;
+            }
+            cacheMisses++;
+        }
+        String text = renderer.get();
+        synchronized (cacheLock) {
+            villagerPrefixes.put(profile, new RenderedPrompt(profile, profileVersion, settingsVersion, 0, text));
+        }
+        return text;
+    }
 
-        String rendered = applyReplacements(template, replacements);
+    private String renderBase(PromptSettings settings, VillagerPromptOverride override,
+                              ConversationSession session, Bindings bindings) {
+        CompiledTemplate template = resolveSystemTemplate(settings, override);
+        StringBuilder out = renderTemplateAndNotes(template, settings, override, bindings);
 
-        List<String> resolvedNotes = new ArrayList<>();
-        if (settings != null && (!settings.getExtraNotes().isEmpty())) {
-            if (override == null || override.shouldInheritDefaultNotes()) {
-                for (String note : settings.getExtraNotes()) {
-                    resolvedNotes.add(applyReplacements(note, replacements));
-                }
+        // 模板未引用 {summary} 时，把较早对话的摘要附在末尾
+        String summary = session != null ? session.getSummary() : null;
+        if (summary != null && !template.references(SUMMARY_KEY)) {
+            out.append("\n此前与").append(bindings.resolve("user")).append("的对话摘要:\n").append(summary);
+        }
+        return out.toString();
+    }
+
+    private String renderVillagerPrefix(PromptSettings settings, VillagerPromptOverride override, Bindings villagerOnly) {
+        return renderTemplateAndNotes(resolveSystemTemplate(settings, override), settings, override, villagerOnly).toString();
+    }
+
+    private String renderSessionContext(PromptSettings settings, VillagerPromptOverride override,
+                                        ConversationSession session, Bindings bindings, Bindings villagerOnly) {
+        CompiledTemplate template = resolveSystemTemplate(settings, override);
+        Set<String> open = new LinkedHashSet<>(template.getPlaceholders());
+        resolveNotes(settings, override).forEach(note -> open.addAll(note.getPlaceholders()));
+
+        StringBuilder out = buffer.get();
+        out.setLength(0);
+        for (String name : open) {
+            String value = villagerOnly.resolve(name) == null ? bindings.resolve(name) : null;
+            if (value != null) {
+                out.append(out.length() == 0 ? "上文占位符在本次对话中的取值:\n" : "\n")
+                    .append('{').append(name).append("} = ").append(value);
             }
         }
-        if (override != null && override.hasCustomNotes()) {
-            for (String note : override.getExtraNotes()) {
-                resolvedNotes.add(applyReplacements(note, replacements));
+        String summary = session != null ? session.getSummary() : null;
+        if (summary != null && !template.references(SUMMARY_KEY)) {
+            if (out.length() > 0) {
+                out.append('\n');
             }
+            out.append("此前与").append(bindings.resolve("user")).append("的对话摘要:\n").append(summary);
         }
+        return out.toString();
+    }
 
-        if (!resolvedNotes.isEmpty()) {
-            StringJoiner joiner = new StringJoiner("\n");
-            resolvedNotes.forEach(joiner::add);
-            rendered = rendered + "\n注意事项:\n" + joiner;
+    private StringBuilder renderTemplateAndNotes(CompiledTemplate template, PromptSettings settings,
+                                                 VillagerPromptOverride override, Bindings bindings) {
+        StringBuilder out = buffer.get();
+        out.setLength(0);
+        template.renderTo(out, bindings);
+
+        boolean hasNotes = false;
+        for (CompiledTemplate note : resolveNotes(settings, override)) {
+            out.append(hasNotes ? "\n" : "\n注意事项:\n");
+            note.renderTo(out, bindings);
+            hasNotes = true;
         }
-        return rendered;
+        return out;
     }
 
-    public String renderTemplate(String template, VillagerProfile profile, ConversationSession session, String playerName) {
+    /**
+     * Renders a greeting or introduction with the same placeholders as the system prompt.
+     */
+    public String renderTemplate(CompiledTemplate template, VillagerProfile profile, ConversationSession session, String playerName) {
         if (template == null || template.isBlank()) {
             return "";
         }
         VillagerPromptOverride override = profile != null ? profile.getPromptOverride() : null;
-        Map<String, String> replacements = buildReplacements(profile, session, playerName, override);
-        return applyReplacements(template, replacements);
+        return template.render(new Bindings(profile, session, playerName, override));
     }
 
-    private Map<String, String> buildReplacements(VillagerProfile profile,
-                                                  ConversationSession session,
-                                                  String playerName,
-                                                  VillagerPromptOverride override) {
-        Map<String, String> replacements = new LinkedHashMap<>();
+    /**
+     * Placeholders used by the villager's templates that neither a built-in value nor one of
+     * the villager's variables can fill; they would be sent to the model verbatim.
+     */
+    public Set<String> findUnknownPlaceholders(VillagerProfile profile) {
+        PromptSettings settings = plugin.getConfigService().getPromptSettings();
+        VillagerPromptOverride override = profile.getPromptOverride();
+        List<CompiledTemplate> templates = new ArrayList<>(resolveNotes(settings, override));
+        templates.add(resolveSystemTemplate(settings, override));
+        templates.add(profile.getCompiledGreeting());
+        templates.add(profile.getCompiledIntroduction());
 
-        String villagerName = profile != null && profile.getName() != null ? profile.getName() : "村民";
-        String description = profile != null && profile.getDescription() != null ? profile.getDescription() : "这位村民还没有简介";
-        String persona = profile != null && profile.getPersona() != null ? profile.getPersona() : "";
-        String userName = playerName != null ? playerName : "玩家";
+        Set<String> unknown = new LinkedHashSet<>();
+        for (CompiledTemplate template : templates) {
+            for (String name : template.getPlaceholders()) {
+                if (!BUILTIN_PLACEHOLDERS.contains(name)
+                    && (override == null
+                        || (!override.getVariables().containsKey(name) && !override.getVariableCandidates().containsKey(name)))) {
+                    unknown.add(name);
+                }
+            }
+        }
+        return unknown;
+    }
 
-        replacements.put("name", villagerName);
-        replacements.put("user", userName);
-        replacements.put("description", description);
-        replacements.put("persona", persona);
+    /**
+     * Logs a warning for every villager whose templates reference unknown placeholders.
+     */
+    public void validate(VillagerProfile profile) {
+        if (profile == null) {
+            return;
+        }
+        Set<String> unknown = findUnknownPlaceholders(profile);
+        if (!unknown.isEmpty()) {
+            plugin.getLogger().warning("村民 " + profile.getName() + " 的提示模板包含未定义的占位符 "
+                + String.join("、", unknown.stream().map(name -> "{" + name + "}").toList())
+                + "，将按原文发送");
+        }
+    }
+
+    public void validateAll() {
+        if (plugin.getVillagerRegistry() == null) {
+            return;
+        }
+        plugin.getVillagerRegistry().getProfiles().forEach(this::validate);
+    }
 
-        if (override != null && override.hasVariables()) {
-            replacements.putAll(override.getVariables());
+    private CompiledTemplate resolveSystemTemplate(PromptSettings settings, VillagerPromptOverride override) {
+        if (override != null && override.hasTemplate()) {
+            return override.getCompiledSystemTemplate();
+        }
+        if (settings != null && !settings.getCompiledSystemTemplate().isBlank()) {
+            return settings.getCompiledSystemTemplate();
+        }
+        return FALLBACK_TEMPLATE;
+    }
+
+    private List<CompiledTemplate> resolveNotes(PromptSettings settings, VillagerPromptOverride override) {
+        List<CompiledTemplate> inherited = settings != null && (override == null || override.shouldInheritDefaultNotes())
+            ? settings.getCompiledExtraNotes()
+            : List.of();
+        if (override == null || !override.hasCustomNotes()) {
+            return inherited;
+        }
+        List<CompiledTemplate> notes = new ArrayList<>(inherited);
+        notes.addAll(override.getCompiledExtraNotes());
+        return notes;
+    }
+
+    /**
+     * Past turns recalled for the player's latest line, trimmed to the memory token budget.
+     */
+    private String renderMemories(ConversationSession session, Bindings bindings) {
+        MemoryStore memoryStore = plugin.getMemoryStore();
+        if (session == null || memoryStore == null || !memoryStore.isEnabled()) {
+            return "";
+        }
+        List<ConversationMessage> history = session.getMessages();
+        String query = null;
+        for (int i = history.size() - 1; i >= 0 && query == null; i--) {
+            if (history.get(i).getRole() == ProviderMessage.Role.USER) {
+                query = history.get(i).getContent();
+            }
+        }
+        ConversationSettings conversationSettings = plugin.getConfigService().getConversationSettings();
+        int window = conversationSettings != null ? conversationSettings.getContextWindow() : 8;
+        // 仍在上下文窗口内的消息会原文发送，无需回忆
+        List<MemorySnippet> snippets = memoryStore.recall(session, query, history.size() - window);
+        if (snippets.isEmpty()) {
+            return "";
         }
-        if (session != null) {
-            Map<String, String> promptVariables = session.getPromptVariables();
-            if (!promptVariables.isEmpty()) {
-                replacements.putAll(promptVariables);
+        MemorySettings settings = plugin.getConfigService().getMemorySettings();
+        int budget = settings != null ? settings.getMaxTokens() : 200;
+        String villagerName = bindings.resolve("name");
+        String userName = bindings.resolve("user");
+        StringBuilder out = new StringBuilder();
+        int used = 0;
+        boolean added = false;
+        for (MemorySnippet snippet : snippets) {
+            String speaker = snippet.getRole() == ProviderMessage.Role.USER ? userName : villagerName;
+            String line = "\n- [" + DATE_FORMAT.format(snippet.getTimestamp()) + "] " + speaker + ": " + snippet.getContent();
+            int cost = plugin.getTokenizer().count(line);
+            if (used + cost > budget) {
+                break;
             }
+            if (!added) {
+                out.append('\n').append(villagerName).append("记得的往事:");
+                added = true;
+            }
+            out.append(line);
+            used += cost;
+        }
+        return out.toString();
+    }
+
+    private static final class RenderedPrompt {
+
+        private final VillagerProfile profile;
+        private final int profileVersion;
+        private final long settingsVersion;
+        private final int sessionVersion;
+        private final String text;
+
+        RenderedPrompt(VillagerProfile profile, int profileVersion, long settingsVersion, int sessionVersion, String text) {
+            this.profile = profile;
+            this.profileVersion = profileVersion;
+            this.settingsVersion = settingsVersion;
+            this.sessionVersion = sessionVersion;
+            this.text = text;
+        }
+
+        boolean matches(VillagerProfile profile, int profileVersion, long settingsVersion, int sessionVersion) {
+            // 村民配置重载后是新对象，按引用比较即可
+            return this.profile == profile
+                && this.profileVersion == profileVersion
+                && this.settingsVersion == settingsVersion
+                && this.sessionVersion == sessionVersion;
         }
-        return replacements;
     }
 
-    private String applyReplacements(String template, Map<String, String> replacements) {
-        String result = template;
-        for (Map.Entry<String, String> entry : replacements.entrySet()) {
-            String key = entry.getKey();
-            String value = entry.getValue() != null ? entry.getValue() : "";
-            result = result.replace("{" + key + "}", value);
+    /**
+     * Placeholder values for one render: session variables take precedence over the
+     * villager's fixed variables, which take precedence over the built-in values.
+     */
+    private static final class Bindings implements CompiledTemplate.Resolver {
+
+        private final VillagerProfile profile;
+        private final ConversationSession session;
+        private final String playerName;
+        private final VillagerPromptOverride override;
+        private final boolean villagerOnly;
+
+        Bindings(VillagerProfile profile, ConversationSession session, String playerName, VillagerPromptOverride override) {
+            this(profile, session, playerName, override, false);
+        }
+
+        /**
+         * @param villagerOnly leave the player name and summary unresolved
+         */
+        Bindings(VillagerProfile profile, ConversationSession session, String playerName, VillagerPromptOverride override,
+                 boolean villagerOnly) {
+            this.profile = profile;
+            this.session = session;
+            this.playerName = playerName;
+            this.override = override;
+            this.villagerOnly = villagerOnly;
+        }
+
+        @Override
+        public String resolve(String name) {
+            if (session != null) {
+                String value = session.getPromptVariable(name);
+                if (value != null) {
+                    return value;
+                }
+            }
+            if (override != null && override.hasVariables()) {
+                Map<String, String> variables = override.getVariables();
+                if (variables.containsKey(name)) {
+                    String value = variables.get(name);
+                    return value != null ? value : "";
+                }
+            }
+            switch (name) {
+                case "name":
+                    return profile != null && profile.getName() != null ? profile.getName() : "村民";
+                case "user":
+                    if (villagerOnly) {
+                        return null;
+                    }
+                    return playerName != null ? playerName : "玩家";
+                case "description":
+                    return profile != null && profile.getDescription() != null ? profile.getDescription() : "这位村民还没有简介";
+                case "persona":
+                    return profile != null && profile.getPersona() != null ? profile.getPersona() : "";
+                case SUMMARY_KEY:
+                    if (villagerOnly) {
+                        return null;
+                    }
+                    String summary = session != null ? session.getSummary() : null;
+                    return summary != null ? summary : "";
+                default:
+                    return null;
+            }
         }
-        return result;
     }
 }
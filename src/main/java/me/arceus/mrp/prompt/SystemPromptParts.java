@@ -0,0 +1,38 @@
+package me.arceus.mrp.prompt;
+
+/**
+ * System prompt pieces for the prefix layout, ordered from most to least stable.
+ */
+public class SystemPromptParts {
+
+    private final String prefix;
+    private final String context;
+    private final String memories;
+
+    public SystemPromptParts(String prefix, String context, String memories) {
+        this.prefix = prefix;
+        this.context = context;
+        this.memories = memories;
+    }
+
+    /**
+     * Identical for every player talking to the villager until its profile or the config changes.
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Player and session bindings plus the summary; empty when there are none.
+     */
+    public String getContext() {
+        return context;
+    }
+
+    /**
+     * Memories recalled for this turn; empty when there are none.
+     */
+    public String getMemories() {
+        return memories;
+    }
+}
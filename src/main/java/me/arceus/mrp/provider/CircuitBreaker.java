@@ -0,0 +1,193 @@
+package me.arceus.mrp.provider;
+
+import me.arceus.mrp.config.CircuitBreakerSettings;
+
+import java.util.Arrays;
+
+/**
+ * Count-based circuit breaker for one provider. Outcomes of the last calls are kept
+ * in a ring; when the share of failures (including calls slower than the slow-call
+ * threshold) reaches the configured rate, the circuit opens and calls are skipped.
+ * After the open period a limited number of probe calls decide whether it closes again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private static final int LATENCY_SAMPLES = 128;
+
+    private final CircuitBreakerSettings settings;
+    private final boolean[] outcomes;
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private int outcomeIndex;
+    private int outcomeCount;
+    private int failureCount;
+    private int latencyIndex;
+    private int latencyCount;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+    private long totalCalls;
+    private long totalFailures;
+    private long rejectedCalls;
+    private long openTransitions;
+
+    public CircuitBreaker(CircuitBreakerSettings settings) {
+        this.settings = settings;
+        this.outcomes = new boolean[settings.getWindowSize()];
+    }
+
+    /**
+     * Whether a call may go through now. A {@code true} result must be followed by
+     * exactly one {@link #onSuccess(long)} or {@link #onFailure(long)}.
+     */
+    public synchronized boolean tryAcquire() {
+        long now = System.currentTimeMillis();
+        if (state == State.OPEN && now - openedAt >= settings.getOpenMillis()) {
+            state = State.HALF_OPEN;
+            probesInFlight = 0;
+            probeSuccesses = 0;
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (probesInFlight + probeSuccesses < settings.getHalfOpenProbes()) {
+                    probesInFlight++;
+                    return true;
+                }
+                rejectedCalls++;
+                return false;
+            default:
+                rejectedCalls++;
+                return false;
+        }
+    }
+
+    public synchronized void onSuccess(long latencyMillis) {
+        recordLatency(latencyMillis);
+        boolean slow = settings.getSlowCallMillis() > 0L && latencyMillis > settings.getSlowCallMillis();
+        record(!slow);
+    }
+
+    public synchronized void onFailure(long latencyMillis) {
+        recordLatency(latencyMillis);
+        record(false);
+    }
+
+    /**
+     * Gives back a permit for a call that was never made or whose outcome says nothing
+     * about the provider's health (e.g. a local rate-limit rejection).
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized CircuitBreakerStats getStats() {
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        return new CircuitBreakerStats(
+            state,
+            outcomeCount == 0 ? 0D : failureCount / (double) outcomeCount,
+            percentile(sorted, 0.50D),
+            percentile(sorted, 0.95D),
+            percentile(sorted, 0.99D),
+            totalCalls,
+            totalFailures,
+            rejectedCalls,
+            openTransitions
+        );
+    }
+
+    /**
+     * Latency percentile over recent calls, or -1 when nothing has been recorded yet.
+     */
+    public synchronized long latencyPercentile(double quantile) {
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        return percentile(sorted, quantile);
+    }
+
+    private void record(boolean success) {
+        totalCalls++;
+        if (!success) {
+            totalFailures++;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight > 0) {
+                probesInFlight--;
+            }
+            if (!success) {
+                open();
+                return;
+            }
+            probeSuccesses++;
+            if (probeSuccesses >= settings.getHalfOpenProbes()) {
+                // 试探成功，清空窗口重新统计
+                state = State.CLOSED;
+                Arrays.fill(outcomes, false);
+                outcomeIndex = 0;
+                outcomeCount = 0;
+                failureCount = 0;
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // 熔断前已发出的请求，结果不再影响状态
+            return;
+        }
+
+        if (outcomeCount == outcomes.length) {
+            if (!outcomes[outcomeIndex]) {
+                failureCount--;
+            }
+        } else {
+            outcomeCount++;
+        }
+        outcomes[outcomeIndex] = success;
+        if (!success) {
+            failureCount++;
+        }
+        outcomeIndex = (outcomeIndex + 1) % outcomes.length;
+
+        if (outcomeCount >= settings.getMinimumCalls()
+            && failureCount / (double) outcomeCount >= settings.getFailureRateThreshold()) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        openTransitions++;
+    }
+
+    private void recordLatency(long latencyMillis) {
+        latencies[latencyIndex] = Math.max(0L, latencyMillis);
+        latencyIndex = (latencyIndex + 1) % latencies.length;
+        if (latencyCount < latencies.length) {
+            latencyCount++;
+        }
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return -1L;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,73 @@
+package me.arceus.mrp.provider;
+
+/**
+ * Point-in-time view of a provider's {@link CircuitBreaker}.
+ */
+public class CircuitBreakerStats {
+
+    private final CircuitBreaker.State state;
+    private final double failureRate;
+    private final long p50Millis;
+    private final long p95Millis;
+    private final long p99Millis;
+    private final long calls;
+    private final long failures;
+    private final long rejected;
+    private final long openTransitions;
+
+    public CircuitBreakerStats(CircuitBreaker.State state,
+                               double failureRate,
+                               long p50Millis,
+                               long p95Millis,
+                               long p99Millis,
+                               long calls,
+                               long failures,
+                               long rejected,
+                               long openTransitions) {
+        this.state = state;
+        this.failureRate = failureRate;
+        this.p50Millis = p50Millis;
+        this.p95Millis = p95Millis;
+        this.p99Millis = p99Millis;
+        this.calls = calls;
+        this.failures = failures;
+        this.rejected = rejected;
+        this.openTransitions = openTransitions;
+    }
+
+    public CircuitBreaker.State getState() {
+        return state;
+    }
+
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    public long getP50Millis() {
+        return p50Millis;
+    }
+
+    public long getP95Millis() {
+        return p95Millis;
+    }
+
+    public long getP99Millis() {
+        return p99Millis;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getOpenTransitions() {
+        return openTransitions;
+    }
+}
@@ -0,0 +1,136 @@
+package me.arceus.mrp.provider;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of in-flight asynchronous calls without parking a thread per
+ * waiting caller. Calls over the limit are queued and started, in order, as
+ * earlier ones complete. A queued call whose result is cancelled (e.g. a hedge
+ * that lost) leaves the queue and is never sent.
+ */
+class ConcurrencyLimiter {
+
+    private final int maxConcurrent;
+    private final Deque<Runnable> waiting = new ArrayDeque<>();
+    private int active;
+    private int pendingReleases;
+    private boolean releasing;
+    private boolean closed;
+
+    ConcurrencyLimiter(int maxConcurrent) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+    }
+
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            if (result.isDone()) {
+                // 排队期间已被取消，名额转交给下一个请求
+                release();
+                return;
+            }
+            CompletableFuture<T> future;
+            try {
+                future = call.get();
+            } catch (RuntimeException e) {
+                release();
+                result.completeExceptionally(e);
+                return;
+            }
+            future.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+            // 调用方取消时同步取消底层请求
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    future.cancel(true);
+                }
+            });
+        };
+
+        boolean runNow;
+        synchronized (this) {
+            if (closed) {
+                result.completeExceptionally(new IllegalStateException("Provider 已关闭"));
+                return result;
+            }
+            runNow = active < maxConcurrent;
+            if (runNow) {
+                active++;
+            } else {
+                waiting.addLast(start);
+            }
+        }
+        if (runNow) {
+            start.run();
+        } else {
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    synchronized (this) {
+                        waiting.remove(start);
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    synchronized int getActive() {
+        return active;
+    }
+
+    synchronized int getQueued() {
+        return waiting.size();
+    }
+
+    int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Stops accepting new calls. Queued calls are still started so no caller is left hanging.
+     */
+    synchronized void close() {
+        closed = true;
+    }
+
+    /**
+     * Hands the caller's slot to the next queued call. Calls that fail synchronously release
+     * again from inside {@code next.run()}; those releases are only counted and drained by
+     * the loop already running, so a chain of failures does not recurse.
+     */
+    private void release() {
+        synchronized (this) {
+            pendingReleases++;
+            if (releasing) {
+                return;
+            }
+            releasing = true;
+        }
+        while (true) {
+            Runnable next;
+            synchronized (this) {
+                if (pendingReleases == 0) {
+                    releasing = false;
+                    return;
+                }
+                pendingReleases--;
+                next = waiting.pollFirst();
+                if (next == null) {
+                    active--;
+                    continue;
+                }
+            }
+            // 名额直接转交给队首请求
+            next.run();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package me.arceus.mrp.provider;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A provider that can turn text into an embedding vector, used by the semantic reply cache.
+ */
+public interface EmbeddingProvider {
+
+    String getName();
+
+    CompletableFuture<float[]> embed(String text);
+}
@@ -1,6 +1,7 @@
 package me.arceus.mrp.provider;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface LLMProvider {
 
@@ -8,6 +9,15 @@ public interface LLMProvider {
 
     CompletableFuture<ProviderResponse> generate(ProviderRequest request);
 
+    /**
+     * Generates a reply while pushing partial content to {@code deltaConsumer} as it arrives.
+     * The consumer is invoked from a provider thread. Providers without streaming support
+     * fall back to {@link #generate(ProviderRequest)} and emit no deltas.
+     */
+    default CompletableFuture<ProviderResponse> generateStream(ProviderRequest request, Consumer<String> deltaConsumer) {
+        return generate(request);
+    }
+
     default void shutdown() {
         // 默认无资源需要释放
     }
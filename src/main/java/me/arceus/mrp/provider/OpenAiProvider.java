@@ -4,51 +4,70 @@ import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import me.arceus.mrp.config.ProviderConfig;
+import me.arceus.mrp.logging.DebugTrace;
+import me.arceus.mrp.metrics.LatencyHistogram;
+import me.arceus.mrp.metrics.MetricsRegistry;
+import me.arceus.mrp.metrics.Utf8;
 
-import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
-public class OpenAiProvider implements LLMProvider {
+public class OpenAiProvider implements LLMProvider, EmbeddingProvider {
 
     private static final Gson GSON = new Gson();
+    private static final String CHAT_PATH = "chat/completions";
+    private static final String EMBEDDINGS_PATH = "embeddings";
 
     private final String name;
     private final ProviderConfig config;
-    private final HttpClient httpClient;
-    private final ExecutorService executor;
+    private final ProviderTransport transport;
+    private final ConcurrencyLimiter limiter;
     private final Logger logger;
     private final String label;
+    private final MetricsRegistry metrics;
+    private final LatencyHistogram chatLatency;
+    private final LatencyHistogram embedLatency;
+    private final LongAdder requestBytes;
+    private final LongAdder responseBytes;
+    private final LongAdder promptTokens;
+    private final LongAdder completionTokens;
+    private final LongAdder transportErrors;
 
-    public OpenAiProvider(String name, ProviderConfig config, Logger logger) {
-        this(name, config, logger, "OpenAI");
+    public OpenAiProvider(String name, ProviderConfig config, Logger logger, ProviderTransport transport,
+                          MetricsRegistry metrics) {
+        this(name, config, logger, "OpenAI", transport, metrics);
     }
 
-    public OpenAiProvider(String name, ProviderConfig config, Logger logger, String label) {
+    public OpenAiProvider(String name, ProviderConfig config, Logger logger, String label, ProviderTransport transport,
+                          MetricsRegistry metrics) {
         this.name = name;
         this.config = config;
         this.logger = logger;
         this.label = label;
-        this.executor = Executors.newFixedThreadPool(4, r -> {
-            Thread thread = new Thread(r, "mrp-openai-" + name + "-" + System.nanoTime());
-            thread.setDaemon(true);
-            return thread;
-        });
-        this.httpClient = HttpClient.newBuilder()
-            .version(HttpClient.Version.HTTP_1_1)
-            .connectTimeout(Duration.ofSeconds(Math.max(5, config.getTimeoutSeconds())))
-            .executor(executor)
-            .build();
+        this.transport = transport;
+        this.limiter = new ConcurrencyLimiter(config.getMaxConcurrentRequests());
+        this.metrics = metrics;
+        String prefix = "provider." + name + ".";
+        this.chatLatency = metrics.histogram(prefix + "chat");
+        this.embedLatency = metrics.histogram(prefix + "embed");
+        this.requestBytes = metrics.counter(prefix + "request-bytes");
+        this.responseBytes = metrics.counter(prefix + "response-bytes");
+        this.promptTokens = metrics.counter(prefix + "prompt-tokens");
+        this.completionTokens = metrics.counter(prefix + "completion-tokens");
+        this.transportErrors = metrics.counter(prefix + "transport-errors");
     }
 
     @Override
@@ -58,10 +77,145 @@ public class OpenAiProvider implements LLMProvider {
 
     @Override
     public CompletableFuture<ProviderResponse> generate(ProviderRequest request) {
-        return CompletableFuture.supplyAsync(() -> doGenerate(request), executor);
+        String body = GSON.toJson(buildPayload(request, false));
+        DebugTrace trace = request.getTrace();
+        if (trace != null) {
+            trace.event(label + " 请求 (" + name + ")", body);
+        }
+
+        CompletableFuture<HttpResponse<String>> call =
+            limiter.submit(() -> send(CHAT_PATH, body, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)));
+        return ProviderErrors.linkCancellation(call.thenApply(response -> {
+                if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                    if (trace != null) {
+                        trace.event(label + " 响应 (" + name + ")", response.body());
+                    }
+                    return countTokens(parseResponse(response.body()));
+                }
+                throw new ProviderHttpException(response.statusCode(),
+                    "OpenAI 调用失败，状态码: " + response.statusCode() + "，响应: " + response.body());
+            }), call);
+    }
+
+    @Override
+    public CompletableFuture<ProviderResponse> generateStream(ProviderRequest request, Consumer<String> deltaConsumer) {
+        String body = GSON.toJson(buildPayload(request, true));
+        DebugTrace trace = request.getTrace();
+        if (trace != null) {
+            trace.event(label + " 流式请求 (" + name + ")", body);
+        }
+
+        CompletableFuture<HttpResponse<ProviderResponse>> call =
+            limiter.submit(() -> send(CHAT_PATH, body, streamHandler(deltaConsumer)));
+        return ProviderErrors.linkCancellation(call.thenApply(response -> {
+            ProviderResponse result = countTokens(response.body());
+            if (trace != null) {
+                trace.event(label + " 流式响应 (" + name + ")", result.getContent());
+            }
+            return result;
+        }), call);
     }
 
-    private ProviderResponse doGenerate(ProviderRequest request) {
+    @Override
+    public CompletableFuture<float[]> embed(String text) {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("model", config.getEmbeddingModel());
+        payload.addProperty("input", text);
+        String body = GSON.toJson(payload);
+
+        CompletableFuture<HttpResponse<String>> call =
+            limiter.submit(() -> send(EMBEDDINGS_PATH, body, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)));
+        return ProviderErrors.linkCancellation(call.thenApply(response -> {
+            if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                return parseEmbedding(response.body());
+            }
+            throw new ProviderHttpException(response.statusCode(),
+                "Embedding 调用失败，状态码: " + response.statusCode() + "，响应: " + response.body());
+        }), call);
+    }
+
+    /**
+     * Number of requests currently in flight and waiting for a slot, for status output.
+     */
+    public int getActiveRequests() {
+        return limiter.getActive();
+    }
+
+    public int getQueuedRequests() {
+        return limiter.getQueued();
+    }
+
+    public int getMaxConcurrentRequests() {
+        return limiter.getMaxConcurrent();
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> send(String path, String body, HttpResponse.BodyHandler<T> handler) {
+        HttpRequest httpRequest = buildHttpRequest(path, body);
+        requestBytes.add(Utf8.length(body));
+        LatencyHistogram latency = CHAT_PATH.equals(path) ? chatLatency : embedLatency;
+        long start = System.nanoTime();
+        // 在收到响应头时计数状态码，错误响应体解析时抛出的异常不会漏记
+        HttpResponse.BodyHandler<T> counted = responseInfo -> {
+            metrics.counter("provider." + name + ".status." + responseInfo.statusCode()).increment();
+            return handler.apply(responseInfo);
+        };
+        CompletableFuture<HttpResponse<T>> future = transport.clientFor(httpRequest.uri()).sendAsync(httpRequest, counted);
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        future.whenComplete((response, error) -> {
+            // 流式响应在读完全部分片后才完成，因此这里的耗时包含整个响应体
+            latency.recordSince(start);
+            if (response != null && response.body() instanceof String text) {
+                responseBytes.add(Utf8.length(text));
+            }
+            if (error == null) {
+                result.complete(response);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (!(cause instanceof ProviderHttpException)) {
+                transportErrors.increment();
+            }
+            if (cause instanceof RuntimeException runtime && !(cause instanceof UncheckedIOException)) {
+                result.completeExceptionally(runtime);
+            } else {
+                result.completeExceptionally(new RuntimeException("OpenAI 请求异常: " + cause.getMessage(), cause));
+            }
+        });
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Parses server-sent events as they arrive instead of parking a thread on a blocking line stream.
+     * Error responses are read whole so the status and body end up in the exception message.
+     */
+    private HttpResponse.BodyHandler<ProviderResponse> streamHandler(Consumer<String> deltaConsumer) {
+        return responseInfo -> {
+            int status = responseInfo.statusCode();
+            if (status < 200 || status >= 300) {
+                return HttpResponse.BodySubscribers.mapping(
+                    HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8),
+                    error -> {
+                        throw new ProviderHttpException(status, "OpenAI 调用失败，状态码: " + status + "，响应: " + error);
+                    });
+            }
+            StreamAccumulator accumulator = new StreamAccumulator(deltaConsumer);
+            return HttpResponse.BodySubscribers.fromLineSubscriber(accumulator, StreamAccumulator::toResponse,
+                StandardCharsets.UTF_8, null);
+        };
+    }
+
+    private ProviderResponse countTokens(ProviderResponse response) {
+        promptTokens.add(response.getPromptTokens());
+        completionTokens.add(response.getCompletionTokens());
+        return response;
+    }
+
+    private JsonObject buildPayload(ProviderRequest request, boolean stream) {
         JsonObject payload = new JsonObject();
         String model = request.getModel();
         if (model == null || model.isBlank()) {
@@ -83,14 +237,21 @@ public class OpenAiProvider implements LLMProvider {
         }
         payload.add("messages", messagesArray);
 
-        String body = GSON.toJson(payload);
-
-        logger.info("[" + label + "] Request payload for provider " + name + ": " + body);
+        if (stream) {
+            payload.addProperty("stream", true);
+            // 让服务端在最后一个分片里附带 usage，便于统计 token
+            JsonObject streamOptions = new JsonObject();
+            streamOptions.addProperty("include_usage", true);
+            payload.add("stream_options", streamOptions);
+        }
+        return payload;
+    }
 
+    private HttpRequest buildHttpRequest(String path, String body) {
         HttpRequest.Builder builder = HttpRequest.newBuilder()
                 .uri(URI.create(config.getApiBase().endsWith("/")
-                        ? config.getApiBase() + "chat/completions"
-                        : config.getApiBase() + "/chat/completions"))
+                        ? config.getApiBase() + path
+                        : config.getApiBase() + "/" + path))
             .timeout(Duration.ofSeconds(Math.max(5, config.getTimeoutSeconds())))
             .header("Content-Type", "application/json")
             .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8));
@@ -98,21 +259,24 @@ public class OpenAiProvider implements LLMProvider {
         if (config.getApiKey() != null && !config.getApiKey().isBlank()) {
             builder.header("Authorization", "Bearer " + config.getApiKey());
         }
+        return builder.build();
+    }
 
-        try {
-            HttpResponse<String> response = httpClient.send(builder.build(),
-                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
-            if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                logger.info("[" + label + "] Response payload for provider " + name + ": " + response.body());
-                return parseResponse(response.body());
-            }
-            throw new RuntimeException("OpenAI 调用失败，状态码: " + response.statusCode() + "，响应: " + response.body());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("OpenAI 请求被中断", e);
-        } catch (IOException e) {
-            throw new RuntimeException("OpenAI 请求异常: " + e.getMessage(), e);
+    private float[] parseEmbedding(String body) {
+        JsonObject json = GSON.fromJson(body, JsonObject.class);
+        JsonArray data = json != null ? json.getAsJsonArray("data") : null;
+        if (data == null || data.size() == 0) {
+            throw new RuntimeException("Embedding 响应中没有 data 字段");
+        }
+        JsonArray values = data.get(0).getAsJsonObject().getAsJsonArray("embedding");
+        if (values == null || values.size() == 0) {
+            throw new RuntimeException("Embedding 响应中没有 embedding 字段");
+        }
+        float[] vector = new float[values.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = values.get(i).getAsFloat();
         }
+        return vector;
     }
 
     private ProviderResponse parseResponse(String body) {
@@ -131,11 +295,124 @@ public class OpenAiProvider implements LLMProvider {
                 ? usage.get("completion_tokens").getAsInt()
                 : 0;
 
-        return new ProviderResponse(content, promptTokens, completionTokens);
+        return new ProviderResponse(content, promptTokens, completionTokens, cachedTokens(usage));
+    }
+
+    private static int cachedTokens(JsonObject usage) {
+        if (usage == null || !usage.has("prompt_tokens_details") || !usage.get("prompt_tokens_details").isJsonObject()) {
+            return 0;
+        }
+        JsonObject details = usage.getAsJsonObject("prompt_tokens_details");
+        JsonElement cached = details.get("cached_tokens");
+        return cached != null && cached.isJsonPrimitive() ? cached.getAsInt() : 0;
+    }
+
+    /**
+     * Folds server-sent event lines of a streamed chat completion into a single response,
+     * forwarding each content delta as soon as it is parsed.
+     */
+    private final class StreamAccumulator implements Flow.Subscriber<String> {
+
+        private final Consumer<String> deltaConsumer;
+        private final StringBuilder content = new StringBuilder();
+        private int promptTokens;
+        private int completionTokens;
+        private int cachedTokens;
+        private boolean done;
+
+        StreamAccumulator(Consumer<String> deltaConsumer) {
+            this.deltaConsumer = deltaConsumer;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            // [DONE] 之后的内容直接忽略，等待服务端关闭连接
+            if (!done && !accept(line)) {
+                done = true;
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // 由 HttpClient 以异常方式完成响应 future
+        }
+
+        @Override
+        public void onComplete() {
+            // 结果通过 finisher 取得
+        }
+
+        /**
+         * @return {@code false} once the terminating {@code [DONE]} event has been seen
+         */
+        private boolean accept(String line) {
+            if (line == null) {
+                return true;
+            }
+            responseBytes.add(Utf8.length(line) + 1L);
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith(":") || !trimmed.startsWith("data:")) {
+                return true;
+            }
+            String data = trimmed.substring(5).trim();
+            if (data.equals("[DONE]")) {
+                return false;
+            }
+
+            JsonObject chunk;
+            try {
+                chunk = GSON.fromJson(data, JsonObject.class);
+            } catch (JsonParseException e) {
+                logger.warning("[" + label + "] 无法解析流式分片: " + data);
+                return true;
+            }
+            if (chunk == null) {
+                return true;
+            }
+
+            JsonArray choices = chunk.has("choices") && chunk.get("choices").isJsonArray()
+                    ? chunk.getAsJsonArray("choices")
+                    : null;
+            if (choices != null && choices.size() > 0) {
+                JsonObject delta = choices.get(0).getAsJsonObject().getAsJsonObject("delta");
+                if (delta != null && delta.has("content") && !delta.get("content").isJsonNull()) {
+                    String piece = delta.get("content").getAsString();
+                    if (!piece.isEmpty()) {
+                        content.append(piece);
+                        if (deltaConsumer != null) {
+                            deltaConsumer.accept(piece);
+                        }
+                    }
+                }
+            }
+
+            JsonElement usageElement = chunk.get("usage");
+            if (usageElement != null && usageElement.isJsonObject()) {
+                JsonObject usage = usageElement.getAsJsonObject();
+                if (usage.has("prompt_tokens")) {
+                    promptTokens = usage.get("prompt_tokens").getAsInt();
+                }
+                if (usage.has("completion_tokens")) {
+                    completionTokens = usage.get("completion_tokens").getAsInt();
+                }
+                cachedTokens = cachedTokens(usage);
+            }
+            return true;
+        }
+
+        ProviderResponse toResponse() {
+            return new ProviderResponse(content.toString(), promptTokens, completionTokens, cachedTokens);
+        }
     }
 
     @Override
     public void shutdown() {
-        executor.shutdownNow();
+        // 连接池由 ProviderTransport 共享，这里只停止接收新请求
+        limiter.close();
     }
 }
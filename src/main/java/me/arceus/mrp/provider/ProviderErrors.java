@@ -0,0 +1,38 @@
+package me.arceus.mrp.provider;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+final class ProviderErrors {
+
+    private ProviderErrors() {
+    }
+
+    /**
+     * Strips the wrappers added by {@link java.util.concurrent.CompletableFuture} stages.
+     */
+    static Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while ((current instanceof CompletionException || current instanceof ExecutionException)
+            && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+
+    /**
+     * Cancels {@code source} when {@code stage} is cancelled. Dependent stages do not
+     * propagate cancellation on their own, so without this a cancelled call would keep
+     * its HTTP exchange and concurrency slot until the upstream answered.
+     */
+    static <T> CompletableFuture<T> linkCancellation(CompletableFuture<T> stage, Future<?> source) {
+        stage.whenComplete((value, error) -> {
+            if (stage.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return stage;
+    }
+}
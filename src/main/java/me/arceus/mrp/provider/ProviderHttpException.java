@@ -0,0 +1,22 @@
+package me.arceus.mrp.provider;
+
+/**
+ * Non-2xx response from an upstream API.
+ */
+public class ProviderHttpException extends RuntimeException {
+
+    private final int statusCode;
+
+    public ProviderHttpException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public boolean isRateLimited() {
+        return statusCode == 429;
+    }
+}
@@ -9,24 +9,34 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.logging.Logger;
 
 public class ProviderRegistry {
 
     private final MrpPlugin plugin;
     private final Map<String, LLMProvider> providers = new HashMap<>();
+    private final ProviderTransport transport;
+    private final ScheduledExecutorService scheduler;
+    private final ProviderRouter router;
     private String defaultProvider;
 
     public ProviderRegistry(MrpPlugin plugin) {
         this.plugin = plugin;
+        this.transport = new ProviderTransport(plugin.getExecutionBackend());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+            plugin.getExecutionBackend().threadFactory("mrp-provider-scheduler"));
+        this.router = new ProviderRouter(plugin.getLogger(), scheduler);
     }
 
     public void initialize(ProviderSettings settings) {
-        shutdown();
+        closeProviders();
         if (settings == null) {
             plugin.getLogger().warning("Provider 设置为空，无法初始化");
             return;
         }
+        transport.configure(settings);
 
         this.defaultProvider = settings.getDefaultProvider();
         Logger logger = plugin.getLogger();
@@ -41,6 +51,7 @@ public class ProviderRegistry {
             defaultProvider = providers.keySet().iterator().next();
             logger.warning("默认 Provider 不存在，已自动切换为 " + defaultProvider);
         }
+        router.configure(providers, settings);
     }
 
     private LLMProvider buildProvider(ProviderConfig config) {
@@ -52,7 +63,10 @@ public class ProviderRegistry {
                 return new PlaceholderProvider(config.getName());
             }
             String label = resolveLabel(type);
-            return new OpenAiProvider(config.getName(), config, plugin.getLogger(), label);
+            OpenAiProvider provider = new OpenAiProvider(config.getName(), config, plugin.getLogger(), label, transport,
+                plugin.getMetrics());
+            // 即使未配置额度也包装一层，把上游 429 转换为友好提示或降级回复
+            return new RateLimitedProvider(provider, config.getRateLimit(), scheduler);
         }
         return new PlaceholderProvider(config.getName());
     }
@@ -85,11 +99,39 @@ public class ProviderRegistry {
         return providers.get(defaultProvider);
     }
 
+    /**
+     * Provider with an embeddings endpoint, by name or the default one when blank.
+     */
+    public EmbeddingProvider getEmbeddingProvider(String name) {
+        LLMProvider provider = name != null && !name.isBlank() ? providers.get(name) : getDefaultProvider();
+        if (provider instanceof RateLimitedProvider limited) {
+            provider = limited.getDelegate();
+        }
+        return provider instanceof EmbeddingProvider embedding ? embedding : null;
+    }
+
     public Map<String, LLMProvider> getProviders() {
         return Collections.unmodifiableMap(providers);
     }
 
+    /**
+     * Entry point for chat requests: routes to the preferred provider with failover.
+     */
+    public ProviderRouter getRouter() {
+        return router;
+    }
+
+    public ProviderTransport getTransport() {
+        return transport;
+    }
+
     public void shutdown() {
+        closeProviders();
+        scheduler.shutdownNow();
+        transport.shutdown();
+    }
+
+    private void closeProviders() {
         providers.values().forEach(LLMProvider::shutdown);
         providers.clear();
     }
@@ -1,7 +1,13 @@
 package me.arceus.mrp.provider;
 
+import me.arceus.mrp.logging.DebugTrace;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
 public class ProviderRequest {
 
@@ -9,16 +15,23 @@ public class ProviderRequest {
     private final int maxTokens;
     private final double temperature;
     private final String model;
+    private final DebugTrace trace;
+    private String canonicalKey;
 
     public ProviderRequest(List<ProviderMessage> messages, int maxTokens, double temperature) {
         this(messages, maxTokens, temperature, null);
     }
 
     public ProviderRequest(List<ProviderMessage> messages, int maxTokens, double temperature, String model) {
+        this(messages, maxTokens, temperature, model, null);
+    }
+
+    private ProviderRequest(List<ProviderMessage> messages, int maxTokens, double temperature, String model, DebugTrace trace) {
         this.messages = List.copyOf(messages);
         this.maxTokens = maxTokens;
         this.temperature = temperature;
         this.model = model;
+        this.trace = trace;
     }
 
     public List<ProviderMessage> getMessages() {
@@ -36,4 +49,59 @@ public class ProviderRequest {
     public String getModel() {
         return model;
     }
+
+    /**
+     * Debug trace of the turn that issued this request, or {@code null} if it was not sampled.
+     * Not part of {@link #canonicalKey()}.
+     */
+    public DebugTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * SHA-256 over the model, sampling parameters and every message. Two requests with the
+     * same key would be sent upstream as the same payload.
+     */
+    public String canonicalKey() {
+        String key = canonicalKey;
+        if (key == null) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 不可用", e);
+            }
+            update(digest, model != null ? model : "");
+            update(digest, String.format(Locale.ROOT, "%.3f", temperature));
+            update(digest, Integer.toString(maxTokens));
+            for (ProviderMessage message : messages) {
+                update(digest, message.getRole().name());
+                update(digest, message.getContent() != null ? message.getContent() : "");
+            }
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            key = hex.toString();
+            canonicalKey = key;
+        }
+        return key;
+    }
+
+    /**
+     * Same request addressed to a different model, e.g. when failing over to another provider.
+     */
+    public ProviderRequest withModel(String model) {
+        return new ProviderRequest(messages, maxTokens, temperature, model, trace);
+    }
+
+    public ProviderRequest withTrace(DebugTrace trace) {
+        return new ProviderRequest(messages, maxTokens, temperature, model, trace);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        // 分隔符避免不同字段拼接后产生相同的字节序列
+        digest.update((byte) 0);
+    }
 }
@@ -5,11 +5,35 @@ public class ProviderResponse {
     private final String content;
     private final int promptTokens;
     private final int completionTokens;
+    private final int cachedTokens;
+    private final boolean degraded;
 
     public ProviderResponse(String content, int promptTokens, int completionTokens) {
+        this(content, promptTokens, completionTokens, 0, false);
+    }
+
+    public ProviderResponse(String content, int promptTokens, int completionTokens, int cachedTokens) {
+        this(content, promptTokens, completionTokens, cachedTokens, false);
+    }
+
+    public ProviderResponse(String content, int promptTokens, int completionTokens, boolean degraded) {
+        this(content, promptTokens, completionTokens, 0, degraded);
+    }
+
+    private ProviderResponse(String content, int promptTokens, int completionTokens, int cachedTokens, boolean degraded) {
         this.content = content;
         this.promptTokens = promptTokens;
         this.completionTokens = completionTokens;
+        this.cachedTokens = cachedTokens;
+        this.degraded = degraded;
+    }
+
+    /**
+     * A canned reply produced without calling the model, e.g. while rate limited.
+     * Such replies are shown to the player but not kept in the conversation history.
+     */
+    public static ProviderResponse degraded(String content) {
+        return new ProviderResponse(content, 0, 0, true);
     }
 
     public String getContent() {
@@ -23,4 +47,16 @@ public class ProviderResponse {
     public int getCompletionTokens() {
         return completionTokens;
     }
+
+    /**
+     * Prompt tokens the provider served from its prefix cache, as reported in
+     * {@code usage.prompt_tokens_details.cached_tokens}; 0 when not reported.
+     */
+    public int getCachedTokens() {
+        return cachedTokens;
+    }
+
+    public boolean isDegraded() {
+        return degraded;
+    }
 }
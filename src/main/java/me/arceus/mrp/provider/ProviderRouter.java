@@ -0,0 +1,422 @@
+package me.arceus.mrp.provider;
+
+import me.arceus.mrp.config.HedgingSettings;
+import me.arceus.mrp.config.ProviderConfig;
+import me.arceus.mrp.config.ProviderSettings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Sends requests to the preferred provider and falls through the configured failover
+ * chain when it fails or its circuit is open. Once a streamed reply has shown partial
+ * content to the player it is not retried elsewhere, since the text cannot be taken back.
+ * <p>
+ * With hedging enabled, a non-streaming request that is still running after the primary
+ * provider's configured latency percentile is also sent to the next healthy provider in
+ * the chain; the first successful reply wins and the other call is cancelled.
+ * <p>
+ * Identical requests arriving while one is already in flight share its upstream call
+ * (see {@link SingleFlight}) unless coalescing is turned off.
+ */
+public class ProviderRouter {
+
+    private static final String UNAVAILABLE_MESSAGE = "村民暂时无法回应，请稍后再试。";
+
+    private final Logger logger;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong routed = new AtomicLong();
+    private final AtomicLong failovers = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong hedgesOverBudget = new AtomicLong();
+    private final SingleFlight singleFlight = new SingleFlight();
+    private volatile Routes routes = new Routes(Map.of(), Map.of(), Map.of(), List.of(), HedgingSettings.disabled(), false);
+
+    public ProviderRouter(Logger logger, ScheduledExecutorService scheduler) {
+        this.logger = logger;
+        this.scheduler = scheduler;
+    }
+
+    void configure(Map<String, LLMProvider> providers, ProviderSettings settings) {
+        Map<String, CircuitBreaker> breakers = new HashMap<>();
+        Map<String, ProviderConfig> configs = new HashMap<>();
+        for (String name : providers.keySet()) {
+            breakers.put(name, new CircuitBreaker(settings.getCircuitBreaker()));
+            ProviderConfig config = settings.getProvider(name);
+            if (config != null) {
+                configs.put(name, config);
+            }
+        }
+        routes = new Routes(Map.copyOf(providers), breakers, configs, settings.getFailoverChain(), settings.getHedging(),
+            settings.isCoalesceIdentical());
+    }
+
+    public CompletableFuture<ProviderResponse> generate(String preferred, ProviderRequest request) {
+        return generate(preferred, request, null);
+    }
+
+    /**
+     * @param deltaConsumer receives streamed content, or {@code null} for a non-streaming call
+     */
+    public CompletableFuture<ProviderResponse> generate(String preferred,
+                                                        ProviderRequest request,
+                                                        Consumer<String> deltaConsumer) {
+        Routes current = routes;
+        if (current.coalesceIdentical) {
+            return singleFlight.execute(preferred + ':' + request.canonicalKey(), deltaConsumer,
+                consumer -> route(current, preferred, request, consumer));
+        }
+        return route(current, preferred, request, deltaConsumer);
+    }
+
+    private CompletableFuture<ProviderResponse> route(Routes current,
+                                                      String preferred,
+                                                      ProviderRequest request,
+                                                      Consumer<String> deltaConsumer) {
+        List<String> candidates = current.candidates(preferred);
+        CompletableFuture<ProviderResponse> result = new CompletableFuture<>();
+        if (candidates.isEmpty()) {
+            result.completeExceptionally(new ProviderUnavailableException(UNAVAILABLE_MESSAGE));
+            return result;
+        }
+        routed.incrementAndGet();
+        new Routing(current, candidates, request, deltaConsumer, result).next();
+        return result;
+    }
+
+    public Map<String, CircuitBreakerStats> getBreakerStats() {
+        Map<String, CircuitBreakerStats> stats = new LinkedHashMap<>();
+        routes.breakers.forEach((name, breaker) -> stats.put(name, breaker.getStats()));
+        return Collections.unmodifiableMap(stats);
+    }
+
+    public List<String> getFailoverChain() {
+        return routes.chain;
+    }
+
+    public boolean isHedgingEnabled() {
+        return routes.hedging.isEnabled();
+    }
+
+    public long getRoutedRequests() {
+        return routed.get();
+    }
+
+    public long getFailovers() {
+        return failovers.get();
+    }
+
+    public long getExhausted() {
+        return exhausted.get();
+    }
+
+    public long getHedgedRequests() {
+        return hedged.get();
+    }
+
+    /**
+     * Hedged requests whose secondary call answered before the primary one.
+     */
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    public long getHedgesOverBudget() {
+        return hedgesOverBudget.get();
+    }
+
+    public boolean isCoalescingEnabled() {
+        return routes.coalesceIdentical;
+    }
+
+    /**
+     * Requests that were answered by an identical call already in flight.
+     */
+    public long getCoalescedRequests() {
+        return singleFlight.getJoined();
+    }
+
+    public int getInFlightCalls() {
+        return singleFlight.getInFlight();
+    }
+
+    private boolean reserveHedge(double budgetRatio) {
+        while (true) {
+            long used = hedged.get();
+            if (used + 1 > budgetRatio * routed.get()) {
+                hedgesOverBudget.incrementAndGet();
+                return false;
+            }
+            if (hedged.compareAndSet(used, used + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * State of one routed request: the candidates still to try and the calls in flight.
+     * At most two calls run at once, the current attempt and its hedge.
+     */
+    private final class Routing {
+
+        private final Routes current;
+        private final List<String> candidates;
+        private final ProviderRequest original;
+        private final Consumer<String> deltaConsumer;
+        private final CompletableFuture<ProviderResponse> result;
+        private final List<Attempt> inFlight = new ArrayList<>();
+        private int nextIndex;
+        private boolean hedgeUsed;
+        private ScheduledFuture<?> hedgeTimer;
+        private Throwable lastError;
+        private ProviderResponse degradedFallback;
+
+        Routing(Routes current,
+                List<String> candidates,
+                ProviderRequest original,
+                Consumer<String> deltaConsumer,
+                CompletableFuture<ProviderResponse> result) {
+            this.current = current;
+            this.candidates = candidates;
+            this.original = original;
+            this.deltaConsumer = deltaConsumer;
+            this.result = result;
+        }
+
+        synchronized void next() {
+            Attempt attempt = launch(false);
+            if (attempt == null) {
+                finish();
+                return;
+            }
+            scheduleHedge(attempt);
+        }
+
+        private Attempt launch(boolean hedge) {
+            while (nextIndex < candidates.size()) {
+                int index = nextIndex++;
+                String name = candidates.get(index);
+                CircuitBreaker breaker = current.breakers.get(name);
+                if (!breaker.tryAcquire()) {
+                    // 熔断中的 Provider 直接跳过，不等待超时
+                    continue;
+                }
+                if (index > 0 && !hedge) {
+                    failovers.incrementAndGet();
+                    logger.warning("Provider 故障转移: " + candidates.get(0) + " -> " + name);
+                }
+                ProviderRequest request = original;
+                ProviderConfig config = current.configs.get(name);
+                if (index > 0 && config != null) {
+                    // 角色指定的模型只对首选 Provider 有效，备用 Provider 使用自身配置的模型
+                    request = original.withModel(config.getModel());
+                }
+                Attempt attempt = new Attempt(name, breaker, hedge);
+                inFlight.add(attempt);
+                attempt.start(current.providers.get(name), request);
+                return attempt;
+            }
+            return null;
+        }
+
+        private void scheduleHedge(Attempt primary) {
+            HedgingSettings hedging = current.hedging;
+            if (!hedging.isEnabled() || hedgeUsed || deltaConsumer != null
+                || result.isDone() || !inFlight.contains(primary) || nextIndex >= candidates.size()) {
+                return;
+            }
+            long percentile = primary.breaker.latencyPercentile(hedging.getDelayPercentile());
+            if (percentile < 0L) {
+                // 尚无延迟数据，无法判断何为“慢”，本次不对冲
+                return;
+            }
+            long delay = Math.max(hedging.getMinDelayMillis(), percentile);
+            hedgeTimer = scheduler.schedule(() -> fireHedge(primary), delay, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void fireHedge(Attempt primary) {
+            hedgeTimer = null;
+            if (result.isDone() || hedgeUsed || inFlight.size() != 1 || inFlight.get(0) != primary) {
+                return;
+            }
+            if (!reserveHedge(current.hedging.getBudgetRatio())) {
+                return;
+            }
+            hedgeUsed = true;
+            Attempt hedge = launch(true);
+            if (hedge == null) {
+                // 备用 Provider 均不可用，归还额度
+                hedged.decrementAndGet();
+            }
+        }
+
+        private synchronized void onComplete(Attempt attempt, ProviderResponse response, Throwable cause) {
+            inFlight.remove(attempt);
+            if (result.isDone()) {
+                return;
+            }
+            if (cause == null && !response.isDegraded()) {
+                if (attempt.hedge) {
+                    hedgeWins.incrementAndGet();
+                }
+                result.complete(response);
+                settle();
+                return;
+            }
+            if (cause == null) {
+                // 限流降级不代表 Provider 故障，先尝试备用 Provider，全部不可用时再使用降级回复
+                if (degradedFallback == null) {
+                    degradedFallback = response;
+                }
+            } else {
+                if (attempt.emitted.get()) {
+                    result.completeExceptionally(cause);
+                    settle();
+                    return;
+                }
+                logger.warning("Provider " + attempt.name + " 调用失败: " + cause.getMessage());
+                lastError = cause;
+            }
+            if (!inFlight.isEmpty()) {
+                // 另一路请求仍在进行，等待其结果
+                return;
+            }
+            cancelHedgeTimer();
+            next();
+        }
+
+        private void finish() {
+            if (degradedFallback != null) {
+                result.complete(degradedFallback);
+            } else {
+                exhausted.incrementAndGet();
+                result.completeExceptionally(lastError != null
+                    ? lastError
+                    : new ProviderUnavailableException(UNAVAILABLE_MESSAGE));
+            }
+        }
+
+        /**
+         * Cancels the calls that lost the race. Must run after {@code result} is completed
+         * so their cancellation is not mistaken for a failure worth failing over.
+         */
+        private void settle() {
+            cancelHedgeTimer();
+            for (Attempt loser : new ArrayList<>(inFlight)) {
+                loser.cancel();
+            }
+            inFlight.clear();
+        }
+
+        private void cancelHedgeTimer() {
+            if (hedgeTimer != null) {
+                hedgeTimer.cancel(false);
+                hedgeTimer = null;
+            }
+        }
+
+        private final class Attempt {
+
+            final String name;
+            final CircuitBreaker breaker;
+            final boolean hedge;
+            final AtomicBoolean emitted = new AtomicBoolean();
+            private CompletableFuture<ProviderResponse> future;
+
+            Attempt(String name, CircuitBreaker breaker, boolean hedge) {
+                this.name = name;
+                this.breaker = breaker;
+                this.hedge = hedge;
+            }
+
+            void start(LLMProvider provider, ProviderRequest request) {
+                long start = System.nanoTime();
+                CompletableFuture<ProviderResponse> call;
+                try {
+                    call = deltaConsumer != null
+                        ? provider.generateStream(request, delta -> {
+                            emitted.set(true);
+                            deltaConsumer.accept(delta);
+                        })
+                        : provider.generate(request);
+                } catch (RuntimeException e) {
+                    call = CompletableFuture.failedFuture(e);
+                }
+                future = call;
+                call.whenComplete((response, error) -> {
+                    long latencyMillis = (System.nanoTime() - start) / 1_000_000L;
+                    Throwable cause = error != null ? ProviderErrors.unwrap(error) : null;
+                    if (cause == null && !response.isDegraded()) {
+                        breaker.onSuccess(latencyMillis);
+                    } else if (cause == null
+                        || cause instanceof ProviderThrottledException
+                        || cause instanceof CancellationException) {
+                        // 本地限流或被对冲取消，与 Provider 健康无关
+                        breaker.release();
+                    } else {
+                        breaker.onFailure(latencyMillis);
+                    }
+                    onComplete(this, response, cause);
+                });
+            }
+
+            void cancel() {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    private static final class Routes {
+
+        final Map<String, LLMProvider> providers;
+        final Map<String, CircuitBreaker> breakers;
+        final Map<String, ProviderConfig> configs;
+        final List<String> chain;
+        final HedgingSettings hedging;
+        final boolean coalesceIdentical;
+
+        Routes(Map<String, LLMProvider> providers,
+               Map<String, CircuitBreaker> breakers,
+               Map<String, ProviderConfig> configs,
+               List<String> chain,
+               HedgingSettings hedging,
+               boolean coalesceIdentical) {
+            this.providers = providers;
+            this.breakers = breakers;
+            this.configs = configs;
+            this.chain = chain;
+            this.hedging = hedging;
+            this.coalesceIdentical = coalesceIdentical;
+        }
+
+        List<String> candidates(String preferred) {
+            List<String> candidates = new ArrayList<>();
+            if (preferred != null && providers.containsKey(preferred)) {
+                candidates.add(preferred);
+            }
+            for (String name : chain) {
+                if (providers.containsKey(name) && !candidates.contains(name)) {
+                    candidates.add(name);
+                }
+            }
+            return candidates;
+        }
+    }
+}
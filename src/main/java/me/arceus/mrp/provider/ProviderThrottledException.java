@@ -0,0 +1,16 @@
+package me.arceus.mrp.provider;
+
+/**
+ * A request was refused because the provider's rate budget was exhausted, either
+ * locally or by the upstream API. The message is suitable for showing to players.
+ */
+public class ProviderThrottledException extends RuntimeException {
+
+    public ProviderThrottledException(String message) {
+        super(message);
+    }
+
+    public ProviderThrottledException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
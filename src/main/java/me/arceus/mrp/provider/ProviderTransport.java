@@ -0,0 +1,75 @@
+package me.arceus.mrp.provider;
+
+import me.arceus.mrp.concurrent.ExecutionBackend;
+import me.arceus.mrp.config.ProviderSettings;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * HTTP clients shared by every OpenAI-compatible provider. One client, and therefore
+ * one connection pool, is kept per API origin so providers pointing at the same host
+ * reuse connections and HTTP/2 streams. The transport outlives provider reloads.
+ */
+public class ProviderTransport {
+
+    private final Map<String, HttpClient> clients = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private volatile boolean http2Enabled = true;
+    private volatile int connectTimeoutSeconds = 10;
+
+    public ProviderTransport(ExecutionBackend backend) {
+        this.executor = backend.newTaskExecutor("mrp-http-");
+    }
+
+    /**
+     * Applies transport settings. Clients are only rebuilt when the settings actually change,
+     * so a plain reload keeps existing connections warm.
+     */
+    public void configure(ProviderSettings settings) {
+        boolean http2 = settings == null || settings.isHttp2Enabled();
+        int connectTimeout = settings != null ? settings.getConnectTimeoutSeconds() : 10;
+        if (http2 != http2Enabled || connectTimeout != connectTimeoutSeconds) {
+            http2Enabled = http2;
+            connectTimeoutSeconds = connectTimeout;
+            // 旧客户端上正在进行的请求会继续完成，之后随引用释放
+            clients.clear();
+        }
+    }
+
+    public HttpClient clientFor(URI endpoint) {
+        return clients.computeIfAbsent(originOf(endpoint), origin -> HttpClient.newBuilder()
+            .version(http2Enabled ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+            .executor(executor)
+            .build());
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    public void shutdown() {
+        clients.clear();
+        executor.shutdownNow();
+    }
+
+    private static String originOf(URI endpoint) {
+        String scheme = endpoint.getScheme() != null ? endpoint.getScheme().toLowerCase(Locale.ROOT) : "https";
+        String host = endpoint.getHost() != null ? endpoint.getHost().toLowerCase(Locale.ROOT) : "";
+        int port = endpoint.getPort();
+        if (port < 0) {
+            port = "http".equals(scheme) ? 80 : 443;
+        }
+        return scheme + "://" + host + ":" + port;
+    }
+}
@@ -0,0 +1,12 @@
+package me.arceus.mrp.provider;
+
+/**
+ * No provider in the failover chain could take the request because every circuit
+ * is open. The message is suitable for showing to players.
+ */
+public class ProviderUnavailableException extends RuntimeException {
+
+    public ProviderUnavailableException(String message) {
+        super(message);
+    }
+}
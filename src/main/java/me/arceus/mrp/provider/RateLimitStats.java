@@ -0,0 +1,83 @@
+package me.arceus.mrp.provider;
+
+/**
+ * Point-in-time counters of a {@link RateLimitedProvider}.
+ */
+public class RateLimitStats {
+
+    private final int requestsPerMinute;
+    private final int tokensPerMinute;
+    private final double availableRequests;
+    private final double availableTokens;
+    private final long admitted;
+    private final long delayed;
+    private final long throttled;
+    private final long upstreamRateLimited;
+    private final long degraded;
+    private final double averageWaitMillis;
+
+    public RateLimitStats(int requestsPerMinute,
+                          int tokensPerMinute,
+                          double availableRequests,
+                          double availableTokens,
+                          long admitted,
+                          long delayed,
+                          long throttled,
+                          long upstreamRateLimited,
+                          long degraded,
+                          double averageWaitMillis) {
+        this.requestsPerMinute = requestsPerMinute;
+        this.tokensPerMinute = tokensPerMinute;
+        this.availableRequests = availableRequests;
+        this.availableTokens = availableTokens;
+        this.admitted = admitted;
+        this.delayed = delayed;
+        this.throttled = throttled;
+        this.upstreamRateLimited = upstreamRateLimited;
+        this.degraded = degraded;
+        this.averageWaitMillis = averageWaitMillis;
+    }
+
+    public int getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    public int getTokensPerMinute() {
+        return tokensPerMinute;
+    }
+
+    /**
+     * Remaining request budget, negative while callers are waiting; NaN when unlimited.
+     */
+    public double getAvailableRequests() {
+        return availableRequests;
+    }
+
+    public double getAvailableTokens() {
+        return availableTokens;
+    }
+
+    public long getAdmitted() {
+        return admitted;
+    }
+
+    public long getDelayed() {
+        return delayed;
+    }
+
+    public long getThrottled() {
+        return throttled;
+    }
+
+    public long getUpstreamRateLimited() {
+        return upstreamRateLimited;
+    }
+
+    public long getDegraded() {
+        return degraded;
+    }
+
+    public double getAverageWaitMillis() {
+        return averageWaitMillis;
+    }
+}
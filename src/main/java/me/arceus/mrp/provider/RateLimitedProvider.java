@@ -0,0 +1,216 @@
+package me.arceus.mrp.provider;
+
+import me.arceus.mrp.config.RateLimitConfig;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Applies a provider's requests-per-minute and tokens-per-minute budgets before
+ * delegating. Requests over budget wait for their share up to the admission timeout;
+ * beyond that, or when the upstream API answers 429, the configured fallback reply
+ * is returned instead, or a {@link ProviderThrottledException} when none is set.
+ * Budget is reserved at admission; a request cancelled before it is sent gets its whole
+ * reservation back, and one that fails or is cancelled in flight gets its token estimate
+ * back, except after an upstream 429, which drains the buckets anyway.
+ */
+public class RateLimitedProvider implements LLMProvider {
+
+    private static final String BUSY_MESSAGE = "村民现在太忙了，请稍后再试。";
+
+    private final LLMProvider delegate;
+    private final RateLimitConfig config;
+    private final ScheduledExecutorService scheduler;
+    private final TokenBucket requestBucket;
+    private final TokenBucket tokenBucket;
+
+    private long admitted;
+    private long delayed;
+    private long throttled;
+    private long upstreamRateLimited;
+    private long degraded;
+    private long totalWaitMillis;
+
+    public RateLimitedProvider(LLMProvider delegate, RateLimitConfig config, ScheduledExecutorService scheduler) {
+        this.delegate = delegate;
+        this.config = config;
+        this.scheduler = scheduler;
+        this.requestBucket = config.getRequestsPerMinute() > 0 ? new TokenBucket(config.getRequestsPerMinute()) : null;
+        this.tokenBucket = config.getTokensPerMinute() > 0 ? new TokenBucket(config.getTokensPerMinute()) : null;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    public LLMProvider getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public CompletableFuture<ProviderResponse> generate(ProviderRequest request) {
+        return admit(request, delegate::generate);
+    }
+
+    @Override
+    public CompletableFuture<ProviderResponse> generateStream(ProviderRequest request, Consumer<String> deltaConsumer) {
+        return admit(request, r -> delegate.generateStream(r, deltaConsumer));
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    public synchronized RateLimitStats getStats() {
+        long now = System.currentTimeMillis();
+        return new RateLimitStats(
+            config.getRequestsPerMinute(),
+            config.getTokensPerMinute(),
+            requestBucket != null ? requestBucket.getAvailable(now) : Double.NaN,
+            tokenBucket != null ? tokenBucket.getAvailable(now) : Double.NaN,
+            admitted,
+            delayed,
+            throttled,
+            upstreamRateLimited,
+            degraded,
+            delayed == 0 ? 0D : totalWaitMillis / (double) delayed
+        );
+    }
+
+    private CompletableFuture<ProviderResponse> admit(ProviderRequest request,
+                                                      Function<ProviderRequest, CompletableFuture<ProviderResponse>> call) {
+        int estimate = tokenBucket != null ? TokenEstimator.estimate(request) : 0;
+        long delay;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            delay = 0L;
+            if (requestBucket != null) {
+                delay = Math.max(delay, requestBucket.delayFor(1D, now));
+            }
+            if (tokenBucket != null) {
+                delay = Math.max(delay, tokenBucket.delayFor(estimate, now));
+            }
+            if (delay > config.getAdmissionTimeoutMillis()) {
+                throttled++;
+                return degrade(new ProviderThrottledException(BUSY_MESSAGE));
+            }
+            // 预先占用额度，后来的请求会按顺序排在其后
+            if (requestBucket != null) {
+                requestBucket.reserve(1D, now);
+            }
+            if (tokenBucket != null) {
+                tokenBucket.reserve(estimate, now);
+            }
+            admitted++;
+            if (delay > 0L) {
+                delayed++;
+                totalWaitMillis += delay;
+            }
+        }
+
+        if (delay <= 0L) {
+            return dispatch(request, call, estimate);
+        }
+        CompletableFuture<ProviderResponse> result = new CompletableFuture<>();
+        // 发出请求与排队期间取消只有一方生效，决定由谁处理预占的额度
+        AtomicBoolean claimed = new AtomicBoolean();
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled() && claimed.compareAndSet(false, true)) {
+                refund(true, estimate);
+            }
+        });
+        ScheduledFuture<?> pending = scheduler.schedule(() -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            CompletableFuture<ProviderResponse> dispatched = dispatch(request, call, estimate);
+            ProviderErrors.linkCancellation(result, dispatched);
+            dispatched.whenComplete((response, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(ProviderErrors.unwrap(error));
+                } else {
+                    result.complete(response);
+                }
+            });
+        }, delay, TimeUnit.MILLISECONDS);
+        // 排队期间被取消时不再发出请求
+        return ProviderErrors.linkCancellation(result, pending);
+    }
+
+    private CompletableFuture<ProviderResponse> dispatch(ProviderRequest request,
+                                                         Function<ProviderRequest, CompletableFuture<ProviderResponse>> call,
+                                                         int estimate) {
+        CompletableFuture<ProviderResponse> upstream;
+        try {
+            upstream = call.apply(request);
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        return ProviderErrors.linkCancellation(upstream.handle((response, error) -> {
+            if (error == null) {
+                refundUnused(response, estimate);
+                return CompletableFuture.completedFuture(response);
+            }
+            Throwable cause = ProviderErrors.unwrap(error);
+            if (cause instanceof ProviderHttpException http && http.isRateLimited()) {
+                onUpstreamRateLimited();
+                return degrade(new ProviderThrottledException(BUSY_MESSAGE, cause));
+            }
+            // 失败或中途取消（例如对冲落败）不应继续占用 token 额度
+            refund(false, estimate);
+            return CompletableFuture.<ProviderResponse>failedFuture(cause);
+        }).thenCompose(Function.identity()), upstream);
+    }
+
+    private void refundUnused(ProviderResponse response, int estimate) {
+        if (tokenBucket == null || response == null) {
+            return;
+        }
+        int actual = response.getPromptTokens() + response.getCompletionTokens();
+        if (actual > 0 && actual < estimate) {
+            tokenBucket.refund(estimate - actual);
+        }
+    }
+
+    /**
+     * Returns budget reserved at admission: the token estimate, and the request slot too if
+     * the request was never sent.
+     */
+    private void refund(boolean requestSlot, int estimate) {
+        if (requestSlot && requestBucket != null) {
+            requestBucket.refund(1D);
+        }
+        if (tokenBucket != null && estimate > 0) {
+            tokenBucket.refund(Math.min(estimate, tokenBucket.getCapacity()));
+        }
+    }
+
+    private synchronized void onUpstreamRateLimited() {
+        upstreamRateLimited++;
+        // 上游已经限流，清空本地额度让后续请求自然退避
+        long now = System.currentTimeMillis();
+        if (requestBucket != null) {
+            requestBucket.drain(now);
+        }
+        if (tokenBucket != null) {
+            tokenBucket.drain(now);
+        }
+    }
+
+    private CompletableFuture<ProviderResponse> degrade(ProviderThrottledException exception) {
+        if (config.hasFallbackReply()) {
+            synchronized (this) {
+                degraded++;
+            }
+            return CompletableFuture.completedFuture(ProviderResponse.degraded(config.getFallbackReply()));
+        }
+        return CompletableFuture.failedFuture(exception);
+    }
+}
@@ -0,0 +1,134 @@
+package me.arceus.mrp.provider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Lets identical concurrent requests share one upstream call. The first caller for a
+ * key starts the call; callers arriving while it is in flight attach to it and receive
+ * the same response. Streamed content seen so far is replayed to a caller when it
+ * attaches and further deltas are fanned out to every caller. Each caller gets its own
+ * future, so cancelling one does not affect the others or the shared call.
+ */
+class SingleFlight {
+
+    private final Map<String, Flight> flights = new HashMap<>();
+    private long started;
+    private long joined;
+
+    CompletableFuture<ProviderResponse> execute(String key,
+                                                Consumer<String> deltaConsumer,
+                                                Function<Consumer<String>, CompletableFuture<ProviderResponse>> call) {
+        Flight flight;
+        boolean leader;
+        synchronized (this) {
+            flight = flights.get(key);
+            leader = flight == null;
+            if (leader) {
+                flight = new Flight();
+                flights.put(key, flight);
+                started++;
+            } else {
+                joined++;
+            }
+        }
+
+        CompletableFuture<ProviderResponse> result = new CompletableFuture<>();
+        flight.attach(deltaConsumer, result);
+        if (!leader) {
+            return result;
+        }
+
+        Flight current = flight;
+        CompletableFuture<ProviderResponse> upstream;
+        try {
+            // 首个调用者是否流式决定整个请求是否流式
+            upstream = call.apply(deltaConsumer != null ? current::publish : null);
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        upstream.whenComplete((response, error) -> {
+            synchronized (this) {
+                flights.remove(key, current);
+            }
+            current.finish(response, error != null ? ProviderErrors.unwrap(error) : null);
+        });
+        return result;
+    }
+
+    synchronized int getInFlight() {
+        return flights.size();
+    }
+
+    synchronized long getStarted() {
+        return started;
+    }
+
+    /**
+     * Callers that attached to an existing call instead of sending their own.
+     */
+    synchronized long getJoined() {
+        return joined;
+    }
+
+    private static final class Flight {
+
+        private final StringBuilder streamed = new StringBuilder();
+        private final List<Consumer<String>> subscribers = new ArrayList<>();
+        private final List<CompletableFuture<ProviderResponse>> waiters = new ArrayList<>();
+        private boolean done;
+        private ProviderResponse response;
+        private Throwable error;
+
+        synchronized void attach(Consumer<String> deltaConsumer, CompletableFuture<ProviderResponse> result) {
+            if (done) {
+                // 取到该请求后它恰好已结束，直接使用其结果
+                complete(result, response, error);
+                return;
+            }
+            if (deltaConsumer != null) {
+                if (streamed.length() > 0) {
+                    // 后加入的调用者先补上已经输出的内容
+                    deltaConsumer.accept(streamed.toString());
+                }
+                subscribers.add(deltaConsumer);
+            }
+            waiters.add(result);
+        }
+
+        synchronized void publish(String delta) {
+            streamed.append(delta);
+            for (Consumer<String> subscriber : subscribers) {
+                subscriber.accept(delta);
+            }
+        }
+
+        void finish(ProviderResponse response, Throwable error) {
+            List<CompletableFuture<ProviderResponse>> targets;
+            synchronized (this) {
+                done = true;
+                this.response = response;
+                this.error = error;
+                targets = new ArrayList<>(waiters);
+                waiters.clear();
+                subscribers.clear();
+            }
+            for (CompletableFuture<ProviderResponse> target : targets) {
+                complete(target, response, error);
+            }
+        }
+
+        private static void complete(CompletableFuture<ProviderResponse> target, ProviderResponse response, Throwable error) {
+            if (error != null) {
+                target.completeExceptionally(error);
+            } else {
+                target.complete(response);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package me.arceus.mrp.provider;
+
+/**
+ * Token bucket that refills continuously up to one minute's budget. Reservations may
+ * push the balance below zero; the returned delay is how long the caller has to wait
+ * for its share, which keeps admission first-come first-served.
+ */
+class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerMilli;
+    private double available;
+    private long lastRefill;
+
+    TokenBucket(int perMinute) {
+        this.capacity = perMinute;
+        this.refillPerMilli = perMinute / 60_000D;
+        this.available = perMinute;
+        this.lastRefill = System.currentTimeMillis();
+    }
+
+    /**
+     * Delay in milliseconds until {@code cost} would be covered, without reserving anything.
+     */
+    synchronized long delayFor(double cost, long now) {
+        refill(now);
+        double needed = Math.min(cost, capacity) - available;
+        return needed <= 0D ? 0L : (long) Math.ceil(needed / refillPerMilli);
+    }
+
+    synchronized void reserve(double cost, long now) {
+        refill(now);
+        available -= Math.min(cost, capacity);
+    }
+
+    /**
+     * Returns unused budget, e.g. when a request used fewer tokens than estimated.
+     */
+    synchronized void refund(double amount) {
+        available = Math.min(capacity, available + amount);
+    }
+
+    /**
+     * Empties the bucket after the upstream API reported that we are over its limit.
+     */
+    synchronized void drain(long now) {
+        refill(now);
+        available = Math.min(available, 0D);
+    }
+
+    synchronized double getAvailable(long now) {
+        refill(now);
+        return available;
+    }
+
+    double getCapacity() {
+        return capacity;
+    }
+
+    private void refill(long now) {
+        if (now > lastRefill) {
+            available = Math.min(capacity, available + (now - lastRefill) * refillPerMilli);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package me.arceus.mrp.provider;
+
+import me.arceus.mrp.tokenizer.HeuristicTokenizer;
+import me.arceus.mrp.tokenizer.Tokenizer;
+
+/**
+ * Cheap upper-bound estimate of the tokens a request will consume, used for
+ * budgeting before the real usage is known. Text is counted with the tokenizer
+ * configured by the plugin, the heuristic one until another is installed.
+ */
+public final class TokenEstimator {
+
+    private static final int PER_MESSAGE_OVERHEAD = 4;
+    private static final int PER_REQUEST_OVERHEAD = 3;
+
+    private static volatile Tokenizer tokenizer = HeuristicTokenizer.INSTANCE;
+
+    private TokenEstimator() {
+    }
+
+    public static void use(Tokenizer replacement) {
+        tokenizer = replacement != null ? replacement : HeuristicTokenizer.INSTANCE;
+    }
+
+    public static Tokenizer tokenizer() {
+        return tokenizer;
+    }
+
+    /**
+     * Prompt tokens plus the completion budget requested via {@code maxTokens}.
+     */
+    public static int estimate(ProviderRequest request) {
+        int total = PER_REQUEST_OVERHEAD;
+        for (ProviderMessage message : request.getMessages()) {
+            total += PER_MESSAGE_OVERHEAD + estimateText(message.getContent());
+        }
+        return total + Math.max(0, request.getMaxTokens());
+    }
+
+    public static int estimateText(String text) {
+        return tokenizer.count(text);
+    }
+
+    /**
+     * Tokens one chat message occupies given the token count of its content.
+     */
+    public static int messageTokens(int contentTokens) {
+        return PER_MESSAGE_OVERHEAD + contentTokens;
+    }
+
+    public static int requestOverhead() {
+        return PER_REQUEST_OVERHEAD;
+    }
+}
@@ -0,0 +1,106 @@
+package me.arceus.mrp.tokenizer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Byte-level BPE token counter driven by a rank table in the tiktoken text format
+ * ({@code <base64 token> <rank>} per line). Text is split with the cl100k-style
+ * pre-tokenizer pattern and each piece is merged greedily by lowest rank. Only the
+ * number of tokens is produced; token ids are not needed for budgeting.
+ */
+public final class BpeTokenizer implements Tokenizer {
+
+    private static final Pattern PRE_TOKENIZER = Pattern.compile(
+        "'(?i:[sdmt]|ll|ve|re)|[^\\r\\n\\p{L}\\p{N}]?+\\p{L}+|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]++[\\r\\n]*|\\s*[\\r\\n]|\\s+(?!\\S)|\\s+");
+
+    // 字节序列以 ISO-8859-1 字符串表示，一个字节对应一个字符，便于直接作为 Map 键
+    private final Map<String, Integer> ranks;
+    private final String name;
+
+    private BpeTokenizer(Map<String, Integer> ranks, String name) {
+        this.ranks = ranks;
+        this.name = name;
+    }
+
+    public static BpeTokenizer load(Path file) throws IOException {
+        Map<String, Integer> ranks = new HashMap<>(131_072);
+        Base64.Decoder decoder = Base64.getDecoder();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ');
+                if (space <= 0) {
+                    continue;
+                }
+                try {
+                    byte[] bytes = decoder.decode(line.substring(0, space));
+                    int rank = Integer.parseInt(line.substring(space + 1).trim());
+                    ranks.put(new String(bytes, StandardCharsets.ISO_8859_1), rank);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("无法解析词表行: " + line, e);
+                }
+            }
+        }
+        if (ranks.isEmpty()) {
+            throw new IOException("词表为空");
+        }
+        return new BpeTokenizer(ranks, file.getFileName().toString());
+    }
+
+    @Override
+    public int count(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int total = 0;
+        Matcher matcher = PRE_TOKENIZER.matcher(text);
+        while (matcher.find()) {
+            byte[] bytes = matcher.group().getBytes(StandardCharsets.UTF_8);
+            total += countPiece(new String(bytes, StandardCharsets.ISO_8859_1));
+        }
+        return total;
+    }
+
+    @Override
+    public String describe() {
+        return "BPE (" + name + "，" + ranks.size() + " 词)";
+    }
+
+    private int countPiece(String piece) {
+        if (piece.length() <= 1 || ranks.containsKey(piece)) {
+            return 1;
+        }
+        // parts 保存各段起点，末尾追加整体长度作为哨兵
+        List<Integer> parts = new ArrayList<>(piece.length() + 1);
+        for (int i = 0; i <= piece.length(); i++) {
+            parts.add(i);
+        }
+        while (parts.size() > 2) {
+            int bestIndex = -1;
+            int bestRank = Integer.MAX_VALUE;
+            for (int i = 0; i + 2 < parts.size(); i++) {
+                Integer rank = ranks.get(piece.substring(parts.get(i), parts.get(i + 2)));
+                if (rank != null && rank < bestRank) {
+                    bestRank = rank;
+                    bestIndex = i;
+                }
+            }
+            if (bestIndex < 0) {
+                break;
+            }
+            parts.remove(bestIndex + 1);
+        }
+        return parts.size() - 1;
+    }
+}
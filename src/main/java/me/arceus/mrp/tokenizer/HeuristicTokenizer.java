@@ -0,0 +1,38 @@
+package me.arceus.mrp.tokenizer;
+
+/**
+ * Character-class estimate that needs no vocabulary: one token per CJK (or other
+ * non-ASCII) character and one per four ASCII characters. Slightly pessimistic for
+ * most BPE vocabularies, which is the safe side when fitting a context window.
+ */
+public final class HeuristicTokenizer implements Tokenizer {
+
+    public static final HeuristicTokenizer INSTANCE = new HeuristicTokenizer();
+
+    private HeuristicTokenizer() {
+    }
+
+    @Override
+    public int count(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int wide = 0;
+        int narrow = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                narrow++;
+            } else if (!Character.isLowSurrogate(c)) {
+                // 中日韩等字符通常一个字就是一个 token
+                wide++;
+            }
+        }
+        return wide + (narrow + 3) / 4;
+    }
+
+    @Override
+    public String describe() {
+        return "估算";
+    }
+}
@@ -0,0 +1,14 @@
+package me.arceus.mrp.tokenizer;
+
+/**
+ * Counts the tokens a piece of text occupies in the model context.
+ */
+public interface Tokenizer {
+
+    int count(String text);
+
+    /**
+     * Short human-readable name for status output.
+     */
+    String describe();
+}
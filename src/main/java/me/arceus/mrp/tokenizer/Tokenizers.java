@@ -0,0 +1,39 @@
+package me.arceus.mrp.tokenizer;
+
+import me.arceus.mrp.config.TokenizerSettings;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+public final class Tokenizers {
+
+    private Tokenizers() {
+    }
+
+    /**
+     * Builds the configured tokenizer, falling back to the heuristic one when the BPE
+     * table is missing or unreadable.
+     */
+    public static Tokenizer create(TokenizerSettings settings, Path dataFolder, Logger logger) {
+        if (settings == null || !settings.isBpe()) {
+            return HeuristicTokenizer.INSTANCE;
+        }
+        Path file = dataFolder.resolve(settings.getBpeFile());
+        if (!Files.isRegularFile(file)) {
+            logger.warning("未找到 BPE 词表 " + file + "，改用估算方式计算 token");
+            return HeuristicTokenizer.INSTANCE;
+        }
+        try {
+            long start = System.nanoTime();
+            BpeTokenizer tokenizer = BpeTokenizer.load(file);
+            logger.info("已加载 BPE 词表 " + file.getFileName() + "，耗时 "
+                + (System.nanoTime() - start) / 1_000_000L + "ms");
+            return tokenizer;
+        } catch (IOException e) {
+            logger.warning("读取 BPE 词表失败: " + e.getMessage() + "，改用估算方式计算 token");
+            return HeuristicTokenizer.INSTANCE;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import me.arceus.mrp.conversation.ConversationSession;
 import me.arceus.mrp.conversation.ConversationSessionManager;
 import me.arceus.mrp.config.ConversationDisplayMode;
 import me.arceus.mrp.config.ConversationSettings;
+import me.arceus.mrp.metrics.LatencyHistogram;
 import me.arceus.mrp.provider.ProviderMessage;
 import me.arceus.mrp.villager.VillagerProfile;
 import me.arceus.mrp.villager.VillagerRegistry;
@@ -59,6 +60,8 @@ public class ConversationUiService implements Listener {
     private final ConversationChatService chatService;
     private final ConversationSessionManager sessionManager;
     private final VillagerRegistry villagerRegistry;
+    private final LatencyHistogram inventoryBuild;
+    private final LatencyHistogram bookBuild;
 
     private final Map<UUID, ConversationViewContext> openViews = new ConcurrentHashMap<>();
     private final Map<UUID, UUID> chatCaptureTargets = new ConcurrentHashMap<>();
@@ -69,6 +72,8 @@ public class ConversationUiService implements Listener {
         this.chatService = chatService;
         this.sessionManager = plugin.getSessionManager();
         this.villagerRegistry = plugin.getVillagerRegistry();
+        this.inventoryBuild = plugin.getMetrics().histogram("ui.inventory");
+        this.bookBuild = plugin.getMetrics().histogram("ui.book");
     }
 
     public void openConversation(Player player, VillagerProfile profile) {
@@ -96,7 +101,9 @@ public class ConversationUiService implements Listener {
             int targetPage = page < 0 ? 0 : page;
             int clampedPage = Math.max(0, Math.min(targetPage, totalPages - 1));
 
+            long buildStart = System.nanoTime();
             Inventory inventory = buildInventory(player, profile, history, clampedPage, totalPages);
+            inventoryBuild.recordSince(buildStart);
             player.openInventory(inventory);
             openViews.put(playerId, new ConversationViewContext(profile.getVillagerId(), clampedPage, totalPages));
             sendQuickActions(player, profile, null, null);
@@ -161,6 +168,7 @@ public class ConversationUiService implements Listener {
 
     private void openBookConversation(Player player, VillagerProfile profile, List<ConversationMessage> history,
             int page) {
+        long buildStart = System.nanoTime();
         String villagerName = profile.getName() != null ? profile.getName() : "村民";
         List<BookPageContent> pageData = buildBookPages(history, player.getName(), villagerName);
         if (pageData.isEmpty()) {
@@ -180,6 +188,7 @@ public class ConversationUiService implements Listener {
             meta.setPages(renderedPages);
             book.setItemMeta(meta);
         }
+        bookBuild.recordSince(buildStart);
 
         player.openBook(book);
 
@@ -630,19 +639,14 @@ public class ConversationUiService implements Listener {
             return;
         }
 
-        if (chatService.isProcessing(player.getUniqueId())) {
-            player.sendMessage("村民正在思考，请稍候再试。");
-            openConversation(player, profile);
-            return;
-        }
-
         CompletableFuture<String> future = chatService.sendPlayerMessage(player, profile, message);
         future.whenComplete((reply, throwable) -> Bukkit.getScheduler().runTask(plugin, () -> {
             if (!player.isOnline()) {
                 chatCaptureTargets.remove(player.getUniqueId());
                 return;
             }
-            if (throwable == null) {
+            // 合并发送的消息没有独立回复，快捷操作只在最后一条回复后显示
+            if (throwable == null && reply != null) {
                 VillagerProfile refreshed = villagerRegistry.getProfile(villagerId);
                 if (refreshed == null) {
                     refreshed = profile;
@@ -1,5 +1,7 @@
 package me.arceus.mrp.villager;
 
+import me.arceus.mrp.prompt.CompiledTemplate;
+
 import java.util.UUID;
 
 public class VillagerProfile {
@@ -15,6 +17,9 @@ public class VillagerProfile {
     private String greeting;
     private String introduction;
     private String providerOverride;
+    private transient CompiledTemplate compiledGreeting;
+    private transient CompiledTemplate compiledIntroduction;
+    private transient int version;
 
     // Gson 需要无参构造函数
     public VillagerProfile() {
@@ -82,6 +87,31 @@ public class VillagerProfile {
         return introduction;
     }
 
+    /**
+     * Incremented by every setter so cached renderings of this profile can detect edits.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public CompiledTemplate getCompiledGreeting() {
+        CompiledTemplate compiled = compiledGreeting;
+        if (compiled == null) {
+            compiled = CompiledTemplate.compile(greeting);
+            compiledGreeting = compiled;
+        }
+        return compiled;
+    }
+
+    public CompiledTemplate getCompiledIntroduction() {
+        CompiledTemplate compiled = compiledIntroduction;
+        if (compiled == null) {
+            compiled = CompiledTemplate.compile(introduction);
+            compiledIntroduction = compiled;
+        }
+        return compiled;
+    }
+
     public boolean hasGreeting() {
         return greeting != null && !greeting.isBlank();
     }
@@ -95,46 +125,59 @@ public class VillagerProfile {
     }
 
     public void setVillagerId(UUID villagerId) {
+        version++;
         this.villagerId = villagerId;
     }
 
     public void setCharacterId(int characterId) {
+        version++;
         this.characterId = characterId;
     }
 
     public void setName(String name) {
+        version++;
         this.name = name;
     }
 
     public void setDescription(String description) {
+        version++;
         this.description = description;
     }
 
     public void setPersona(String persona) {
+        version++;
         this.persona = persona;
     }
 
     public void setModelOverride(String modelOverride) {
+        version++;
         this.modelOverride = modelOverride;
     }
 
     public void setFreezeAi(boolean freezeAi) {
+        version++;
         this.freezeAi = freezeAi;
     }
 
     public void setPromptOverride(VillagerPromptOverride promptOverride) {
+        version++;
         this.promptOverride = promptOverride;
     }
 
     public void setGreeting(String greeting) {
+        version++;
         this.greeting = greeting;
+        this.compiledGreeting = null;
     }
 
     public void setIntroduction(String introduction) {
+        version++;
         this.introduction = introduction;
+        this.compiledIntroduction = null;
     }
 
     public void setProviderOverride(String providerOverride) {
+        version++;
         this.providerOverride = providerOverride;
     }
 }
@@ -1,5 +1,7 @@
 package me.arceus.mrp.villager;
 
+import me.arceus.mrp.prompt.CompiledTemplate;
+
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -15,6 +17,10 @@ public class VillagerPromptOverride {
     private Boolean inheritDefaultNotes;
     private Map<String, List<String>> variableCandidates;
     private VillagerSuccessBehavior success;
+    private Boolean responseCache;
+    private Double semanticCacheThreshold;
+    private transient CompiledTemplate compiledSystemTemplate;
+    private transient List<CompiledTemplate> compiledExtraNotes;
 
     // Gson requires a no-args constructor
     public VillagerPromptOverride() {
@@ -28,6 +34,27 @@ public class VillagerPromptOverride {
         return systemTemplate != null && !systemTemplate.isBlank();
     }
 
+    /**
+     * The system template parsed on first use; Gson fills the raw fields, so compiling is deferred.
+     */
+    public CompiledTemplate getCompiledSystemTemplate() {
+        CompiledTemplate compiled = compiledSystemTemplate;
+        if (compiled == null) {
+            compiled = CompiledTemplate.compile(systemTemplate);
+            compiledSystemTemplate = compiled;
+        }
+        return compiled;
+    }
+
+    public List<CompiledTemplate> getCompiledExtraNotes() {
+        List<CompiledTemplate> compiled = compiledExtraNotes;
+        if (compiled == null) {
+            compiled = getExtraNotes().stream().map(CompiledTemplate::compile).toList();
+            compiledExtraNotes = compiled;
+        }
+        return compiled;
+    }
+
     public List<String> getExtraNotes() {
         return extraNotes != null ? extraNotes : Collections.emptyList();
     }
@@ -60,4 +87,24 @@ public class VillagerPromptOverride {
         return success;
     }
 
+    /**
+     * Whether identical requests to this villager may be answered from the reply cache.
+     * Meant for quiz-style villagers whose opening exchanges repeat across players.
+     */
+    public boolean isResponseCacheEnabled() {
+        return responseCache != null && responseCache;
+    }
+
+    /**
+     * Minimum cosine similarity for a differently worded question to reuse an earlier reply,
+     * or 0 when the villager does not use the semantic cache.
+     */
+    public double getSemanticCacheThreshold() {
+        return semanticCacheThreshold != null ? semanticCacheThreshold : 0D;
+    }
+
+    public boolean isSemanticCacheEnabled() {
+        return semanticCacheThreshold != null && semanticCacheThreshold > 0D && semanticCacheThreshold <= 1D;
+    }
+
 }
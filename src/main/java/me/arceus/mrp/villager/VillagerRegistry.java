@@ -138,6 +138,7 @@ public class VillagerRegistry {
             profiles.put(profile.getVillagerId(), profile);
             profileFiles.put(profile.getVillagerId(), path);
             idIndex.put(profile.getCharacterId(), profile.getVillagerId());
+            plugin.getPromptService().validate(profile);
             if (assigned) {
                 saveVillagers();
             }
@@ -163,6 +164,7 @@ public class VillagerRegistry {
                 profiles.put(profile.getVillagerId(), profile);
                 profileFiles.put(profile.getVillagerId(), path);
                 idIndex.put(profile.getCharacterId(), profile.getVillagerId());
+                plugin.getPromptService().validate(profile);
                 return assigned;
             }
         } catch (IOException e) {